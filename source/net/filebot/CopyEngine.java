@@ -0,0 +1,66 @@
+package net.filebot;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.filebot.platform.posix.PosixFileCopy;
+import net.filebot.util.FileUtilities;
+import net.filebot.util.Throughput;
+
+/**
+ * Copy strategies in order of preference: copy-on-write clone, resumable chunked copy for large files (if enabled), in-kernel copy, and {@link java.nio.channels.FileChannel#transferTo} as portable fallback.
+ */
+public enum CopyEngine {
+
+	REFLINK, RESUMABLE, COPY_FILE_RANGE, TRANSFER_TO;
+
+	/**
+	 * @return the strategy that has been used to copy the file
+	 */
+	public static CopyEngine copy(File source, File destination) throws IOException {
+		Throughput throughput = Throughput.COPY;
+		long length = source.length();
+
+		if (isNativeSupported() && PosixFileCopy.reflink(source, destination)) {
+			// blocks are shared so there is nothing to copy
+			throughput.expect(length);
+			throughput.update(length);
+			return REFLINK;
+		}
+
+		// large files are copied via temporary file and can be resumed if interrupted (opt-in)
+		if (ResumableCopy.isSupported(source)) {
+			ResumableCopy.copy(source, destination);
+			return RESUMABLE;
+		}
+
+		if (isNativeSupported()) {
+			throughput.expect(length);
+			if (PosixFileCopy.copyFileRange(source, destination, throughput::update)) {
+				return COPY_FILE_RANGE;
+			}
+			throughput.expect(-length);
+		}
+
+		FileUtilities.copyFile(source, destination, throughput);
+		return TRANSFER_TO;
+	}
+
+	/**
+	 * Create a copy-on-write clone or fail if the file system does not support cloning
+	 */
+	public static void clone(File source, File destination) throws IOException {
+		if (!PosixFileCopy.reflink(source, destination)) {
+			throw new IOException(String.format("Failed to clone [%s]: copy-on-write is not supported", source));
+		}
+	}
+
+	public static boolean isNativeSupported() {
+		try {
+			return PosixFileCopy.isSupported();
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+}
@@ -48,6 +48,11 @@ public class History {
 			// hide constructor
 		}
 
+		Sequence(Date date, List<Element> elements) {
+			this.date = date;
+			this.elements = elements;
+		}
+
 		public Date date() {
 			return date;
 		}
@@ -0,0 +1,521 @@
+package net.filebot;
+
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.filebot.History.Element;
+import net.filebot.History.Sequence;
+import net.filebot.HistoryJournal.Position;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Sorted index of history elements by source path and by destination path, so that the history of a given file or folder can be looked up without scanning the entire history.
+ *
+ * The persistent index is stored next to the journal as sorted tables that are searched on disk, so lookups don't need to load the index into memory. Sequences that have been appended to the journal since the persistent index has been written are kept in memory, and are merged into a new persistent index once there are enough of them. The persistent index is rebuilt from scratch if the journal has been compacted.
+ */
+public class HistoryIndex {
+
+	public static final SystemProperty<Integer> MERGE_INTERVAL = SystemProperty.of("net.filebot.HistoryIndex.merge", Integer::parseInt, 1000);
+
+	private static final int MAGIC = 0x46424932; // FBI2
+
+	// magic, journal generation, journal offset, number of entries
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+	private static final int SOURCE = 0;
+	private static final int DESTINATION = 1;
+
+	// entries that have not been merged into the persistent index yet
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	private final NavigableMap<String, List<Entry>> bySource = new TreeMap<String, List<Entry>>();
+	private final NavigableMap<String, List<Entry>> byDestination = new TreeMap<String, List<Entry>>();
+
+	private final HistoryJournal journal;
+	private final File file;
+
+	private Table table = Table.EMPTY;
+	private Position position = Position.START;
+	private Object journalStamp;
+
+	/**
+	 * Create in-memory index
+	 */
+	public HistoryIndex() {
+		this(null, null);
+	}
+
+	/**
+	 * Create persistent index for the given journal
+	 */
+	public HistoryIndex(HistoryJournal journal, File file) {
+		this.journal = journal;
+		this.file = file;
+	}
+
+	public synchronized void add(Sequence sequence) {
+		for (Element element : sequence.elements()) {
+			File to = new File(element.to());
+			if (!to.isAbsolute()) {
+				to = new File(element.dir(), element.to());
+			}
+			File from = new File(element.dir(), element.from());
+
+			add(from, to);
+		}
+	}
+
+	private void add(File from, File to) {
+		Entry entry = new Entry(table.size() + entries.size(), from, to);
+		entries.add(entry);
+		bySource.computeIfAbsent(key(entry.from), k -> new ArrayList<Entry>(1)).add(entry);
+		byDestination.computeIfAbsent(key(entry.to), k -> new ArrayList<Entry>(1)).add(entry);
+	}
+
+	private void clearMemory() {
+		entries.clear();
+		bySource.clear();
+		byDestination.clear();
+	}
+
+	public synchronized void clear() {
+		clearMemory();
+		table.close();
+		table = Table.EMPTY;
+		position = Position.START;
+		journalStamp = null;
+	}
+
+	public synchronized int size() {
+		return table.size() + entries.size();
+	}
+
+	/**
+	 * @return the most recent destination path of the given source path or null
+	 */
+	public synchronized File getDestination(File source) throws IOException {
+		String key = key(source);
+
+		List<Entry> matches = bySource.get(key);
+		if (matches != null) {
+			return matches.get(matches.size() - 1).to;
+		}
+
+		Entry entry = table.getLast(SOURCE, key);
+		return entry == null ? null : entry.to;
+	}
+
+	/**
+	 * @return all source paths that have been renamed to the given destination path, most recent first
+	 */
+	public synchronized List<File> getSources(File destination) throws IOException {
+		String key = key(destination);
+
+		List<Entry> matches = table.find(DESTINATION, key, next(key));
+		matches.addAll(byDestination.getOrDefault(key, new ArrayList<Entry>(0)));
+
+		List<File> sources = new ArrayList<File>(matches.size());
+		for (int i = matches.size() - 1; i >= 0; i--) {
+			sources.add(matches.get(i).from);
+		}
+		return sources;
+	}
+
+	/**
+	 * @return all source paths (in order of first occurrence) where either the source path or the destination path is equal to or a descendant of one of the given paths
+	 */
+	public synchronized Set<File> findSources(Collection<File> paths) throws IOException {
+		List<Entry> matches = new ArrayList<Entry>();
+
+		for (File path : paths) {
+			for (int index : new int[] { SOURCE, DESTINATION }) {
+				String key = key(path);
+				String prefix = key.endsWith(File.separator) ? key : key + File.separator;
+
+				matches.addAll(table.find(index, key, next(key)));
+
+				List<Entry> match = getMemoryIndex(index).get(key);
+				if (match != null) {
+					matches.addAll(match);
+				}
+
+				// all paths within the given folder
+				matches.addAll(table.find(index, prefix, prefix + Character.MAX_VALUE));
+
+				for (List<Entry> it : getMemoryIndex(index).subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+					matches.addAll(it);
+				}
+			}
+		}
+
+		matches.sort(Comparator.comparingInt(Entry::getOrdinal));
+
+		Set<File> sources = new LinkedHashSet<File>(matches.size());
+		for (Entry it : matches) {
+			sources.add(getFirstSource(it.from));
+		}
+		return sources;
+	}
+
+	private File getFirstSource(File source) throws IOException {
+		String key = key(source);
+
+		Entry entry = table.getFirst(SOURCE, key);
+		if (entry != null) {
+			return entry.from;
+		}
+		return bySource.get(key).get(0).from;
+	}
+
+	private NavigableMap<String, List<Entry>> getMemoryIndex(int index) {
+		return index == SOURCE ? bySource : byDestination;
+	}
+
+	/**
+	 * Update the index with all sequences that have been appended to the journal since the last update
+	 */
+	public synchronized void refresh() throws IOException {
+		if (journal == null) {
+			return;
+		}
+
+		// nothing to do if the journal has not been modified since the last update
+		Object stamp = journal.getModificationStamp();
+		if (stamp != null && stamp.equals(journalStamp)) {
+			return;
+		}
+
+		// use persistent index if it has been updated by another process
+		Table latest = Table.open(file);
+		if (!latest.position.equals(table.position)) {
+			clear();
+			table = latest;
+			position = latest.position;
+		} else {
+			latest.close();
+		}
+
+		Position update = journal.read(position, this::add);
+
+		if (update == null) {
+			// journal has been compacted and offsets are no longer valid
+			log.finest(format("Rebuild history index [%s]", file));
+			clear();
+			update = journal.read(Position.START, this::add);
+		}
+
+		position = update;
+		journalStamp = stamp;
+
+		if (entries.size() >= MERGE_INTERVAL.get()) {
+			merge();
+		}
+	}
+
+	/**
+	 * Write new persistent index with all entries of the current persistent index and all in-memory entries
+	 */
+	private void merge() {
+		Path temp = null;
+		Table merged = null;
+		try {
+			temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+				out.writeInt(MAGIC);
+				out.writeInt(position.getGeneration());
+				out.writeLong(position.getOffset());
+				out.writeInt(size());
+
+				writeOrdinals(out, SOURCE);
+				writeOrdinals(out, DESTINATION);
+
+				// encode in-memory entries first, so we know the offset of each entry
+				ByteArrayOutputStream data = new ByteArrayOutputStream();
+				DataOutputStream dataOut = new DataOutputStream(data);
+				long[] offsets = new long[entries.size()];
+				long dataLength = table.getDataLength();
+
+				for (int i = 0; i < entries.size(); i++) {
+					offsets[i] = dataLength + dataOut.size();
+					dataOut.writeUTF(entries.get(i).from.getPath());
+					dataOut.writeUTF(entries.get(i).to.getPath());
+				}
+
+				table.copyOffsets(out);
+				for (long offset : offsets) {
+					out.writeLong(offset);
+				}
+
+				table.copyData(out);
+				data.writeTo(out);
+			}
+
+			merged = Table.open(temp.toFile());
+			Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+			log.finest(format("Merge history index: %,d entries [%s]", merged.size(), file));
+
+			clearMemory();
+			table.close();
+			table = merged;
+		} catch (Exception e) {
+			debug.warning(cause("Failed to write history index", e));
+
+			// keep using in-memory entries
+			if (merged != null) {
+				merged.close();
+			}
+			if (temp != null) {
+				temp.toFile().delete();
+			}
+		}
+	}
+
+	/**
+	 * Merge the sorted ordinals of the persistent index and the sorted in-memory entries
+	 */
+	private void writeOrdinals(DataOutputStream out, int index) throws IOException {
+		Iterator<Entry> memory = getMemoryIndex(index).values().stream().flatMap(List::stream).iterator();
+		Entry next = memory.hasNext() ? memory.next() : null;
+
+		for (int i = 0; i < table.size(); i++) {
+			Entry entry = table.getSorted(index, i);
+			String key = key(entry.path(index));
+
+			// in-memory entries always come after persistent entries with the same key
+			while (next != null && key(next.path(index)).compareTo(key) < 0) {
+				out.writeInt(next.ordinal);
+				next = memory.hasNext() ? memory.next() : null;
+			}
+			out.writeInt(entry.ordinal);
+		}
+
+		while (next != null) {
+			out.writeInt(next.ordinal);
+			next = memory.hasNext() ? memory.next() : null;
+		}
+	}
+
+	private static final boolean CASE_INSENSITIVE = new File("a").equals(new File("A"));
+
+	private static String key(File file) {
+		String path = file.getPath();
+		return CASE_INSENSITIVE ? path.toLowerCase() : path;
+	}
+
+	/**
+	 * @return the smallest key that is greater than the given key
+	 */
+	private static String next(String key) {
+		return key + '\0';
+	}
+
+	private static class Entry {
+
+		public final int ordinal;
+		public final File from;
+		public final File to;
+
+		public Entry(int ordinal, File from, File to) {
+			this.ordinal = ordinal;
+			this.from = from;
+			this.to = to;
+		}
+
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		public File path(int index) {
+			return index == SOURCE ? from : to;
+		}
+	}
+
+	/**
+	 * Persistent index file with all entries in order of ordinal, and ordinals sorted by source key and by destination key, so that entries can be found via binary search:
+	 *
+	 * header | int[n] ordinals by source | int[n] ordinals by destination | long[n] data offsets | data (source and destination path of each entry)
+	 */
+	private static class Table {
+
+		public static final Table EMPTY = new Table(null, Position.START, 0);
+
+		public static Table open(File file) {
+			if (!file.exists()) {
+				return EMPTY;
+			}
+
+			FileChannel channel = null;
+			try {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+				ByteBuffer header = read(channel, 0, HEADER_SIZE);
+
+				// rebuild index if the file has been written by a previous version or is corrupted
+				if (header.getInt() == MAGIC) {
+					Position position = new Position(header.getInt(), header.getLong());
+					int count = header.getInt();
+
+					if (count >= 0 && channel.size() >= HEADER_SIZE + 16L * count) {
+						return new Table(channel, position, count);
+					}
+				}
+			} catch (Exception e) {
+				debug.warning(cause("Failed to read history index", e));
+			}
+
+			new Table(channel, Position.START, 0).close();
+			return EMPTY;
+		}
+
+		public final Position position;
+
+		private final FileChannel channel;
+		private final int count;
+
+		private Table(FileChannel channel, Position position, int count) {
+			this.channel = channel;
+			this.position = position;
+			this.count = count;
+		}
+
+		public int size() {
+			return count;
+		}
+
+		private long getDataPosition() {
+			return HEADER_SIZE + 16L * count;
+		}
+
+		public long getDataLength() throws IOException {
+			return channel == null ? 0 : channel.size() - getDataPosition();
+		}
+
+		public Entry get(int ordinal) throws IOException {
+			long offset = getDataPosition() + read(channel, HEADER_SIZE + 8L * count + 8L * ordinal, 8).getLong();
+
+			// read both modified UTF-8 strings at once
+			int fromLength = read(channel, offset, 2).getShort() & 0xFFFF;
+			int toLength = read(channel, offset + 2 + fromLength, 2).getShort() & 0xFFFF;
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(channel, offset, 2 + fromLength + 2 + toLength).array()));
+			return new Entry(ordinal, new File(in.readUTF()), new File(in.readUTF()));
+		}
+
+		public Entry getSorted(int index, int i) throws IOException {
+			return get(read(channel, HEADER_SIZE + 4L * count * index + 4L * i, 4).getInt());
+		}
+
+		/**
+		 * @return position of the first entry with a key that is greater than or equal to the given key
+		 */
+		private int search(int index, String key) throws IOException {
+			int low = 0;
+			int high = count;
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (key(getSorted(index, mid).path(index)).compareTo(key) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @return all entries with a key in the given range in order of ordinal
+		 */
+		public List<Entry> find(int index, String fromKey, String toKey) throws IOException {
+			List<Entry> entries = new ArrayList<Entry>();
+			for (int i = search(index, fromKey), end = search(index, toKey); i < end; i++) {
+				entries.add(getSorted(index, i));
+			}
+			entries.sort(Comparator.comparingInt(Entry::getOrdinal));
+			return entries;
+		}
+
+		public Entry getFirst(int index, String key) throws IOException {
+			int i = search(index, key);
+			if (i < count) {
+				Entry entry = getSorted(index, i);
+				if (key(entry.path(index)).equals(key)) {
+					return entry;
+				}
+			}
+			return null;
+		}
+
+		public Entry getLast(int index, String key) throws IOException {
+			int i = search(index, next(key)) - 1;
+			if (i >= 0) {
+				Entry entry = getSorted(index, i);
+				if (key(entry.path(index)).equals(key)) {
+					return entry;
+				}
+			}
+			return null;
+		}
+
+		public void copyOffsets(DataOutputStream out) throws IOException {
+			for (int i = 0; i < count; i++) {
+				out.writeLong(read(channel, HEADER_SIZE + 8L * count + 8L * i, 8).getLong());
+			}
+		}
+
+		public void copyData(DataOutputStream out) throws IOException {
+			if (channel != null) {
+				Channels.newInputStream(channel.position(getDataPosition())).transferTo(out);
+			}
+		}
+
+		public void close() {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					debug.finest(cause("Failed to close history index", e));
+				}
+			}
+		}
+
+		private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException("Unexpected end of file: " + channel);
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+}
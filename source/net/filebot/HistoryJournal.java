@@ -0,0 +1,426 @@
+package net.filebot;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import net.filebot.History.Element;
+import net.filebot.History.Sequence;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Append-only rename history. Each sequence is appended as one length-prefixed and checksummed record, so the cost of a commit does not depend on the size of the existing history, and readers can stream records without loading the whole file.
+ *
+ * The header keeps track of the committed length, so that partially written records (e.g. process was killed during commit) are never visible to readers and are overwritten by the next commit. All access is synchronized via a separate lock file, so that compaction can atomically replace the journal file.
+ */
+public class HistoryJournal {
+
+	public static final SystemProperty<Integer> COMPACTION_INTERVAL = SystemProperty.of("net.filebot.HistoryJournal.compaction", Integer::parseInt, 1000);
+
+	private static final int MAGIC = 0x46424A32; // FBJ2
+
+	// magic, committed length, appended records since last compaction, total number of elements, number of compactions
+	private static final int HEADER_SIZE = 4 + 8 + 4 + 4 + 4;
+
+	private final File file;
+	private final File lockFile;
+
+	public HistoryJournal(File file) {
+		this.file = file;
+		this.lockFile = new File(file.getPath() + ".lock");
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Import the legacy XML history file if the journal has not been created yet
+	 */
+	public void migrate(File xml) throws IOException {
+		if (file.exists() || !xml.exists()) {
+			return;
+		}
+
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lockChannel.lock()) {
+			if (file.exists()) {
+				return;
+			}
+
+			History history = History.importHistory(Files.newInputStream(xml.toPath()));
+			log.fine(format("Migrate %,d history entries from [%s] to [%s]", history.totalSize(), xml, file));
+
+			append(history.sequences(), false);
+
+			// keep legacy file just in case
+			Files.move(xml.toPath(), new File(xml.getPath() + ".bak").toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * @return total number of elements in the journal
+	 */
+	public int append(Collection<Sequence> sequences) throws IOException {
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lockChannel.lock()) {
+			return append(sequences, true);
+		}
+	}
+
+	private int append(Collection<Sequence> sequences, boolean compact) throws IOException {
+		Header header;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+			header = Header.read(channel);
+
+			// write records after the last committed record
+			long position = header.committed;
+			for (Sequence sequence : sequences) {
+				position += write(channel, encode(sequence), position);
+				header.elements += sequence.elements().size();
+				header.appended++;
+			}
+
+			// make sure records are on disk before the header refers to them
+			channel.force(false);
+
+			header.committed = position;
+			header.write(channel);
+			channel.truncate(position);
+			channel.force(false);
+		}
+
+		if (compact && header.appended >= COMPACTION_INTERVAL.get()) {
+			compactLocked();
+		}
+
+		return header.elements;
+	}
+
+	public History read() throws IOException {
+		History history = new History();
+		read(history::add);
+		return history;
+	}
+
+	/**
+	 * Stream all committed sequences in order
+	 */
+	public void read(Consumer<Sequence> consumer) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				Header header = Header.read(channel);
+				readRecords(channel, header, HEADER_SIZE, record -> consumer.accept(decode(record)));
+			}
+		}
+	}
+
+	/**
+	 * Stream committed sequences that have been appended after the given position
+	 *
+	 * @return position after the last committed sequence or null if the given position is no longer valid (i.e. the journal has been compacted in the meantime)
+	 */
+	public Position read(Position since, Consumer<Sequence> consumer) throws IOException {
+		if (!file.exists()) {
+			return since.offset == 0 ? Position.START : null;
+		}
+
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				Header header = Header.read(channel);
+
+				if (since.offset > 0 && (since.generation != header.generation || since.offset > header.committed)) {
+					return null;
+				}
+
+				readRecords(channel, header, Math.max(since.offset, HEADER_SIZE), record -> consumer.accept(decode(record)));
+				return new Position(header.generation, header.committed);
+			}
+		}
+	}
+
+	/**
+	 * @return file attributes that change whenever records are appended or the journal is compacted, or null if the journal does not exist
+	 */
+	public Object getModificationStamp() throws IOException {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			return asList(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime());
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return total number of elements in the journal
+	 */
+	public int getTotalSize() throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				return Header.read(channel).elements;
+			}
+		}
+	}
+
+	/**
+	 * Rewrite the journal without duplicate sequences (e.g. the same history has been imported multiple times) and replace the existing journal file
+	 */
+	public void compact() throws IOException {
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lockChannel.lock()) {
+			compactLocked();
+		}
+	}
+
+	private void compactLocked() {
+		try {
+			rewrite();
+		} catch (Exception e) {
+			debug.warning(cause("Failed to compact history", e));
+		}
+	}
+
+	private void rewrite() throws IOException {
+		File compact = new File(file.getPath() + ".compact");
+
+		try {
+			Header compactHeader = new Header();
+			Set<String> keys = new HashSet<String>();
+
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ); FileChannel output = FileChannel.open(compact.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				Header header = Header.read(channel);
+				long[] position = { HEADER_SIZE };
+
+				readRecords(channel, header, HEADER_SIZE, record -> {
+					if (keys.add(sha1(record))) {
+						position[0] += write(output, record, position[0]);
+						compactHeader.elements += decode(record).elements().size();
+					}
+				});
+
+				compactHeader.committed = position[0];
+				compactHeader.generation = header.generation + 1;
+				compactHeader.write(output);
+				output.force(false);
+
+				log.finest(format("Compact history: %,d sequences [%s => %s]", keys.size(), formatSize(header.committed), formatSize(compactHeader.committed)));
+			}
+
+			Files.move(compact.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (Exception e) {
+			compact.delete();
+			throw e;
+		}
+	}
+
+	private FileChannel openLockChannel() throws IOException {
+		return FileChannel.open(lockFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+	}
+
+	private void readRecords(FileChannel channel, Header header, long start, RecordConsumer consumer) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(start)), BUFFER_SIZE));
+		CRC32 crc = new CRC32();
+
+		for (long position = start; position < header.committed;) {
+			byte[] record = new byte[in.readInt()];
+			in.readFully(record);
+
+			crc.reset();
+			crc.update(record, 0, record.length);
+			if ((int) crc.getValue() != in.readInt()) {
+				throw new IOException(String.format("Bad record at offset %,d [%s]", position, file));
+			}
+
+			consumer.accept(record);
+			position += record.length + 8;
+		}
+	}
+
+	private static int write(FileChannel channel, byte[] record, long position) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+
+		ByteBuffer buffer = ByteBuffer.allocate(record.length + 8);
+		buffer.putInt(record.length).put(record).putInt((int) crc.getValue()).flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+
+		return buffer.limit();
+	}
+
+	private static byte[] encode(Sequence sequence) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeLong(sequence.date().getTime());
+		out.writeInt(sequence.elements().size());
+		for (Element it : sequence.elements()) {
+			out.writeUTF(it.dir().getPath());
+			out.writeUTF(it.from());
+			out.writeUTF(it.to());
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static Sequence decode(byte[] record) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+		Date date = new Date(in.readLong());
+		int size = in.readInt();
+
+		List<Element> elements = new ArrayList<Element>(size);
+		for (int i = 0; i < size; i++) {
+			File dir = new File(in.readUTF());
+			String from = in.readUTF();
+			String to = in.readUTF();
+			elements.add(new Element(from, to, dir));
+		}
+
+		return new Sequence(date, elements);
+	}
+
+	private static String sha1(byte[] record) throws IOException {
+		try {
+			return new BigInteger(1, MessageDigest.getInstance("SHA-1").digest(record)).toString(16);
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface RecordConsumer {
+
+		void accept(byte[] record) throws IOException;
+	}
+
+	/**
+	 * Offset after the last record that has been read from a given generation of the journal
+	 */
+	public static class Position {
+
+		public static final Position START = new Position(0, 0);
+
+		private final int generation;
+		private final long offset;
+
+		public Position(int generation, long offset) {
+			this.generation = generation;
+			this.offset = offset;
+		}
+
+		public int getGeneration() {
+			return generation;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Position) {
+				Position other = (Position) obj;
+				return generation == other.generation && offset == other.offset;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(offset) * 31 + generation;
+		}
+
+		@Override
+		public String toString() {
+			return generation + ":" + offset;
+		}
+	}
+
+	private static class Header {
+
+		public long committed = HEADER_SIZE;
+		public int appended = 0;
+		public int elements = 0;
+		public int generation = 0;
+
+		public static Header read(FileChannel channel) throws IOException {
+			Header header = new Header();
+
+			// new journal
+			if (channel.size() == 0) {
+				return header;
+			}
+
+			ByteBuffer buffer = read(channel, 0, HEADER_SIZE);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Bad header: " + new String(buffer.array(), 0, 4, US_ASCII));
+			}
+
+			header.committed = buffer.getLong();
+			header.appended = buffer.getInt();
+			header.elements = buffer.getInt();
+			header.generation = buffer.getInt();
+			return header;
+		}
+
+		private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException("Bad header: " + channel);
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+
+		public void write(FileChannel channel) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+			buffer.putInt(MAGIC).putLong(committed).putInt(appended).putInt(elements).putInt(generation).flip();
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, buffer.position());
+			}
+		}
+	}
+
+}
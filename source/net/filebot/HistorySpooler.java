@@ -1,23 +1,23 @@
 package net.filebot;
 
-import static java.nio.channels.Channels.*;
 import static net.filebot.Logging.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
-import org.apache.commons.io.input.CloseShieldInputStream;
-import org.apache.commons.io.output.CloseShieldOutputStream;
-
 import net.filebot.History.Element;
+import net.filebot.History.Sequence;
 
 public final class HistorySpooler {
 
@@ -31,26 +31,39 @@ public final class HistorySpooler {
 		Runtime.getRuntime().addShutdownHook(new Thread(HistorySpooler.getInstance()::commit, "HistorySpoolerShutdownHook")); // commit session history on shutdown
 	}
 
-	private final File persistentHistoryFile = ApplicationFolder.AppData.resolve("history.xml");
+	private final File legacyHistoryFile = ApplicationFolder.AppData.resolve("history.xml");
+	private final HistoryJournal persistentHistory = new HistoryJournal(ApplicationFolder.AppData.resolve("history.journal"));
+	private final HistoryIndex persistentHistoryIndex = new HistoryIndex(persistentHistory, ApplicationFolder.AppData.resolve("history.index"));
 
 	private int sessionHistoryTotalSize = 0;
 	private int persistentHistoryTotalSize = -1;
 	private boolean persistentHistoryEnabled = true;
 
 	private final History sessionHistory = new History();
+	private final HistoryIndex sessionHistoryIndex = new HistoryIndex();
 
-	public synchronized History getCompleteHistory() throws IOException {
-		if (persistentHistoryFile.length() <= 0) {
-			return new History(sessionHistory.sequences());
+	private void migrate() {
+		try {
+			persistentHistory.migrate(legacyHistoryFile);
+		} catch (Exception e) {
+			debug.log(Level.SEVERE, "Failed to migrate history file", e);
 		}
+	}
 
-		try (FileChannel channel = FileChannel.open(persistentHistoryFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-			try (FileLock lock = channel.lock()) {
-				History history = History.importHistory(new CloseShieldInputStream(newInputStream(channel))); // keep JAXB from closing the stream
-				history.addAll(sessionHistory.sequences());
-				return history;
-			}
-		}
+	public synchronized History getCompleteHistory() throws IOException {
+		History history = new History();
+		readCompleteHistory(history::add);
+		return history;
+	}
+
+	/**
+	 * Stream persistent history and session history in order without loading the complete history into memory
+	 */
+	public synchronized void readCompleteHistory(Consumer<Sequence> consumer) throws IOException {
+		migrate();
+
+		persistentHistory.read(consumer);
+		sessionHistory.sequences().forEach(consumer);
 	}
 
 	public synchronized void commit() {
@@ -59,34 +72,107 @@ public final class HistorySpooler {
 		}
 
 		try {
-			try (FileChannel channel = FileChannel.open(persistentHistoryFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-				try (FileLock lock = channel.lock()) {
-					History history = new History();
-
-					// load existing history from previous sessions
-					if (channel.size() > 0) {
-						try {
-							channel.position(0);
-							history = History.importHistory(new CloseShieldInputStream(newInputStream(channel))); // keep JAXB from closing the stream
-						} catch (Exception e) {
-							debug.log(Level.SEVERE, "Failed to read history file", e);
-						}
-					}
+			migrate();
 
-					// write new combined history
-					history.addAll(sessionHistory.sequences());
+			// append new records only, so the cost of each commit does not depend on the size of the existing history
+			persistentHistoryTotalSize = persistentHistory.append(sessionHistory.sequences());
+			sessionHistory.clear();
+			sessionHistoryIndex.clear();
+		} catch (Exception e) {
+			debug.log(Level.SEVERE, "Failed to write history file", e);
+		}
+	}
 
-					channel.position(0);
-					History.exportHistory(history, new CloseShieldOutputStream(newOutputStream(channel))); // keep JAXB from closing the stream
-					channel.truncate(channel.position());
+	private HistoryIndex getPersistentHistoryIndex() throws IOException {
+		migrate();
 
-					sessionHistory.clear();
-					persistentHistoryTotalSize = history.totalSize();
+		// catch up with sequences that have been committed since the last lookup
+		persistentHistoryIndex.refresh();
+		return persistentHistoryIndex;
+	}
+
+	/**
+	 * @return the most recent destination path of the given source path or null
+	 */
+	public synchronized File getDestination(File source) throws IOException {
+		return getDestination(source, getPersistentHistoryIndex());
+	}
+
+	private File getDestination(File source, HistoryIndex persistentHistoryIndex) throws IOException {
+		File destination = sessionHistoryIndex.getDestination(source);
+		if (destination != null) {
+			return destination;
+		}
+		return persistentHistoryIndex.getDestination(source);
+	}
+
+	/**
+	 * @return the original path of the given file or null
+	 */
+	public synchronized File getOriginalPath(File destination) throws IOException {
+		HistoryIndex persistentHistoryIndex = getPersistentHistoryIndex();
+
+		for (HistoryIndex index : new HistoryIndex[] { sessionHistoryIndex, persistentHistoryIndex }) {
+			for (File source : index.getSources(destination)) {
+				// make sure that the file has not been renamed again since
+				if (destination.equals(getDestination(source, persistentHistoryIndex))) {
+					return source;
 				}
 			}
-		} catch (Exception e) {
-			debug.log(Level.SEVERE, "Failed to write history file", e);
 		}
+		return null;
+	}
+
+	/**
+	 * @return rename map of all history elements where either the original path or the destination path is equal to or a descendant of one of the given paths
+	 */
+	public synchronized Map<File, File> getRenameMap(Collection<File> paths) throws IOException {
+		HistoryIndex persistentHistoryIndex = getPersistentHistoryIndex();
+
+		Set<File> sources = new LinkedHashSet<File>(persistentHistoryIndex.findSources(paths));
+		sources.addAll(sessionHistoryIndex.findSources(paths));
+
+		Map<File, File> renameMap = new LinkedHashMap<File, File>(sources.size());
+		for (File source : sources) {
+			renameMap.put(source, getDestination(source, persistentHistoryIndex));
+		}
+		return renameMap;
+	}
+
+	/**
+	 * @return complete rename map that uses the history index for point queries and only reads the complete history if necessary
+	 */
+	public synchronized Map<File, File> getCompleteRenameMap() {
+		return new AbstractMap<File, File>() {
+
+			private Map<File, File> completeRenameMap;
+
+			@Override
+			public File get(Object key) {
+				try {
+					return key instanceof File ? getDestination((File) key) : null;
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return get(key) != null;
+			}
+
+			@Override
+			public Set<Entry<File, File>> entrySet() {
+				if (completeRenameMap == null) {
+					try {
+						completeRenameMap = getCompleteHistory().getRenameMap();
+					} catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return completeRenameMap.entrySet();
+			}
+		};
 	}
 
 	public synchronized void append(Map<File, File> elements) {
@@ -107,12 +193,17 @@ public final class HistorySpooler {
 
 		if (sequence.size() > 0) {
 			sessionHistory.add(sequence); // append to session history
+			sessionHistoryIndex.add(sessionHistory.sequences().get(sessionHistory.sequences().size() - 1));
 			sessionHistoryTotalSize += sequence.size();
 		}
 	}
 
 	public synchronized void append(History importHistory) {
 		sessionHistory.merge(importHistory);
+
+		// rebuild session index
+		sessionHistoryIndex.clear();
+		sessionHistory.sequences().forEach(sessionHistoryIndex::add);
 	}
 
 	public synchronized History getSessionHistory() {
@@ -35,6 +35,7 @@ import org.w3c.dom.Document;
 
 import net.filebot.cli.ArgumentBean;
 import net.filebot.cli.ArgumentProcessor;
+import net.filebot.cli.CmdlineServer;
 import net.filebot.format.ExpressionFormat;
 import net.filebot.platform.mac.MacAppUtilities;
 import net.filebot.platform.windows.WinAppUtilities;
@@ -111,6 +112,12 @@ public class Main {
 			// initialize history spooler
 			HistorySpooler.getInstance().setPersistentHistoryEnabled(useRenameHistory());
 
+			// server mode => process CLI jobs until the process is killed
+			if (args.runServer()) {
+				new CmdlineServer().start();
+				return;
+			}
+
 			// CLI mode => run command-line interface and then exit
 			if (args.runCLI()) {
 				int status = new ArgumentProcessor().run(args);
@@ -372,7 +379,7 @@ public class Main {
 		ApplicationFolder.TemporaryFiles.get().mkdirs();
 		ApplicationFolder.AppData.get().mkdirs();
 
-		if (args.runCLI()) {
+		if (args.runCLI() || args.runServer()) {
 			// CLI logging settings
 			log.setLevel(args.getLogLevel());
 		} else {
@@ -0,0 +1,252 @@
+package net.filebot;
+
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import net.filebot.hash.Hash;
+import net.filebot.hash.HashType;
+import net.filebot.hash.VerificationJournal;
+import net.filebot.util.StorageType;
+import net.filebot.util.SystemProperty;
+import net.filebot.util.Throughput;
+
+/**
+ * Copy large files to a temporary sibling in fixed-size chunks and record the checksum of each chunk in a checkpoint journal, so that an interrupted copy can be resumed from the last verified offset. The temporary file is atomically renamed to the destination path once all data has been copied (and optionally verified).
+ */
+public class ResumableCopy {
+
+	/**
+	 * Resumable copies go through the Java heap and fsync each checkpoint, which is much slower than copy-on-write clones or in-kernel copies, so this mode must be enabled explicitly
+	 */
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.ResumableCopy", Boolean::parseBoolean, false);
+	public static final SystemProperty<Long> THRESHOLD = SystemProperty.of("net.filebot.ResumableCopy.threshold", Long::parseLong, 1000 * ONE_MEGABYTE);
+
+	/**
+	 * Read back and compare chunk checksums after copying. This is a weak check, because the data is most likely read back from the page cache and not from the storage device, so it only catches errors that happen in between reading the source and writing the destination.
+	 */
+	public static final SystemProperty<Boolean> VERIFY = SystemProperty.of("net.filebot.ResumableCopy.verify", Boolean::parseBoolean, false);
+
+	private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final long CHECKPOINT_SIZE = 256 * ONE_MEGABYTE;
+	private static final long CHECKPOINT_MILLIS = 5000;
+
+	private static final HashType CHUNK_HASH = HashType.SFV;
+
+	public static boolean isSupported(File source) {
+		return ENABLED.get() && source.isFile() && source.length() >= THRESHOLD.get();
+	}
+
+	public static boolean isCrossDevice(File source, File destination) {
+		return !Objects.equals(StorageType.getFileStore(source), StorageType.getFileStore(destination));
+	}
+
+	public static File copy(File source, File destination) throws IOException {
+		return new ResumableCopy(source, destination).execute(VERIFY.get());
+	}
+
+	public static File move(File source, File destination) throws IOException {
+		new ResumableCopy(source, destination).execute(VERIFY.get());
+
+		// keep file attributes just like a regular move
+		destination.setLastModified(source.lastModified());
+
+		// delete source only after all data has been copied and verified
+		Files.delete(source.toPath());
+		return destination;
+	}
+
+	private final File source;
+	private final File destination;
+	private final File part;
+
+	private final Throughput throughput = Throughput.COPY;
+
+	public ResumableCopy(File source, File destination) {
+		this.source = source;
+		this.destination = destination;
+		this.part = new File(destination.getParentFile(), '.' + destination.getName() + ".part");
+	}
+
+	public File getPartFile() {
+		return part;
+	}
+
+	public File execute(boolean verify) throws IOException {
+		long length = source.length();
+		VerificationJournal journal = openJournal();
+
+		try {
+			long offset = resume(journal, length);
+			if (offset < 0) {
+				// start over
+				journal.delete();
+				journal = openJournal();
+				offset = 0;
+			} else if (offset > 0) {
+				log.fine(format("Resume copy at %s of %s [%s]", formatSize(offset), formatSize(length), part));
+			}
+
+			throughput.expect(length);
+			throughput.update(offset);
+
+			copy(journal, offset, length);
+
+			if (verify) {
+				verify(journal, length);
+			}
+
+			Files.move(part.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			journal.delete();
+		} finally {
+			journal.close();
+		}
+
+		return destination;
+	}
+
+	protected VerificationJournal openJournal() throws IOException {
+		File folder = ApplicationFolder.AppData.resolve("journal");
+		createFolders(folder);
+
+		File file = new File(folder, md5(part.getAbsolutePath()) + ".copy");
+		String header = String.join("\t", CHUNK_HASH.name(), String.valueOf(CHUNK_SIZE), String.valueOf(source.length()), String.valueOf(source.lastModified()), source.getAbsolutePath(), part.getAbsolutePath());
+
+		return new VerificationJournal(file, header);
+	}
+
+	/**
+	 * @return offset to resume from or -1 if the partial file can't be used
+	 */
+	private long resume(VerificationJournal journal, long length) throws IOException {
+		int chunks = journal.size();
+		if (chunks == 0) {
+			return 0;
+		}
+
+		long offset = Math.min((long) chunks * CHUNK_SIZE, length);
+		if (!part.exists() || part.length() < offset) {
+			return -1;
+		}
+
+		// make sure that the last checkpoint matches the data in the partial file
+		try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+			long position = (long) (chunks - 1) * CHUNK_SIZE;
+
+			if (!journal.get(chunks - 1).hash.equals(hash(read(channel, buffer, position, (int) (offset - position))))) {
+				debug.fine(format("Discard partial file [%s]", part));
+				return -1;
+			}
+		}
+
+		return offset;
+	}
+
+	private void copy(VerificationJournal journal, long offset, long length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ); FileChannel out = FileChannel.open(part.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+			// drop any data after the last checkpoint
+			out.truncate(offset);
+
+			List<String> pending = new ArrayList<String>();
+			long lastCheckpoint = System.currentTimeMillis();
+
+			for (long position = offset; position < length; position += CHUNK_SIZE) {
+				int size = (int) Math.min(CHUNK_SIZE, length - position);
+
+				read(in, buffer, position, size);
+				pending.add(hash(buffer));
+
+				while (buffer.hasRemaining()) {
+					out.write(buffer, position + buffer.position());
+				}
+				throughput.update(size);
+
+				if (pending.size() * (long) CHUNK_SIZE >= CHECKPOINT_SIZE || System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_MILLIS) {
+					checkpoint(journal, out, pending);
+					lastCheckpoint = System.currentTimeMillis();
+				}
+
+				// make this long-running operation interruptible
+				if (Thread.interrupted()) {
+					checkpoint(journal, out, pending);
+					throw new InterruptedIOException();
+				}
+			}
+
+			checkpoint(journal, out, pending);
+		}
+	}
+
+	private void checkpoint(VerificationJournal journal, FileChannel out, List<String> pending) throws IOException {
+		// data must be on disk before the checkpoint refers to it
+		out.force(false);
+
+		for (String hash : pending) {
+			journal.record(journal.size(), hash, null);
+		}
+		journal.checkpoint();
+
+		pending.clear();
+	}
+
+	private void verify(VerificationJournal journal, long length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+		try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() != length) {
+				throw new IOException(String.format("Verification failed: %s [size mismatch: %,d vs %,d]", destination, channel.size(), length));
+			}
+
+			for (int i = 0; i < journal.size(); i++) {
+				long position = (long) i * CHUNK_SIZE;
+				String hash = hash(read(channel, buffer, position, (int) Math.min(CHUNK_SIZE, length - position)));
+				String expected = journal.get(i).hash;
+
+				if (!hash.equals(expected)) {
+					// corrupted data can't be resumed
+					journal.delete();
+					part.delete();
+					throw new IOException(String.format("Verification failed: %s [chunk %,d hash mismatch: %s vs %s]", destination, i, hash, expected));
+				}
+			}
+		}
+
+		log.fine(format("Verified %s [%s]", formatSize(length), destination));
+	}
+
+	private static ByteBuffer read(FileChannel channel, ByteBuffer buffer, long position, int size) throws IOException {
+		buffer.clear();
+		buffer.limit(size);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+	private static String hash(ByteBuffer buffer) {
+		Hash hash = CHUNK_HASH.newHash();
+		hash.update(buffer.array(), buffer.position(), buffer.remaining());
+		return hash.digest();
+	}
+
+}
@@ -2,6 +2,7 @@ package net.filebot;
 
 import static java.util.Arrays.*;
 import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
 import static net.filebot.UserFiles.*;
 
 import java.io.File;
@@ -21,6 +22,13 @@ public enum StandardRenameAction implements RenameAction {
 
 		@Override
 		public File rename(File from, File to) throws Exception {
+			// large files that are moved across file systems are copied via temporary file and can be resumed if interrupted
+			if (ResumableCopy.isSupported(from) && ResumableCopy.isCrossDevice(from, FileUtilities.resolve(from, to))) {
+				File dest = FileUtilities.resolveDestination(from, to);
+				log.finest(format("[%s] %s", CopyEngine.RESUMABLE, dest));
+				return ResumableCopy.move(from, dest);
+			}
+
 			return FileUtilities.moveRename(from, to);
 		}
 	},
@@ -29,7 +37,17 @@ public enum StandardRenameAction implements RenameAction {
 
 		@Override
 		public File rename(File from, File to) throws Exception {
-			return FileUtilities.copyAs(from, to);
+			if (from.isDirectory()) {
+				return FileUtilities.copyAs(from, to);
+			}
+
+			File dest = FileUtilities.resolveDestination(from, to);
+
+			// copy file via reflink, copy_file_range or transferTo
+			CopyEngine strategy = CopyEngine.copy(from, dest);
+			log.finest(format("[%s] %s", strategy, dest));
+
+			return dest;
 		}
 	},
 
@@ -87,6 +105,13 @@ public enum StandardRenameAction implements RenameAction {
 		public File rename(File from, File to) throws Exception {
 			File dest = FileUtilities.resolveDestination(from, to);
 
+			// clone files in-process and only spawn cp for folders or if libc is not available
+			if (from.isFile() && CopyEngine.isNativeSupported()) {
+				CopyEngine.clone(from, dest);
+				log.finest(format("[%s] %s", CopyEngine.REFLINK, dest));
+				return dest;
+			}
+
 			// clonefile or reflink requires filesystem that supports copy-on-write (e.g. apfs or btrfs)
 			ProcessBuilder process = new ProcessBuilder();
 
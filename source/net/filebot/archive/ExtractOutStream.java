@@ -6,6 +6,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import net.filebot.util.Throughput;
 import net.sf.sevenzipjbinding.ISequentialOutStream;
 import net.sf.sevenzipjbinding.SevenZipException;
 
@@ -24,6 +25,7 @@ class ExtractOutStream implements ISequentialOutStream, Closeable {
 	public int write(byte[] data) throws SevenZipException {
 		try {
 			out.write(data);
+			Throughput.EXTRACT.update(data.length);
 		} catch (IOException e) {
 			throw new SevenZipException(e);
 		}
@@ -87,6 +87,9 @@ public class ArgumentBean {
 	@Option(name = "-check", usage = "Create / Check verification files")
 	public boolean check;
 
+	@Option(name = "-find-duplicates", usage = "Find identical files")
+	public boolean findDuplicates = false;
+
 	@Option(name = "--output", usage = "Output path", metaVar = "path")
 	public String output;
 
@@ -117,6 +120,9 @@ public class ArgumentBean {
 	@Option(name = "--log-lock", usage = "Lock log file", metaVar = "[yes, no]", handler = ExplicitBooleanOptionHandler.class)
 	public boolean logLock = true;
 
+	@Option(name = "-server", usage = "Run as server and process jobs submitted by clients")
+	public boolean server = false;
+
 	@Option(name = "-r", usage = "Recursively process folders")
 	public boolean recursive = false;
 
@@ -148,7 +154,11 @@ public class ArgumentBean {
 	public List<String> arguments = new ArrayList<String>();
 
 	public boolean runCLI() {
-		return rename || getSubtitles || check || list || mediaInfo || revert || extract || script != null;
+		return rename || getSubtitles || check || findDuplicates || list || mediaInfo || revert || extract || script != null;
+	}
+
+	public boolean runServer() {
+		return server;
 	}
 
 	public boolean isInteractive() {
@@ -186,7 +196,7 @@ public class ArgumentBean {
 			}
 
 			// resolve relative paths
-			File file = new File(it);
+			File file = resolve(it);
 
 			// since we don't want to follow symlinks, we need to take the scenic route through the Path class
 			try {
@@ -260,11 +270,11 @@ public class ArgumentBean {
 	}
 
 	public File getOutputPath() {
-		return output == null ? null : new File(output);
+		return output == null ? null : resolve(output);
 	}
 
 	public File getAbsoluteOutputFolder() throws Exception {
-		return output == null ? null : new File(output).getCanonicalFile();
+		return output == null ? null : resolve(output).getCanonicalFile();
 	}
 
 	public SubtitleFormat getSubtitleOutputFormat() {
@@ -283,6 +293,11 @@ public class ArgumentBean {
 		});
 	}
 
+	public HashType getDuplicateHashType() {
+		// support --format SHA256
+		return optional(format).map(k -> getHashTypeByExtension(k)).orElse(HashType.SHA1);
+	}
+
 	public Charset getEncoding() {
 		return encoding == null ? null : Charset.forName(encoding);
 	}
@@ -299,10 +314,23 @@ public class ArgumentBean {
 			return file;
 		}
 
-		// by default resolve relative paths against {applicationFolder}/logs/{logFile}
+		// by default resolve relative paths against {applicationFolder}/logs/{logFile} (independent of the working directory of the server or the client)
 		return ApplicationFolder.AppData.resolve("logs/" + logFile);
 	}
 
+	/**
+	 * @return script source with local script files resolved against the working directory
+	 */
+	public String getScript() {
+		if (script != null && workingDirectory != null && !new File(script).isAbsolute()) {
+			File file = resolve(script);
+			if (file.isFile()) {
+				return file.getPath();
+			}
+		}
+		return script;
+	}
+
 	public boolean isStrict() {
 		return !nonStrict;
 	}
@@ -340,14 +368,35 @@ public class ArgumentBean {
 	}
 
 	private final String[] args;
+	private final File workingDirectory;
 
 	public ArgumentBean(String... args) throws CmdLineException {
+		this(null, args);
+	}
+
+	/**
+	 * @param workingDirectory
+	 *            resolve relative file arguments against the given folder instead of the current working directory
+	 */
+	public ArgumentBean(File workingDirectory, String... args) throws CmdLineException {
 		this.args = args;
+		this.workingDirectory = workingDirectory;
 
 		CmdLineParser parser = new CmdLineParser(this);
 		parser.parseArgument(args);
 	}
 
+	/**
+	 * @return the given path resolved against the working directory (i.e. the working directory of the client if arguments have been sent to a server)
+	 */
+	private File resolve(String path) {
+		File file = new File(path);
+		if (workingDirectory != null && !file.isAbsolute()) {
+			return new File(workingDirectory, path);
+		}
+		return file;
+	}
+
 	public String[] getArgumentArray() {
 		return args.clone();
 	}
@@ -14,6 +14,8 @@ import java.util.stream.Stream;
 import javax.script.Bindings;
 import javax.script.SimpleBindings;
 
+import net.filebot.util.FileUtilities.ExtensionFileFilter;
+
 public class ArgumentProcessor {
 
 	public int run(ArgumentBean args) {
@@ -76,6 +78,11 @@ public class ArgumentProcessor {
 			}
 		}
 
+		// find identical files
+		if (args.findDuplicates) {
+			return cli.findDuplicates(args.getFiles(true), args.getFileFilter(), args.getDuplicateHashType()).isEmpty() ? 1 : 0;
+		}
+
 		// revert files
 		if (args.revert) {
 			return cli.revert(args.getFiles(false), args.getFileFilter(), args.getRenameAction()).isEmpty() ? 1 : 0;
@@ -98,7 +105,7 @@ public class ArgumentProcessor {
 
 		if (args.check) {
 			// check verification file
-			if (containsOnly(files, VERIFICATION_FILES)) {
+			if (containsOnly(files, ExtensionFileFilter.union(VERIFICATION_FILES, TORRENT_FILES))) {
 				if (!cli.check(files)) {
 					throw new Exception("Data corruption detected"); // one or more hashes do not match
 				}
@@ -122,9 +129,10 @@ public class ArgumentProcessor {
 		bindings.put(ScriptShell.SHELL_ARGS_BINDING_NAME, args);
 		bindings.put(ScriptShell.ARGV_BINDING_NAME, args.getFiles(false));
 
-		ScriptSource source = ScriptSource.findScriptProvider(args.script);
-		ScriptShell shell = new ScriptShell(source.getScriptProvider(args.script), cli, args.defines);
-		shell.runScript(source.accept(args.script), bindings);
+		String script = args.getScript();
+		ScriptSource source = ScriptSource.findScriptProvider(script);
+		ScriptShell shell = new ScriptShell(source.getScriptProvider(script), cli, args.defines);
+		shell.runScript(source.accept(script), bindings);
 	}
 
 }
@@ -0,0 +1,76 @@
+package net.filebot.cli;
+
+import static net.filebot.cli.CmdlineServer.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import net.filebot.Main;
+
+/**
+ * Thin client that forwards CLI arguments to a running {@link CmdlineServer} and prints the console output of the job. Arguments are processed in-process if no server is running.
+ */
+public class CmdlineClient {
+
+	public static void main(String[] args) {
+		try {
+			System.exit(run(args));
+		} catch (ConnectException e) {
+			// server is not running
+			Main.main(args);
+		} catch (Exception e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+	}
+
+	public static int run(String[] args) throws IOException {
+		File serverFile = getServerFile();
+		if (!serverFile.exists()) {
+			throw new ConnectException("Server not running: " + serverFile);
+		}
+
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(serverFile.toPath())) {
+			properties.load(in);
+		}
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(properties.getProperty("port")))) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			writeString(out, properties.getProperty("token"));
+			writeString(out, new File("").getAbsolutePath());
+			out.writeInt(args.length);
+			for (String it : args) {
+				writeString(out, it);
+			}
+			out.flush();
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while (true) {
+				int type = in.readByte();
+				if (type == EXIT) {
+					return in.readInt();
+				}
+
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+
+				PrintStream console = type == STDERR ? System.err : System.out;
+				console.write(bytes);
+				console.flush();
+			}
+		}
+	}
+
+}
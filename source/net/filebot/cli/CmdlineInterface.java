@@ -39,6 +39,8 @@ public interface CmdlineInterface {
 
 	File compute(Collection<File> files, File output, HashType hash, Charset encoding) throws Exception;
 
+	Map<String, List<File>> findDuplicates(Collection<File> files, FileFilter filter, HashType hash) throws Exception;
+
 	Stream<String> fetchEpisodeList(EpisodeListProvider db, String query, ExpressionFormat format, ExpressionFilter filter, SortOrder order, Locale locale, boolean strict) throws Exception;
 
 	Stream<String> getMediaInfo(Collection<File> files, FileFilter filter, ExpressionFormat format) throws Exception;
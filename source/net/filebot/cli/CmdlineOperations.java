@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,6 +36,10 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -49,11 +54,14 @@ import net.filebot.format.ExpressionFileFormat;
 import net.filebot.format.ExpressionFilter;
 import net.filebot.format.ExpressionFormat;
 import net.filebot.format.MediaBindingBean;
+import net.filebot.hash.DuplicateFinder;
 import net.filebot.hash.HashType;
 import net.filebot.hash.VerificationFileReader;
 import net.filebot.hash.VerificationFileWriter;
+import net.filebot.hash.VerificationJournal;
 import net.filebot.media.AutoDetection;
 import net.filebot.media.AutoDetection.Group;
+import net.filebot.media.AutoDetection.GroupConsumer;
 import net.filebot.media.AutoDetection.Type;
 import net.filebot.media.VideoQuality;
 import net.filebot.media.XattrMetaInfoProvider;
@@ -62,8 +70,13 @@ import net.filebot.similarity.EpisodeMatcher;
 import net.filebot.similarity.Match;
 import net.filebot.subtitle.SubtitleFormat;
 import net.filebot.subtitle.SubtitleNaming;
+import net.filebot.torrent.Torrent;
+import net.filebot.torrent.TorrentVerifier;
+import net.filebot.util.DefaultThreadFactory;
 import net.filebot.util.EntryList;
 import net.filebot.util.FileUtilities.ParentFilter;
+import net.filebot.util.SystemProperty;
+import net.filebot.util.Throughput;
 import net.filebot.vfs.FileInfo;
 import net.filebot.vfs.MemoryFile;
 import net.filebot.vfs.SimpleFileInfo;
@@ -84,6 +97,12 @@ import net.filebot.web.VideoHashSubtitleService;
 
 public class CmdlineOperations implements CmdlineInterface {
 
+	public static final SystemProperty<Boolean> PARALLEL_RENAME = SystemProperty.of("net.filebot.cli.rename.parallel", Boolean::parseBoolean, false);
+	public static final SystemProperty<Boolean> PIPELINE_RENAME = SystemProperty.of("net.filebot.cli.rename.pipeline", Boolean::parseBoolean, false);
+
+	private static final int PIPELINE_CAPACITY = 1000;
+	private static final int PARALLEL_FORMAT_THRESHOLD = 20;
+
 	@Override
 	public List<File> rename(Collection<File> files, RenameAction action, ConflictAction conflict, File output, ExpressionFileFormat format, Datasource db, String query, SortOrder order, ExpressionFilter filter, Locale locale, boolean strict, ExecCommand exec) throws Exception {
 		// movie mode
@@ -110,27 +129,36 @@ public class CmdlineOperations implements CmdlineInterface {
 		AutoDetection auto = new AutoDetection(files, false, locale);
 		List<File> results = new ArrayList<File>();
 
-		for (Entry<Group, Set<File>> it : auto.group().entrySet()) {
-			if (it.getKey().types().length == 1) {
-				for (Type key : it.getKey().types()) {
-					switch (key) {
-					case Movie:
-						results.addAll(renameMovie(it.getValue(), action, conflict, output, format, TheMovieDB, query, filter, locale, strict, exec));
-						break;
-					case Series:
-						results.addAll(renameSeries(it.getValue(), action, conflict, output, format, TheTVDB, query, order, filter, locale, strict, exec));
-						break;
-					case Anime:
-						results.addAll(renameSeries(it.getValue(), action, conflict, output, format, AniDB, query, order, filter, locale, strict, exec));
-						break;
-					case Music:
-						results.addAll(renameMusic(it.getValue(), action, conflict, output, format, asList(MediaInfoID3, AcoustID), exec)); // prefer existing ID3 tags and use acoustid only when necessary
-						break;
+		GroupConsumer renameGroups = groups -> {
+			for (Entry<Group, Set<File>> it : groups.entrySet()) {
+				if (it.getKey().types().length == 1) {
+					for (Type key : it.getKey().types()) {
+						switch (key) {
+						case Movie:
+							results.addAll(renameMovie(it.getValue(), action, conflict, output, format, TheMovieDB, query, filter, locale, strict, exec));
+							break;
+						case Series:
+							results.addAll(renameSeries(it.getValue(), action, conflict, output, format, TheTVDB, query, order, filter, locale, strict, exec));
+							break;
+						case Anime:
+							results.addAll(renameSeries(it.getValue(), action, conflict, output, format, AniDB, query, order, filter, locale, strict, exec));
+							break;
+						case Music:
+							results.addAll(renameMusic(it.getValue(), action, conflict, output, format, asList(MediaInfoID3, AcoustID), exec)); // prefer existing ID3 tags and use acoustid only when necessary
+							break;
+						}
 					}
+				} else {
+					debug.warning(format("Failed to process group: %s => %s", it.getKey(), it.getValue()));
 				}
-			} else {
-				debug.warning(format("Failed to process group: %s => %s", it.getKey(), it.getValue()));
 			}
+		};
+
+		if (PIPELINE_RENAME.get()) {
+			// start renaming as soon as all files of a top-level folder have been detected
+			auto.group(PIPELINE_CAPACITY, renameGroups);
+		} else {
+			renameGroups.accept(auto.group());
 		}
 
 		if (results.isEmpty()) {
@@ -560,79 +588,91 @@ public class CmdlineOperations implements CmdlineInterface {
 		// map old files to new paths by applying formatting and validating filenames
 		Map<File, File> renameMap = new LinkedHashMap<File, File>();
 
-		for (Match<File, ?> match : matches) {
-			File file = match.getValue();
-			Object object = match.getCandidate();
-			String destinationPath = format != null ? format.format(new MediaBindingBean(object, file, getContext(matches))) : validateFileName(object.toString());
+		if (format == null) {
+			for (Match<File, ?> match : matches) {
+				renameMap.put(match.getValue(), getDestinationFile(match.getValue(), validateFileName(match.getCandidate().toString()), outputDir));
+			}
+			return renameMap;
+		}
+
+		Map<File, Object> context = getContext(matches);
+		List<MediaBindingBean> bindings = matches.stream().map(it -> new MediaBindingBean(it.getCandidate(), it.getValue(), context)).collect(toList());
 
-			renameMap.put(file, getDestinationFile(file, destinationPath, outputDir));
+		// retrieve media info and online meta info for all matches at once so that formatting doesn't block on I/O
+		try {
+			MediaBindingBean.prefetch(bindings, format.getBindingNames());
+		} catch (Exception e) {
+			debug.warning(cause("Failed to prefetch bindings", e));
 		}
 
-		return renameMap;
-	}
+		if (matches.size() >= PARALLEL_FORMAT_THRESHOLD && getPreferredThreadPoolSize() > 1) {
+			return formatMatchesParallel(matches, bindings, format, outputDir);
+		}
 
-	protected List<File> renameAll(Map<File, File> renameMap, RenameAction renameAction, ConflictAction conflictAction, List<Match<File, ?>> matches, ExecCommand exec) throws Exception {
-		if (renameMap.isEmpty()) {
-			throw new CmdlineException("Failed to identify or process any files");
+		for (int i = 0; i < matches.size(); i++) {
+			File file = matches.get(i).getValue();
+			renameMap.put(file, getDestinationFile(file, format.format(bindings.get(i)), outputDir));
 		}
 
-		// rename files
-		Map<File, File> renameLog = new LinkedHashMap<File, File>();
+		return renameMap;
+	}
 
+	private Map<File, File> formatMatchesParallel(List<Match<File, ?>> matches, List<MediaBindingBean> bindings, ExpressionFileFormat format, File outputDir) throws Exception {
+		// evaluate the format expression for each match concurrently but keep the order of matches
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(getPreferredThreadPoolSize(), new DefaultThreadFactory("FormatMatches"));
 		try {
-			for (Entry<File, File> it : renameMap.entrySet()) {
-				try {
-					File source = it.getKey();
-					File destination = it.getValue();
+			List<Future<File>> destinations = new ArrayList<Future<File>>(matches.size());
+			for (int i = 0; i < matches.size(); i++) {
+				File file = matches.get(i).getValue();
+				MediaBindingBean bindingBean = bindings.get(i);
+				destinations.add(workerThreadPool.submit(() -> getDestinationFile(file, format.evaluate(bindingBean).getValue(), outputDir)));
+			}
 
-					// resolve destination
-					if (!destination.isAbsolute()) {
-						// same folder, different name
-						destination = resolve(source, destination);
-					}
+			Map<File, File> renameMap = new LinkedHashMap<File, File>();
+			for (int i = 0; i < matches.size(); i++) {
+				try {
+					renameMap.put(matches.get(i).getValue(), destinations.get(i).get());
+				} catch (ExecutionException e) {
+					// rethrow the same exception as if the match had been formatted by the current thread
+					throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+			return renameMap;
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
 
-					if (!destination.equals(source) && destination.exists()) {
-						if (conflictAction == ConflictAction.FAIL) {
-							throw new CmdlineException(String.format("Failed to process [%s] because [%s] already exists", source, destination));
-						}
+	protected List<File> renameAll(Map<File, File> renameMap, RenameAction renameAction, ConflictAction conflictAction, List<Match<File, ?>> matches, ExecCommand exec) throws Exception {
+		if (renameMap.isEmpty()) {
+			throw new CmdlineException("Failed to identify or process any files");
+		}
 
-						// do not allow abuse of online databases by repeatedly processing the same files
-						if (matches != null && renameAction.canRevert() && source.length() > 0 && equalsFileContent(source, destination)) {
-							throw new CmdlineException(String.format("Failed to process [%s] because [%s] is an exact copy and already exists", source, destination));
-						}
+		// list each destination folder only once and check for conflicts in memory
+		DestinationSnapshot snapshot = new DestinationSnapshot();
+		snapshot.prefetch(renameMap.entrySet().stream().map(it -> resolve(it.getKey(), it.getValue()).getParentFile()).distinct().collect(toList()));
 
-						// delete existing destination path if necessary
-						if (conflictAction == ConflictAction.OVERRIDE || (conflictAction == ConflictAction.AUTO && VideoQuality.isBetter(source, destination))) {
-							// do not delete files in test mode
-							if (renameAction.canRevert()) {
-								try {
-									log.fine(format("[%s] Delete [%s]", conflictAction, destination));
-									delete(destination);
-								} catch (Exception e) {
-									log.warning(format("[%s] Failed to delete [%s]: %s", conflictAction, destination, e));
-								}
-							}
-						}
+		// compute video quality of conflicting files only once and in parallel
+		VideoQuality quality = new VideoQuality();
+		if (conflictAction == ConflictAction.AUTO) {
+			quality.prefetch(getConflicts(renameMap, snapshot));
+		}
 
-						// generate indexed destination path if necessary
-						if (conflictAction == ConflictAction.INDEX) {
-							destination = nextAvailableIndexedName(destination);
-						}
-					}
+		// rename files
+		Map<File, File> renameLog = new LinkedHashMap<File, File>();
 
-					// rename file, throw exception on failure
-					if (!destination.equals(source) && !destination.exists()) {
-						log.info(format("[%s] from [%s] to [%s]", renameAction, source, destination));
-						destination = renameAction.rename(source, destination);
+		try (Throughput.Monitor monitor = Throughput.COPY.monitor(0, log::fine)) {
+			if (PARALLEL_RENAME.get() && renameAction != StandardRenameAction.TEST && renameMap.size() > 1) {
+				// process files concurrently but keep the order of files within the same destination folder
+				new ParallelRenameExecutor((source, destination) -> renameFile(source, destination, renameAction, conflictAction, matches, snapshot, quality)).execute(renameMap, renameLog);
+			} else {
+				for (Entry<File, File> it : renameMap.entrySet()) {
+					File destination = renameFile(it.getKey(), it.getValue(), renameAction, conflictAction, matches, snapshot, quality);
 
-						// remember successfully renamed matches for history entry and possible revert
-						renameLog.put(source, destination);
-					} else {
-						log.info(format("Skipped [%s] because [%s] already exists", source, destination));
+					// remember successfully renamed matches for history entry and possible revert
+					if (destination != null) {
+						renameLog.put(it.getKey(), destination);
 					}
-				} catch (IOException e) {
-					log.warning(format("[%s] Failure: %s", renameAction, e));
-					throw e;
 				}
 			}
 		} finally {
@@ -657,6 +697,92 @@ public class CmdlineOperations implements CmdlineInterface {
 		return new ArrayList<File>(renameLog.values());
 	}
 
+	private List<File> getConflicts(Map<File, File> renameMap, DestinationSnapshot snapshot) {
+		Map<File, List<File>> sources = renameMap.entrySet().stream().collect(groupingBy(it -> resolve(it.getKey(), it.getValue()), LinkedHashMap::new, mapping(Entry::getKey, toList())));
+		List<File> conflicts = new ArrayList<File>();
+
+		// source files that replace existing files or each other
+		sources.forEach((destination, files) -> {
+			boolean exists = snapshot.exists(destination);
+			if (exists || files.size() > 1) {
+				conflicts.addAll(files);
+			}
+			if (exists) {
+				conflicts.add(destination);
+			}
+		});
+
+		return conflicts;
+	}
+
+	/**
+	 * @return the destination file or null if the file has been skipped
+	 */
+	protected File renameFile(File source, File destination, RenameAction renameAction, ConflictAction conflictAction, List<Match<File, ?>> matches, DestinationSnapshot snapshot, VideoQuality quality) throws Exception {
+		try {
+			// resolve destination
+			if (!destination.isAbsolute()) {
+				// same folder, different name
+				destination = resolve(source, destination);
+			}
+
+			if (!destination.equals(source) && snapshot.exists(destination)) {
+				if (conflictAction == ConflictAction.FAIL) {
+					throw new CmdlineException(String.format("Failed to process [%s] because [%s] already exists", source, destination));
+				}
+
+				// do not allow abuse of online databases by repeatedly processing the same files
+				if (matches != null && renameAction.canRevert() && source.length() > 0 && equalsFileContent(source, destination)) {
+					throw new CmdlineException(String.format("Failed to process [%s] because [%s] is an exact copy and already exists", source, destination));
+				}
+
+				// delete existing destination path if necessary
+				if (conflictAction == ConflictAction.OVERRIDE || (conflictAction == ConflictAction.AUTO && quality.compare(source, destination) > 0)) {
+					// do not delete files in test mode
+					if (renameAction.canRevert()) {
+						try {
+							log.fine(format("[%s] Delete [%s]", conflictAction, destination));
+							delete(destination);
+							snapshot.remove(destination);
+						} catch (Exception e) {
+							log.warning(format("[%s] Failed to delete [%s]: %s", conflictAction, destination, e));
+						}
+					}
+				}
+
+				// generate indexed destination path if necessary
+				if (conflictAction == ConflictAction.INDEX) {
+					destination = snapshot.nextAvailableIndexedName(destination);
+				}
+			}
+
+			// rename file, throw exception on failure (the snapshot may be stale, so make sure that we never replace an existing file that has not been dealt with)
+			if (!destination.equals(source) && !destination.exists()) {
+				log.info(format("[%s] from [%s] to [%s]", renameAction, source, destination));
+				File result = renameAction.rename(source, destination);
+
+				// keep snapshot in sync (test mode does not touch the file system)
+				if (renameAction.canRevert()) {
+					snapshot.add(result);
+					snapshot.update(source);
+					quality.remove(result);
+				}
+
+				return result;
+			} else if (!destination.equals(source) && !snapshot.exists(destination)) {
+				// the snapshot is stale (e.g. file has been created by another process) so refresh it and deal with the conflict again
+				snapshot.add(destination);
+				return renameFile(source, destination, renameAction, conflictAction, matches, snapshot, quality);
+			} else {
+				log.info(format("Skipped [%s] because [%s] already exists", source, destination));
+				return null;
+			}
+		} catch (IOException e) {
+			log.warning(format("[%s] Failure: %s", renameAction, e));
+			throw e;
+		}
+	}
+
 	protected void writeHistory(RenameAction action, Map<File, File> log, List<Match<File, ?>> matches) {
 		// write rename history
 		if (action.canRevert()) {
@@ -676,13 +802,6 @@ public class CmdlineOperations implements CmdlineInterface {
 		}
 	}
 
-	protected File nextAvailableIndexedName(File file) {
-		File parent = file.getParentFile();
-		String name = getName(file);
-		String ext = getExtension(file);
-		return IntStream.range(1, 100).mapToObj(i -> new File(parent, name + '.' + i + '.' + ext)).filter(f -> !f.exists()).findFirst().get();
-	}
-
 	@Override
 	public List<File> getSubtitles(Collection<File> files, String query, Language language, SubtitleFormat output, Charset encoding, SubtitleNaming format, boolean strict) throws Exception {
 		// ignore anything that is not a video
@@ -898,8 +1017,15 @@ public class CmdlineOperations implements CmdlineInterface {
 		// only check existing hashes
 		boolean result = true;
 
-		for (File it : filter(files, VERIFICATION_FILES)) {
-			result &= check(it, it.getParentFile());
+		try (Throughput.Monitor monitor = Throughput.HASH.monitor(0, log::fine)) {
+			for (File it : filter(files, VERIFICATION_FILES)) {
+				result &= check(it, it.getParentFile());
+			}
+
+			// check torrent piece hashes
+			for (File it : filter(files, TORRENT_FILES)) {
+				result &= checkTorrent(it, it.getParentFile());
+			}
 		}
 
 		return result;
@@ -938,11 +1064,28 @@ public class CmdlineOperations implements CmdlineInterface {
 		}
 
 		log.info(format("Compute %s hash for %s files [%s]", hash, files.size(), output));
-		compute(root, files, output, hash, encoding);
+		try (Throughput.Monitor monitor = Throughput.HASH.monitor(files.stream().mapToLong(File::length).sum(), log::fine)) {
+			compute(root, files, output, hash, encoding);
+		}
 
 		return output;
 	}
 
+	@Override
+	public Map<String, List<File>> findDuplicates(Collection<File> files, FileFilter filter, HashType hash) throws Exception {
+		files = filter(files, FILES, filter);
+
+		log.info(format("Find identical files in %,d files [%s]", files.size(), hash));
+		Map<String, List<File>> duplicates = new DuplicateFinder(hash, getPreferredThreadPoolSize()).findDuplicates(files);
+
+		duplicates.forEach((k, v) -> {
+			log.info(format("%s [%s] %d identical files", k, formatSize(v.get(0).length()), v.size()));
+			v.forEach(f -> log.info(format("\t%s", f)));
+		});
+
+		return duplicates;
+	}
+
 	private boolean check(File verificationFile, File root) throws Exception {
 		HashType type = getHashType(verificationFile);
 
@@ -954,32 +1097,77 @@ public class CmdlineOperations implements CmdlineInterface {
 		// add all file names from verification file
 		log.fine(format("Checking [%s]", verificationFile.getName()));
 		VerificationFileReader parser = new VerificationFileReader(createTextReader(verificationFile), type.getFormat());
+		VerificationJournal journal = VerificationJournal.open(verificationFile, type);
 		boolean status = true;
 
 		try {
-			while (parser.hasNext()) {
+			// stream entries so that verification starts right away even for very large verification files
+			for (int i = 0; parser.hasNext(); i++) {
+				Entry<File, String> it = parser.next();
+				File file = new File(root, it.getKey().getPath()).getAbsoluteFile();
+
+				// replay results from previous runs or compute and record new results (and retry errors from previous runs, e.g. share was not mounted)
+				VerificationJournal.Record r = journal.get(i);
+				if (r == null || r.isError()) {
+					// announce the amount of data to be read as entries are read
+					Throughput.HASH.expect(file.length());
+					try {
+						journal.record(i, computeHash(file, type), null);
+					} catch (IOException e) {
+						journal.record(i, null, e.toString());
+					}
+					r = journal.get(i);
+				}
+
 				try {
-					Entry<File, String> it = parser.next();
+					if (r.isError()) {
+						throw new IOException(r.error);
+					}
 
-					File file = new File(root, it.getKey().getPath()).getAbsoluteFile();
-					String current = computeHash(new File(root, it.getKey().getPath()), type);
-					log.info(format("%s %s", current, file));
+					log.info(format("%s %s", r.hash, file));
 
-					if (current.compareToIgnoreCase(it.getValue()) != 0) {
-						throw new IOException(String.format("Corrupted file found: %s [hash mismatch: %s vs %s]", it.getKey(), current, it.getValue()));
+					if (r.hash.compareToIgnoreCase(it.getValue()) != 0) {
+						throw new IOException(String.format("Corrupted file found: %s [hash mismatch: %s vs %s]", it.getKey(), r.hash, it.getValue()));
 					}
 				} catch (IOException e) {
 					status = false;
 					log.warning(e.getMessage());
 				}
 			}
+
+			// verification complete
+			journal.delete();
 		} finally {
+			journal.close();
 			parser.close();
 		}
 
 		return status;
 	}
 
+	private boolean checkTorrent(File torrentFile, File root) throws Exception {
+		Torrent torrent = new Torrent(torrentFile);
+
+		log.fine(format("Checking [%s] (%,d pieces)", torrentFile.getName(), torrent.getPieceCount()));
+		TorrentVerifier verifier = new TorrentVerifier(torrent, root);
+		Throughput.HASH.expect(torrent.getLength());
+		BitSet failed = verifier.verify(getPreferredThreadPoolSize());
+
+		Map<File, Integer> corrupted = verifier.getCorruptedFiles(failed);
+		for (File file : verifier.getFiles()) {
+			Integer pieces = corrupted.get(file);
+			if (pieces == null) {
+				log.info(format("OK %s", file));
+			} else if (file.isFile()) {
+				log.warning(format("Corrupted file found: %s [%,d pieces failed]", file, pieces));
+			} else {
+				log.warning(format("Missing file: %s", file));
+			}
+		}
+
+		return corrupted.isEmpty();
+	}
+
 	private void compute(File root, Collection<File> files, File outputFile, HashType hashType, Charset encoding) throws IOException, Exception {
 		// compute hashes recursively and write to file
 		VerificationFileWriter out = new VerificationFileWriter(outputFile, hashType.getFormat(), encoding != null ? encoding : UTF_8);
@@ -1063,9 +1251,14 @@ public class CmdlineOperations implements CmdlineInterface {
 			return getMediaInfo(files, filter, new ExpressionFormat("{fn} [{resolution} {vc} {channels} {ac} {hours}]"));
 		}
 
-		return files.stream().filter(filter::accept).map(f -> {
+		List<MediaBindingBean> bindings = files.stream().filter(filter::accept).map(f -> new MediaBindingBean(xattr.getMetaInfo(f), f)).collect(toList());
+
+		// read media info for all files in parallel
+		MediaBindingBean.prefetch(bindings, format.getBindingNames());
+
+		return bindings.stream().map(it -> {
 			try {
-				return format.format(new MediaBindingBean(xattr.getMetaInfo(f), f));
+				return format.format(it);
 			} catch (Exception e) {
 				debug.warning(e::getMessage);
 			}
@@ -1099,7 +1292,7 @@ public class CmdlineOperations implements CmdlineInterface {
 		}
 
 		Set<File> whitelist = new HashSet<File>(files);
-		Map<File, File> history = HistorySpooler.getInstance().getCompleteHistory().getRenameMap();
+		Map<File, File> history = HistorySpooler.getInstance().getRenameMap(files);
 
 		return history.entrySet().stream().filter(it -> {
 			File original = it.getKey();
@@ -1127,74 +1320,95 @@ public class CmdlineOperations implements CmdlineInterface {
 		List<File> archiveFiles = filter(files, Archive.VOLUME_ONE_FILTER);
 		List<File> extractedFiles = new ArrayList<File>();
 
-		for (File file : archiveFiles) {
-			Archive archive = Archive.open(file);
-			try {
-				File outputFolder = output;
+		try (Throughput.Monitor monitor = Throughput.EXTRACT.monitor(0, log::fine)) {
+			for (File file : archiveFiles) {
+				Archive archive = Archive.open(file);
+				try {
+					File outputFolder = output;
 
-				if (outputFolder == null || !outputFolder.isAbsolute()) {
-					outputFolder = new File(file.getParentFile(), outputFolder == null ? getName(file) : outputFolder.getPath()).getCanonicalFile();
-				}
+					if (outputFolder == null || !outputFolder.isAbsolute()) {
+						outputFolder = new File(file.getParentFile(), outputFolder == null ? getName(file) : outputFolder.getPath()).getCanonicalFile();
+					}
 
-				log.info(format("Read archive [%s] and extract to [%s]", file.getName(), outputFolder));
-				FileMapper outputMapper = new FileMapper(outputFolder);
+					log.info(format("Read archive [%s] and extract to [%s]", file.getName(), outputFolder));
+					FileMapper outputMapper = new FileMapper(outputFolder);
 
-				List<FileInfo> outputMapping = new ArrayList<FileInfo>();
-				for (FileInfo it : archive.listFiles()) {
-					File outputPath = outputMapper.getOutputFile(it.toFile());
-					outputMapping.add(new SimpleFileInfo(outputPath.getPath(), it.getLength()));
-				}
+					List<FileInfo> outputMapping = new ArrayList<FileInfo>();
+					for (FileInfo it : archive.listFiles()) {
+						File outputPath = outputMapper.getOutputFile(it.toFile());
+						outputMapping.add(new SimpleFileInfo(outputPath.getPath(), it.getLength()));
+					}
 
-				Set<FileInfo> selection = new TreeSet<FileInfo>();
-				for (FileInfo future : outputMapping) {
-					if (filter == null || filter.accept(future.toFile())) {
-						selection.add(future);
+					Set<FileInfo> selection = new TreeSet<FileInfo>();
+					for (FileInfo future : outputMapping) {
+						if (filter == null || filter.accept(future.toFile())) {
+							selection.add(future);
+						}
 					}
-				}
 
-				// check if there is anything to extract at all
-				if (selection.isEmpty()) {
-					continue;
-				}
+					// check if there is anything to extract at all
+					if (selection.isEmpty()) {
+						continue;
+					}
 
-				boolean skip = true;
-				for (FileInfo future : filter == null || forceExtractAll ? outputMapping : selection) {
-					if (conflict == ConflictAction.AUTO) {
-						skip &= (future.toFile().exists() && future.getLength() == future.toFile().length());
-					} else {
-						skip &= (future.toFile().exists());
+					boolean skip = true;
+					for (FileInfo future : filter == null || forceExtractAll ? outputMapping : selection) {
+						if (conflict == ConflictAction.AUTO) {
+							skip &= (future.toFile().exists() && future.getLength() == future.toFile().length());
+						} else {
+							skip &= (future.toFile().exists());
+						}
 					}
-				}
 
-				if (!skip || conflict == ConflictAction.OVERRIDE) {
-					if (filter == null || forceExtractAll) {
-						log.finest("Extracting files " + outputMapping);
+					if (!skip || conflict == ConflictAction.OVERRIDE) {
+						if (filter == null || forceExtractAll) {
+							log.finest("Extracting files " + outputMapping);
 
-						// extract all files
-						archive.extract(outputMapper.getOutputDir());
+							// extract all files
+							extract(archive, outputMapper.getOutputDir(), null, outputMapping);
 
-						for (FileInfo it : outputMapping) {
-							extractedFiles.add(it.toFile());
-						}
-					} else {
-						log.finest("Extracting files " + selection);
+							for (FileInfo it : outputMapping) {
+								extractedFiles.add(it.toFile());
+							}
+						} else {
+							log.finest("Extracting files " + selection);
 
-						// extract files selected by the given filter
-						archive.extract(outputMapper.getOutputDir(), outputMapper.newPathFilter(selection));
+							// extract files selected by the given filter
+							extract(archive, outputMapper.getOutputDir(), outputMapper.newPathFilter(selection), selection);
 
-						for (FileInfo it : selection) {
-							extractedFiles.add(it.toFile());
+							for (FileInfo it : selection) {
+								extractedFiles.add(it.toFile());
+							}
 						}
+					} else {
+						log.finest("Skipped extracting files " + selection);
 					}
-				} else {
-					log.finest("Skipped extracting files " + selection);
+				} finally {
+					archive.close();
 				}
-			} finally {
-				archive.close();
 			}
 		}
 
 		return extractedFiles;
 	}
 
+	private void extract(Archive archive, File outputDir, FileFilter filter, Collection<FileInfo> files) throws Exception {
+		long length = files.stream().mapToLong(FileInfo::getLength).sum();
+		long bytes = Throughput.EXTRACT.getBytes();
+
+		Throughput.EXTRACT.expect(length);
+
+		if (filter == null) {
+			archive.extract(outputDir);
+		} else {
+			archive.extract(outputDir, filter);
+		}
+
+		// only native extraction reports progress while extracting
+		long remaining = length - (Throughput.EXTRACT.getBytes() - bytes);
+		if (remaining > 0) {
+			Throughput.EXTRACT.update(remaining);
+		}
+	}
+
 }
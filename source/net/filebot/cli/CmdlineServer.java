@@ -0,0 +1,318 @@
+package net.filebot.cli;
+
+import static java.nio.charset.StandardCharsets.*;
+import static net.filebot.Logging.*;
+import static net.filebot.Settings.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+
+import net.filebot.ApplicationFolder;
+import net.filebot.HistorySpooler;
+import net.filebot.Main;
+import net.filebot.format.ExpressionFormat;
+import net.filebot.media.MediaDetection;
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Long-lived server that keeps caches, indexes and the Groovy runtime warm and runs CLI jobs submitted by {@link CmdlineClient} via a local socket. Clients are authenticated on the accept thread, and jobs are executed one at a time in the order they have been received.
+ */
+public class CmdlineServer {
+
+	public static final SystemProperty<Integer> PORT = SystemProperty.of("net.filebot.cli.server.port", Integer::parseInt, 0);
+
+	// frame types
+	static final int EXIT = 0;
+	static final int STDOUT = 1;
+	static final int STDERR = 2;
+
+	// request limits
+	static final int READ_TIMEOUT = 5000;
+	static final int MAX_STRING_LENGTH = 1024 * 1024;
+	static final int MAX_ARGUMENTS = 10000;
+
+	/**
+	 * @return server port and access token of the running server
+	 */
+	static File getServerFile() {
+		return ApplicationFolder.AppData.resolve("server.properties");
+	}
+
+	private final ExecutorService jobs = Executors.newSingleThreadExecutor(new DefaultThreadFactory("CmdlineServerJob"));
+	private final String token = createToken();
+
+	// log messages of the accept thread must not be sent to the client of the current job
+	private volatile Thread acceptThread;
+
+	public void start() throws IOException {
+		try (ServerSocket server = new ServerSocket(PORT.get(), 50, InetAddress.getLoopbackAddress())) {
+			File serverFile = getServerFile();
+			writeServerFile(serverFile, server.getLocalPort());
+			serverFile.deleteOnExit();
+
+			log.info(format("Listening on %s:%d", server.getInetAddress().getHostAddress(), server.getLocalPort()));
+
+			// load indexes and compile expression engine in the background
+			jobs.submit(this::warmup);
+			acceptThread = Thread.currentThread();
+
+			while (!server.isClosed()) {
+				Socket socket = server.accept();
+
+				// only queue jobs from authenticated clients
+				Job job = accept(socket);
+				if (job != null) {
+					jobs.submit(job);
+				}
+			}
+		}
+	}
+
+	protected void warmup() {
+		try {
+			new ExpressionFormat("{n}");
+			MediaDetection.warmupCachedResources();
+		} catch (Throwable e) {
+			debug.log(Level.WARNING, "Failed to warmup cached resources", e);
+		}
+	}
+
+	/**
+	 * Authenticate the client and read the job request on the accept thread, with a read timeout and size limits, so that idle or malicious connections can neither block the job queue nor exhaust memory
+	 *
+	 * @return null if the connection has been rejected
+	 */
+	private Job accept(Socket socket) {
+		try {
+			socket.setSoTimeout(READ_TIMEOUT);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+			if (!MessageDigest.isEqual(token.getBytes(UTF_8), readBytes(in, token.length()))) {
+				debug.warning(format("Reject connection from %s", socket.getRemoteSocketAddress()));
+				socket.close();
+				return null;
+			}
+
+			File workingDirectory = new File(readString(in));
+			String[] args = new String[readLength(in, MAX_ARGUMENTS)];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = readString(in);
+			}
+
+			socket.setSoTimeout(0);
+			return new Job(socket, workingDirectory, args);
+		} catch (Exception e) {
+			debug.warning(cause("Reject connection from " + socket.getRemoteSocketAddress(), e));
+			try {
+				socket.close();
+			} catch (IOException c) {
+				debug.finest(cause(c));
+			}
+			return null;
+		}
+	}
+
+	private class Job implements Runnable {
+
+		private final Socket socket;
+		private final File workingDirectory;
+		private final String[] args;
+
+		public Job(Socket socket, File workingDirectory, String[] args) {
+			this.socket = socket;
+			this.workingDirectory = workingDirectory;
+			this.args = args;
+		}
+
+		@Override
+		public void run() {
+			try (Socket s = socket) {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+				int status = CmdlineServer.this.run(args, workingDirectory, out);
+
+				out.writeByte(EXIT);
+				out.writeInt(status);
+				out.flush();
+			} catch (Exception e) {
+				debug.log(Level.WARNING, "Failed to process job", e);
+			}
+		}
+	}
+
+	private int run(String[] argv, File workingDirectory, DataOutputStream connection) throws IOException {
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		Properties systemProperties = new Properties();
+		systemProperties.putAll(System.getProperties());
+
+		Handler logFileHandler = null;
+
+		long start = System.currentTimeMillis();
+		debug.finest(format("Run job: %s", String.join(" ", argv)));
+
+		// redirect console output to client
+		System.setOut(new PrintStream(new FrameOutputStream(connection, STDOUT, stdout), true, "UTF-8"));
+		System.setErr(new PrintStream(new FrameOutputStream(connection, STDERR, stderr), true, "UTF-8"));
+
+		try {
+			ArgumentBean args = new ArgumentBean(workingDirectory, argv);
+
+			if (!args.runCLI()) {
+				throw new CmdlineException("Illegal job: " + String.join(" ", argv));
+			}
+
+			// job settings
+			setApplicationArguments(args);
+			Main.initializeSystemProperties(args);
+			log.setLevel(args.getLogLevel());
+
+			if (args.logFile != null) {
+				logFileHandler = createLogFileHandler(args.getLogFile(), args.logLock, Level.ALL);
+				log.addHandler(logFileHandler);
+				debug.addHandler(logFileHandler);
+			}
+
+			return new ArgumentProcessor().run(args);
+		} catch (Exception e) {
+			log.severe(e::getMessage);
+			return 1;
+		} finally {
+			// commit history after each job
+			HistorySpooler.getInstance().commit();
+
+			if (logFileHandler != null) {
+				log.removeHandler(logFileHandler);
+				debug.removeHandler(logFileHandler);
+				logFileHandler.close();
+			}
+
+			System.out.flush();
+			System.err.flush();
+			System.setOut(stdout);
+			System.setErr(stderr);
+			System.setProperties(systemProperties);
+
+			debug.finest(format("Job finished in %,d ms", System.currentTimeMillis() - start));
+		}
+	}
+
+	private void writeServerFile(File file, int port) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("port", String.valueOf(port));
+		properties.setProperty("token", token);
+
+		// only the current user may submit jobs
+		Files.deleteIfExists(file.toPath());
+		Files.createFile(file.toPath());
+		try {
+			Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString("rw-------"));
+		} catch (UnsupportedOperationException e) {
+			debug.finest(message("POSIX file permissions not supported", file));
+		}
+
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			properties.store(out, getApplicationName());
+		}
+	}
+
+	private static String createToken() {
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+
+		StringBuilder s = new StringBuilder();
+		for (byte b : bytes) {
+			s.append(String.format("%02x", b));
+		}
+		return s.toString();
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in, MAX_STRING_LENGTH), UTF_8);
+	}
+
+	static byte[] readBytes(DataInputStream in, int limit) throws IOException {
+		byte[] bytes = new byte[readLength(in, limit)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	static int readLength(DataInputStream in, int limit) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > limit) {
+			throw new IOException(String.format("Illegal length: %,d (limit %,d)", length, limit));
+		}
+		return length;
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private class FrameOutputStream extends OutputStream {
+
+		private final DataOutputStream out;
+		private final int type;
+		private final PrintStream server;
+
+		public FrameOutputStream(DataOutputStream out, int type, PrintStream server) {
+			this.out = out;
+			this.type = type;
+			this.server = server;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// keep server messages (e.g. rejected connections) on the server console
+			if (Thread.currentThread() == acceptThread) {
+				server.write(b, off, len);
+				return;
+			}
+
+			synchronized (out) {
+				out.writeByte(type);
+				out.writeInt(len);
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (Thread.currentThread() == acceptThread) {
+				server.flush();
+				return;
+			}
+
+			synchronized (out) {
+				out.flush();
+			}
+		}
+	}
+
+}
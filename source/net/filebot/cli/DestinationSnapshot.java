@@ -0,0 +1,123 @@
+package net.filebot.cli;
+
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory snapshot of destination folders, so that conflict checks and index allocation don't need to stat each path individually, which is slow on network shares. Each folder is listed once when it is first accessed and then kept in sync as files are renamed. The snapshot is only used to pre-filter conflicts and may be stale (e.g. files created by other processes), so the file system must still be checked right before a file is renamed.
+ */
+class DestinationSnapshot {
+
+	private final Map<File, Folder> folders = new ConcurrentHashMap<File, Folder>();
+
+	public void prefetch(Collection<File> paths) {
+		for (File folder : paths) {
+			folders.computeIfAbsent(folder.getAbsoluteFile(), Folder::new);
+		}
+	}
+
+	public boolean exists(File file) {
+		return folders.computeIfAbsent(getParent(file), Folder::new).exists(file);
+	}
+
+	public void add(File file) {
+		Folder folder = folders.get(getParent(file));
+		if (folder != null) {
+			folder.add(file.getName());
+		}
+	}
+
+	public void remove(File file) {
+		Folder folder = folders.get(getParent(file));
+		if (folder != null) {
+			folder.remove(file.getName());
+		}
+	}
+
+	/**
+	 * Update the state of the given file if its folder is part of this snapshot
+	 */
+	public void update(File file) {
+		Folder folder = folders.get(getParent(file));
+		if (folder != null) {
+			if (file.exists()) {
+				folder.add(file.getName());
+			} else {
+				folder.remove(file.getName());
+			}
+		}
+	}
+
+	public File nextAvailableIndexedName(File file) {
+		File parent = file.getParentFile();
+		String name = getName(file);
+		String ext = getExtension(file);
+		return IntStream.range(1, 100).mapToObj(i -> new File(parent, name + '.' + i + '.' + ext)).filter(f -> !exists(f) && !refresh(f)).findFirst().get();
+	}
+
+	/**
+	 * Check a name that is available according to the snapshot against the file system, and add it to the snapshot if the snapshot is stale
+	 * 
+	 * @return true if the file exists
+	 */
+	private boolean refresh(File file) {
+		if (file.exists()) {
+			add(file);
+			return true;
+		}
+		return false;
+	}
+
+	private static File getParent(File file) {
+		return file.getAbsoluteFile().getParentFile();
+	}
+
+	private static class Folder {
+
+		private final Set<String> names = new HashSet<String>();
+		private final Map<String, Integer> caseInsensitiveNames = new HashMap<String, Integer>();
+
+		public Folder(File folder) {
+			String[] list = folder.list();
+			if (list != null) {
+				for (String name : list) {
+					add(name);
+				}
+			}
+		}
+
+		public synchronized boolean exists(File file) {
+			if (names.contains(file.getName())) {
+				return true;
+			}
+
+			// ask the file system if the answer depends on case-sensitivity
+			if (caseInsensitiveNames.containsKey(file.getName().toLowerCase())) {
+				return file.exists();
+			}
+
+			return false;
+		}
+
+		public synchronized void add(String name) {
+			if (names.add(name)) {
+				caseInsensitiveNames.merge(name.toLowerCase(), 1, Integer::sum);
+			}
+		}
+
+		public synchronized void remove(String name) {
+			if (names.remove(name)) {
+				caseInsensitiveNames.computeIfPresent(name.toLowerCase(), (k, n) -> n > 1 ? n - 1 : null);
+			}
+		}
+	}
+
+}
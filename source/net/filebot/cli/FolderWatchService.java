@@ -8,19 +8,27 @@ import static net.filebot.util.FileUtilities.*;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
 import java.nio.file.Path;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -30,19 +38,21 @@ import net.filebot.util.Timer;
 public abstract class FolderWatchService implements Closeable {
 
 	private final Collection<File> commitSet = new HashSet<File>();
+	private final Map<File, FileState> fileStates = new HashMap<File, FileState>();
+	private final Set<File> activeBatches = synchronizedSet(new HashSet<File>());
 
-	private final ExecutorService processor = Executors.newSingleThreadExecutor();
+	private final ThreadPoolExecutor processor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("FolderWatchServiceProcessor"));
 	private final ExecutorService watchers = Executors.newCachedThreadPool(new DefaultThreadFactory("FolderWatchService"));
+	private final Map<FileSystem, FolderWatcher> folderWatchers = new HashMap<FileSystem, FolderWatcher>();
 
 	private long commitDelay = 500; // 0.5 s
+	private long stabilityDelay = 1000; // 1 s
 	private boolean commitPerFolder = true;
 	private final Timer commitTimer = new Timer() {
 
 		@Override
 		public void run() {
-			synchronized (processor) {
-				commit();
-			}
+			commit();
 		}
 	};
 
@@ -50,6 +60,7 @@ public abstract class FolderWatchService implements Closeable {
 
 	public FolderWatchService(boolean watchTree) {
 		this.watchTree = watchTree;
+		this.processor.allowCoreThreadTimeOut(true);
 	}
 
 	public synchronized void setCommitPerFolder(boolean enabled) {
@@ -64,20 +75,81 @@ public abstract class FolderWatchService implements Closeable {
 		resetCommitTimer();
 	}
 
+	/**
+	 * Files are only committed if file size and last-modified time have not changed for the given amount of time, so that files that are still being written (e.g. by a slow download client or via a network share that does not report file system events) are not processed prematurely.
+	 */
+	public synchronized void setStabilityDelay(long stabilityDelay) {
+		if (stabilityDelay < 0)
+			throw new IllegalArgumentException("Delay must not be negativ");
+
+		this.stabilityDelay = stabilityDelay;
+	}
+
+	/**
+	 * Process up to the given number of commit batches (i.e. folders) at the same time (one at a time by default)
+	 */
+	public synchronized void setMaxConcurrency(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Concurrency must be positive");
+
+		if (threads > processor.getMaximumPoolSize()) {
+			processor.setMaximumPoolSize(threads);
+			processor.setCorePoolSize(threads);
+		} else {
+			processor.setCorePoolSize(threads);
+			processor.setMaximumPoolSize(threads);
+		}
+	}
+
 	public synchronized void resetCommitTimer() {
 		commitTimer.set(commitDelay, TimeUnit.MILLISECONDS, false);
 	}
 
 	public synchronized void commit() {
-		final SortedSet<File> files = new TreeSet<File>();
+		SortedSet<File> files = new TreeSet<File>();
+		long now = System.currentTimeMillis();
+		long next = -1;
 
 		synchronized (commitSet) {
-			for (File it : commitSet) {
-				if (it.isFile()) {
-					files.add(it);
+			for (Iterator<File> it = commitSet.iterator(); it.hasNext();) {
+				File file = it.next();
+
+				if (!file.isFile()) {
+					it.remove();
+					fileStates.remove(file);
+					continue;
 				}
+
+				// check if file has been modified since the last probe
+				FileState state = new FileState(file, now);
+				FileState previous = fileStates.get(file);
+				if (previous != null && previous.equals(state)) {
+					state = previous;
+				} else {
+					fileStates.put(file, state);
+				}
+
+				long wait = stabilityDelay - (now - state.since);
+
+				// wait for the previous batch of the same folder to finish
+				if (wait <= 0 && activeBatches.contains(getBatchKey(file))) {
+					wait = commitDelay;
+				}
+
+				if (wait > 0) {
+					next = next < 0 ? wait : Math.min(next, wait);
+					continue;
+				}
+
+				files.add(file);
+				fileStates.remove(file);
+				it.remove();
 			}
-			commitSet.clear();
+		}
+
+		// probe files again later
+		if (next >= 0) {
+			commitTimer.set(Math.max(next, MIN_PROBE_DELAY), TimeUnit.MILLISECONDS, false);
 		}
 
 		if (files.isEmpty()) {
@@ -85,21 +157,31 @@ public abstract class FolderWatchService implements Closeable {
 		}
 
 		// divide into commit batches per folder if required
-		final Map<File, ? extends Collection<File>> commitBatches = commitPerFolder ? mapByFolder(files) : singletonMap((File) null, files);
-
-		processor.submit(new Runnable() {
-
-			@Override
-			public void run() {
-				synchronized (processor) {
-					for (Entry<File, ? extends Collection<File>> it : commitBatches.entrySet()) {
-						processCommitSet(it.getValue().toArray(new File[0]), it.getKey());
-					}
+		Map<File, ? extends Collection<File>> commitBatches = commitPerFolder ? mapByFolder(files) : singletonMap((File) null, files);
+
+		for (Entry<File, ? extends Collection<File>> it : commitBatches.entrySet()) {
+			File key = it.getKey();
+			File[] batch = it.getValue().toArray(new File[0]);
+
+			activeBatches.add(key);
+			processor.execute(() -> {
+				try {
+					processCommitSet(batch, key);
+				} catch (Exception e) {
+					debug.log(Level.WARNING, e.getMessage(), e);
+				} finally {
+					activeBatches.remove(key);
 				}
-			}
-		});
+			});
+		}
+	}
+
+	private File getBatchKey(File file) {
+		return commitPerFolder ? file.getParentFile() : null;
 	}
 
+	private static final long MIN_PROBE_DELAY = 100;
+
 	public abstract void processCommitSet(File[] files, File dir);
 
 	public synchronized void watchFolder(File folder) throws IOException {
@@ -124,52 +206,85 @@ public abstract class FolderWatchService implements Closeable {
 			throw new IllegalArgumentException("Must be a folder: " + node);
 		}
 
-		watchers.submit(new FolderWatcher(node) {
+		Path path = node.toPath();
+		FileSystem fs = path.getFileSystem();
 
-			@Override
-			protected void processEvents(List<WatchEvent<?>> events) {
-				synchronized (commitSet) {
+		// register all folders of the same file system with the same watch service
+		FolderWatcher watcher = folderWatchers.get(fs);
+		if (watcher == null) {
+			watcher = new FolderWatcher(fs.newWatchService()) {
+
+				@Override
+				protected void processEvents(Path dir, List<WatchEvent<?>> events) {
 					resetCommitTimer();
-					super.processEvents(events);
+					super.processEvents(dir, events);
 				}
-			}
 
-			@Override
-			protected void created(File file) {
-				synchronized (commitSet) {
+				@Override
+				protected void created(File file) {
 					if (!file.isDirectory()) {
-						commitSet.add(file);
+						synchronized (commitSet) {
+							commitSet.add(file);
+						}
 						return;
 					}
 
 					// start watching newly created folder
 					if (watchTree) {
-						try {
-							commitSet.addAll(listFiles(file, FILES));
-							watchFolder(file);
-						} catch (IOException e) {
-							debug.log(Level.SEVERE, e.getMessage(), e);
+						rescan(file);
+					}
+				}
+
+				@Override
+				protected void modified(File file) {
+					synchronized (commitSet) {
+						if (!file.isDirectory()) {
+							commitSet.add(file);
 						}
 					}
 				}
-			}
 
-			@Override
-			protected void modified(File file) {
-				synchronized (commitSet) {
-					if (!file.isDirectory()) {
-						commitSet.add(file);
+				@Override
+				protected void deleted(File file) {
+					synchronized (commitSet) {
+						commitSet.remove(file);
+						fileStates.remove(file);
 					}
 				}
-			}
 
-			@Override
-			protected void deleted(File file) {
-				synchronized (commitSet) {
-					commitSet.remove(file);
+				@Override
+				protected void overflow(File dir) {
+					debug.warning(message("Rescan after event overflow", dir));
+
+					// events may have been lost so we need to check all files
+					if (watchTree) {
+						rescan(dir);
+					} else {
+						synchronized (commitSet) {
+							commitSet.addAll(getChildren(dir, FILES));
+						}
+					}
 				}
-			}
-		});
+
+				private void rescan(File folder) {
+					try {
+						// watch subfolders before listing files so that we don't miss any new files
+						watchFolder(folder);
+
+						synchronized (commitSet) {
+							commitSet.addAll(listFiles(folder, FILES));
+						}
+					} catch (IOException e) {
+						debug.log(Level.SEVERE, e.getMessage(), e);
+					}
+				}
+			};
+
+			folderWatchers.put(fs, watcher);
+			watchers.submit(watcher);
+		}
+
+		watcher.register(path);
 	}
 
 	@Override
@@ -177,24 +292,62 @@ public abstract class FolderWatchService implements Closeable {
 		commitTimer.cancel();
 		processor.shutdownNow();
 		watchers.shutdownNow();
+
+		for (FolderWatcher it : folderWatchers.values()) {
+			it.close();
+		}
+		folderWatchers.clear();
+	}
+
+	private static class FileState {
+
+		public final long length;
+		public final long lastModified;
+		public final long since;
+
+		public FileState(File file, long since) {
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+			this.since = since;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof FileState) {
+				FileState other = (FileState) obj;
+				return length == other.length && lastModified == other.lastModified;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(length) ^ Long.hashCode(lastModified);
+		}
 	}
 
+	/**
+	 * Watch any number of folders with a single {@link WatchService} and dispatch all events from a single thread
+	 */
 	private abstract static class FolderWatcher implements Runnable, Closeable {
 
-		private final Path node;
 		private final WatchService watchService;
+		private final Map<WatchKey, Path> keys = new ConcurrentHashMap<WatchKey, Path>();
 
-		public FolderWatcher(File node) throws IOException {
-			this.node = node.toPath();
-			this.watchService = this.node.getFileSystem().newWatchService();
-			this.node.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		public FolderWatcher(WatchService watchService) {
+			this.watchService = watchService;
+		}
+
+		public void register(Path dir) throws IOException {
+			// registering the same folder again will return the existing key
+			keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
 		}
 
 		@Override
 		public void run() {
 			try {
 				watch();
-			} catch (InterruptedException e) {
+			} catch (InterruptedException | ClosedWatchServiceException e) {
 				// ignore, part of an orderly shutdown
 			} catch (Exception e) {
 				debug.log(Level.WARNING, e.getMessage(), e);
@@ -203,29 +356,34 @@ public abstract class FolderWatchService implements Closeable {
 
 		public void watch() throws IOException, InterruptedException {
 			try {
-				boolean valid = true;
-				while (valid) {
+				while (true) {
 					WatchKey key = watchService.take();
-					processEvents(key.pollEvents());
-					valid = key.reset();
+					Path dir = keys.get(key);
+
+					if (dir != null) {
+						processEvents(dir, key.pollEvents());
+					}
+
+					// folder is no longer accessible
+					if (!key.reset()) {
+						keys.remove(key);
+					}
 				}
 			} finally {
 				this.close();
 			}
 		}
 
-		public File getAbsoluteFile(WatchEvent event) {
-			return node.resolve(event.context().toString()).toFile();
-		}
-
-		protected void processEvents(List<WatchEvent<?>> list) {
+		protected void processEvents(Path dir, List<WatchEvent<?>> list) {
 			for (WatchEvent event : list) {
-				if (event.kind() == ENTRY_CREATE) {
-					created(getAbsoluteFile(event));
+				if (event.kind() == OVERFLOW) {
+					overflow(dir.toFile());
+				} else if (event.kind() == ENTRY_CREATE) {
+					created(dir.resolve(event.context().toString()).toFile());
 				} else if (event.kind() == ENTRY_MODIFY) {
-					modified(getAbsoluteFile(event));
+					modified(dir.resolve(event.context().toString()).toFile());
 				} else if (event.kind() == ENTRY_DELETE) {
-					deleted(getAbsoluteFile(event));
+					deleted(dir.resolve(event.context().toString()).toFile());
 				}
 			}
 		}
@@ -236,6 +394,8 @@ public abstract class FolderWatchService implements Closeable {
 
 		protected abstract void deleted(File file);
 
+		protected abstract void overflow(File dir);
+
 		@Override
 		public void close() throws IOException {
 			watchService.close();
@@ -0,0 +1,156 @@
+package net.filebot.cli;
+
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.File;
+import java.nio.file.FileStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.StorageType;
+
+/**
+ * Execute rename jobs concurrently with bounded concurrency per destination file system. Jobs that target the same folder, or that depend on each other because the source of one job is the destination of another, are executed sequentially in their original order, so that conflict handling sees the same state as it would in sequential mode.
+ */
+class ParallelRenameExecutor {
+
+	@FunctionalInterface
+	public interface RenameJob {
+
+		/**
+		 * @return the destination file or null if the file has been skipped
+		 */
+		File rename(File source, File destination) throws Exception;
+	}
+
+	private final RenameJob job;
+
+	public ParallelRenameExecutor(RenameJob job) {
+		this.job = job;
+	}
+
+	/**
+	 * Execute all jobs and add successfully renamed files to the given rename log in the original order, even if some jobs have failed.
+	 */
+	public void execute(Map<File, File> renameMap, Map<File, File> renameLog) throws Exception {
+		List<Entry<File, File>> jobs = new ArrayList<Entry<File, File>>(renameMap.entrySet());
+		File[] results = new File[jobs.size()];
+
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Map<Object, ExecutorService> executors = new HashMap<Object, ExecutorService>();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+
+		try {
+			for (List<Integer> group : groups(jobs)) {
+				File folder = resolve(jobs.get(group.get(0)).getKey(), jobs.get(group.get(0)).getValue()).getParentFile();
+				ExecutorService executor = executors.computeIfAbsent(getFileStore(folder), store -> newExecutor(folder));
+
+				futures.add(executor.submit(() -> {
+					for (int i : group) {
+						// stop processing after the first failure, just like sequential mode
+						if (failure.get() != null) {
+							return;
+						}
+
+						try {
+							results[i] = job.rename(jobs.get(i).getKey(), jobs.get(i).getValue());
+						} catch (Exception e) {
+							failure.compareAndSet(null, e);
+						}
+					}
+				}));
+			}
+
+			for (Future<?> it : futures) {
+				try {
+					it.get();
+				} catch (ExecutionException e) {
+					failure.compareAndSet(null, new Exception(e.getCause()));
+				}
+			}
+		} finally {
+			executors.values().forEach(ExecutorService::shutdownNow);
+
+			for (int i = 0; i < results.length; i++) {
+				if (results[i] != null) {
+					renameLog.put(jobs.get(i).getKey(), results[i]);
+				}
+			}
+		}
+
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	protected ExecutorService newExecutor(File folder) {
+		int threadPoolSize = StorageType.forFile(folder).getPreferredWriterCount();
+		debug.finest(format("Rename to [%s] with %d threads", folder, threadPoolSize));
+
+		return Executors.newFixedThreadPool(threadPoolSize, new DefaultThreadFactory("ParallelRenameExecutor"));
+	}
+
+	protected List<List<Integer>> groups(List<Entry<File, File>> jobs) {
+		Map<String, String> parent = new HashMap<String, String>();
+		Map<String, String> destinationFolder = new HashMap<String, String>();
+
+		for (Entry<File, File> it : jobs) {
+			File destination = resolve(it.getKey(), it.getValue());
+			destinationFolder.put(key(destination), key(destination.getParentFile()));
+		}
+
+		// jobs that read or delete the destination of another job must not overtake that job
+		for (Entry<File, File> it : jobs) {
+			String dependency = destinationFolder.get(key(it.getKey()));
+			if (dependency != null) {
+				union(parent, key(resolve(it.getKey(), it.getValue()).getParentFile()), dependency);
+			}
+		}
+
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < jobs.size(); i++) {
+			String folder = find(parent, key(resolve(jobs.get(i).getKey(), jobs.get(i).getValue()).getParentFile()));
+			groups.computeIfAbsent(folder, k -> new ArrayList<Integer>()).add(i);
+		}
+
+		return new ArrayList<List<Integer>>(groups.values());
+	}
+
+	private static String key(File file) {
+		// be conservative and treat paths as case-insensitive
+		return file.getAbsolutePath().toLowerCase();
+	}
+
+	private static String find(Map<String, String> parent, String key) {
+		String root = key;
+		while (parent.containsKey(root)) {
+			root = parent.get(root);
+		}
+		return root;
+	}
+
+	private static void union(Map<String, String> parent, String a, String b) {
+		String x = find(parent, a);
+		String y = find(parent, b);
+		if (!x.equals(y)) {
+			parent.put(x, y);
+		}
+	}
+
+	private static Object getFileStore(File folder) {
+		FileStore store = StorageType.getFileStore(folder);
+		return store != null ? store : StorageType.UNKNOWN;
+	}
+
+}
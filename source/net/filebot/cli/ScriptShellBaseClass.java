@@ -49,6 +49,7 @@ import net.filebot.format.MediaBindingBean;
 import net.filebot.format.SuppressedThrowables;
 import net.filebot.media.MediaDetection;
 import net.filebot.similarity.SeasonEpisodeMatcher.SxE;
+import net.filebot.util.Throughput;
 import net.filebot.web.Movie;
 
 public abstract class ScriptShellBaseClass extends Script {
@@ -193,12 +194,12 @@ public abstract class ScriptShellBaseClass extends Script {
 	}
 
 	public Map<File, File> getPersistentRenameLog() throws IOException {
-		return HistorySpooler.getInstance().getCompleteHistory().getRenameMap();
+		return HistorySpooler.getInstance().getCompleteRenameMap();
 	}
 
 	public Map<File, File> getRenameLog(boolean complete) throws IOException {
 		if (complete) {
-			return HistorySpooler.getInstance().getCompleteHistory().getRenameMap();
+			return HistorySpooler.getInstance().getCompleteRenameMap();
 		} else {
 			return HistorySpooler.getInstance().getSessionHistory().getRenameMap();
 		}
@@ -218,6 +219,11 @@ public abstract class ScriptShellBaseClass extends Script {
 		return new Date();
 	}
 
+	// define global variable: throughput
+	public Map<String, Throughput> getThroughput() {
+		return Throughput.values().stream().collect(toMap(t -> t.getName().toLowerCase(), t -> t, (a, b) -> a, LinkedHashMap::new));
+	}
+
 	@Override
 	public Object run() {
 		return null;
@@ -410,6 +416,20 @@ public abstract class ScriptShellBaseClass extends Script {
 		return null;
 	}
 
+	public Map<String, List<File>> findDuplicates(Map<String, ?> parameters) throws Exception {
+		List<File> files = getInputFileList(parameters);
+		FileFilter filter = getFileFilter(parameters);
+		ArgumentBean args = getArgumentBean(parameters);
+
+		try {
+			return getCLI().findDuplicates(files, filter == null ? FILES : filter, args.getDuplicateHashType());
+		} catch (Exception e) {
+			printException(e);
+		}
+
+		return null;
+	}
+
 	public List<File> extract(Map<String, ?> parameters) throws Exception {
 		List<File> files = getInputFileList(parameters);
 		FileFilter filter = getFileFilter(parameters);
@@ -34,6 +34,7 @@ import groovy.lang.Range;
 import net.filebot.MediaTypes;
 import net.filebot.MetaAttributeView;
 import net.filebot.media.MediaDetection;
+import net.filebot.media.VideoQuality;
 import net.filebot.media.XattrMetaInfo;
 import net.filebot.similarity.NameSimilarityMetric;
 import net.filebot.similarity.Normalization;
@@ -379,6 +380,10 @@ public class ScriptShellMethods {
 	}
 
 	public static FolderWatchService watchFolder(File self, boolean watchTree, boolean commitPerFolder, long commitDelay, final Closure<?> callback) throws IOException {
+		return watchFolder(self, watchTree, commitPerFolder, commitDelay, 1000, 1, callback);
+	}
+
+	public static FolderWatchService watchFolder(File self, boolean watchTree, boolean commitPerFolder, long commitDelay, long stabilityDelay, int maxConcurrency, final Closure<?> callback) throws IOException {
 		FolderWatchService watchService = new FolderWatchService(watchTree) {
 
 			@Override
@@ -391,6 +396,10 @@ public class ScriptShellMethods {
 		watchService.setCommitDelay(commitDelay);
 		watchService.setCommitPerFolder(commitPerFolder);
 
+		// wait until files have stopped changing and process multiple folders at the same time only if requested
+		watchService.setStabilityDelay(stabilityDelay);
+		watchService.setMaxConcurrency(maxConcurrency);
+
 		// start watching the given folder
 		watchService.watchFolder(self);
 
@@ -414,6 +423,11 @@ public class ScriptShellMethods {
 		return values;
 	}
 
+	public static List<File> sortByQuality(Collection<File> self) {
+		// best quality first
+		return VideoQuality.sortDescending(self);
+	}
+
 	public static MetaAttributeView getXattr(File self) {
 		try {
 			return new MetaAttributeView(self);
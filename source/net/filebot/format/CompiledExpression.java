@@ -0,0 +1,234 @@
+package net.filebot.format;
+
+import static net.filebot.Logging.*;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.jsr223.GroovyCompiledScript;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import groovy.lang.GroovyClassLoader;
+import net.filebot.Cache;
+import net.filebot.CacheType;
+import net.filebot.util.SystemProperty;
+
+/**
+ * All Groovy scriptlets of an expression compiled into a single script class. Each scriptlet is generated as a separate method, and the script body calls each method and catches exceptions for each scriptlet individually, so that all scriptlets are evaluated in one go while errors are still suppressed on a per-scriptlet basis.
+ */
+class CompiledExpression {
+
+	public static final SystemProperty<Integer> CACHE_SIZE = SystemProperty.of("net.filebot.format.CompiledExpression.cache", Integer::parseInt, 100);
+	public static final SystemProperty<Boolean> PERSISTENT_CACHE = SystemProperty.of("net.filebot.format.CompiledExpression.persistent", Boolean::parseBoolean, true);
+
+	private static final String SCRIPT_NAME = "Expression";
+
+	private final CompiledScript script;
+	private final int size;
+
+	public CompiledExpression(CompiledScript script, int size) {
+		this.script = script;
+		this.size = size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return scriptlet that yields the value (or throws the exception) of the scriptlet with the given index
+	 */
+	public CompiledScript getScriptlet(int index) {
+		return new Scriptlet(index);
+	}
+
+	protected Object[] eval(ScriptContext context) {
+		// evaluate all scriptlets only once per context
+		if (context instanceof Context) {
+			return ((Context) context).results.computeIfAbsent(this, k -> evalScript(context));
+		}
+		return evalScript(context);
+	}
+
+	private Object[] evalScript(ScriptContext context) {
+		try {
+			return (Object[]) script.eval(context);
+		} catch (ScriptException e) {
+			// all scriptlets fail with the same exception
+			Object[] values = new Object[size];
+			Exception[] errors = new Exception[size];
+			for (int i = 0; i < size; i++) {
+				errors[i] = e;
+			}
+			return new Object[] { values, errors };
+		}
+	}
+
+	private class Scriptlet extends CompiledScript {
+
+		private final int index;
+
+		public Scriptlet(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Object eval(ScriptContext context) throws ScriptException {
+			Object[] results = CompiledExpression.this.eval(context);
+			Object[] values = (Object[]) results[0];
+			Object[] errors = (Object[]) results[1];
+
+			if (errors[index] instanceof ScriptException) {
+				throw (ScriptException) errors[index];
+			}
+			if (errors[index] != null) {
+				throw new ScriptException((Exception) errors[index]);
+			}
+			return values[index];
+		}
+
+		@Override
+		public ScriptEngine getEngine() {
+			return script.getEngine();
+		}
+	}
+
+	/**
+	 * Script context that keeps track of the results of each {@link CompiledExpression} that has been evaluated in this context
+	 */
+	public static class Context extends SimpleScriptContext {
+
+		private final Map<CompiledExpression, Object[]> results = new IdentityHashMap<CompiledExpression, Object[]>(1);
+
+	}
+
+	protected static String generateScript(List<String> scriptlets) {
+		StringBuilder script = new StringBuilder();
+		int size = scriptlets.size();
+
+		script.append("def $values = new Object[").append(size).append("]\n");
+		script.append("def $errors = new Exception[").append(size).append("]\n");
+		for (int i = 0; i < size; i++) {
+			script.append("try { $values[").append(i).append("] = $scriptlet").append(i).append("() } catch (Exception e) { $errors[").append(i).append("] = e }\n");
+		}
+		script.append("return [$values, $errors] as Object[]\n");
+
+		// scriptlet code on separate lines so that trailing line comments don't break the generated code
+		for (int i = 0; i < size; i++) {
+			script.append("def $scriptlet").append(i).append("() {\n").append(scriptlets.get(i)).append("\n}\n");
+		}
+
+		return script.toString();
+	}
+
+	private static final Map<String, CompiledExpression> cache = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, CompiledExpression> eldest) {
+			return size() > CACHE_SIZE.get();
+		}
+	};
+
+	public static CompiledExpression compile(String expression, List<String> scriptlets, GroovyScriptEngineImpl engine) throws ScriptException {
+		synchronized (cache) {
+			CompiledExpression compiledExpression = cache.get(expression);
+			if (compiledExpression != null) {
+				return compiledExpression;
+			}
+		}
+
+		// compile outside of the lock so that different expressions can be compiled concurrently
+		CompiledExpression compiledExpression = new CompiledExpression(compileScript(expression, generateScript(scriptlets), engine), scriptlets.size());
+
+		synchronized (cache) {
+			CompiledExpression previous = cache.putIfAbsent(expression, compiledExpression);
+			return previous != null ? previous : compiledExpression;
+		}
+	}
+
+	/**
+	 * Compiled classes are cached persistently by expression text only. The bytecode also depends on the compiler configuration and the classes of the current application version, so cached classes are only valid because the persistent cache is wiped whenever the application revision changes.
+	 */
+	private static CompiledScript compileScript(String expression, String script, GroovyScriptEngineImpl engine) throws ScriptException {
+		Cache persistentCache = PERSISTENT_CACHE.get() ? Cache.getCache("expression", CacheType.Persistent) : null;
+
+		// load precompiled classes if possible
+		if (persistentCache != null) {
+			Map<String, byte[]> classes = getClasses(persistentCache.get(expression));
+			if (classes != null) {
+				try {
+					return defineScript(classes, engine);
+				} catch (Exception | LinkageError e) {
+					debug.finest(cause("Failed to load compiled expression", e));
+				}
+			}
+		}
+
+		Map<String, byte[]> classes = compileClasses(script, engine);
+		if (persistentCache != null) {
+			persistentCache.put(expression, classes);
+		}
+
+		return defineScript(classes, engine);
+	}
+
+	/**
+	 * @return class name to bytecode map or null if the given cache value is not a valid class map
+	 */
+	private static Map<String, byte[]> getClasses(Object value) {
+		if (value instanceof Map) {
+			Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+			for (Entry<?, ?> it : ((Map<?, ?>) value).entrySet()) {
+				if (!(it.getKey() instanceof String) || !(it.getValue() instanceof byte[])) {
+					return null;
+				}
+				classes.put((String) it.getKey(), (byte[]) it.getValue());
+			}
+			return classes;
+		}
+		return null;
+	}
+
+	private static Map<String, byte[]> compileClasses(String script, GroovyScriptEngineImpl engine) throws ScriptException {
+		try {
+			CompilationUnit unit = new CompilationUnit(ExpressionFormat.createCompilerConfiguration(), null, engine.getClassLoader());
+			unit.addSource(SCRIPT_NAME + ".groovy", script);
+			unit.compile(Phases.CLASS_GENERATION);
+
+			// script class and closure classes
+			Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+			for (Object it : unit.getClasses()) {
+				GroovyClass c = (GroovyClass) it;
+				classes.put(c.getName(), c.getBytes());
+			}
+			return classes;
+		} catch (Exception e) {
+			throw new ScriptException(e);
+		}
+	}
+
+	private static CompiledScript defineScript(Map<String, byte[]> classes, GroovyScriptEngineImpl engine) {
+		// each expression is loaded by its own class loader so that classes can be unloaded once the expression has been evicted from the cache
+		GroovyClassLoader classLoader = new GroovyClassLoader(engine.getClassLoader());
+		classes.forEach(classLoader::defineClass);
+
+		try {
+			return new GroovyCompiledScript(engine, classLoader.loadClass(SCRIPT_NAME));
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
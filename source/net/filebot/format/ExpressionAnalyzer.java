@@ -0,0 +1,58 @@
+package net.filebot.format;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.script.ScriptException;
+
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.DynamicVariable;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+
+/**
+ * Static analysis of scriptlet code, e.g. to find out which bindings a given expression depends on without evaluating it.
+ */
+class ExpressionAnalyzer {
+
+	/**
+	 * @return names of all variables that are not declared within the given scriptlet and will therefore be resolved via the script bindings
+	 */
+	public static Set<String> getDynamicVariables(String scriptlet) throws ScriptException {
+		try {
+			CompilationUnit unit = new CompilationUnit(ExpressionFormat.createCompilerConfiguration());
+			SourceUnit source = unit.addSource("Scriptlet.groovy", scriptlet);
+
+			// variable scopes are resolved during semantic analysis
+			unit.compile(Phases.SEMANTIC_ANALYSIS);
+
+			Set<String> variables = new TreeSet<String>();
+			ClassCodeVisitorSupport visitor = new ClassCodeVisitorSupport() {
+
+				@Override
+				public void visitVariableExpression(VariableExpression expression) {
+					if (expression.getAccessedVariable() instanceof DynamicVariable) {
+						variables.add(expression.getName());
+					}
+				}
+
+				@Override
+				protected SourceUnit getSourceUnit() {
+					return source;
+				}
+			};
+
+			for (ClassNode node : source.getAST().getClasses()) {
+				visitor.visitClass(node);
+			}
+
+			return variables;
+		} catch (Exception e) {
+			throw new ScriptException(e);
+		}
+	}
+
+}
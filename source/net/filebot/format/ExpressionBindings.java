@@ -1,7 +1,11 @@
 package net.filebot.format;
 
+import static java.util.Collections.*;
 import static net.filebot.util.ExceptionUtilities.*;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.AbstractMap;
 import java.util.HashSet;
@@ -15,30 +19,11 @@ public class ExpressionBindings extends AbstractMap<String, Object> implements B
 
 	protected final Object bindingBean;
 
-	protected final Map<String, Method> bindings = new TreeMap<String, Method>(String.CASE_INSENSITIVE_ORDER);
-
-	protected final Method undefined;
+	protected final BindingTable bindings;
 
 	public ExpressionBindings(Object bindingBean) {
 		this.bindingBean = bindingBean;
-
-		// get method bindings
-		for (Method method : bindingBean.getClass().getMethods()) {
-			Define define = method.getAnnotation(Define.class);
-
-			if (define != null) {
-				for (String name : define.value()) {
-					Method existingBinding = bindings.put(name, method);
-
-					if (existingBinding != null) {
-						throw new IllegalArgumentException(String.format("Illegal binding {%s} on %s", name, method.getName()));
-					}
-				}
-			}
-		}
-
-		// extract mapping that handles undefined bindings
-		undefined = bindings.remove(Define.undefined);
+		this.bindings = BINDING_TABLES.get(bindingBean.getClass());
 	}
 
 	protected boolean isUndefined(Object value) {
@@ -51,22 +36,20 @@ public class ExpressionBindings extends AbstractMap<String, Object> implements B
 
 	@Override
 	public Object get(Object key) {
-		Method method = bindings.get(key);
+		MethodHandle method = bindings.methods.get(key);
 
 		if (method != null) {
 			try {
-				Object value = method.invoke(bindingBean);
+				Object value = (Object) method.invokeExact(bindingBean);
 				if (!isUndefined(value)) {
 					return value;
 				}
-				if (undefined != null) {
-					return undefined.invoke(bindingBean, key); // invoke fallback method
-				}
-			} catch (Exception e) {
-				// check InvocationTargetException cause
-				if (e.getCause() instanceof BindingException) {
-					throw (BindingException) e.getCause();
+				if (bindings.undefined != null) {
+					return (Object) bindings.undefined.invokeExact(bindingBean, (Object) key); // invoke fallback method
 				}
+			} catch (BindingException e) {
+				throw e;
+			} catch (Throwable e) {
 				throw new BindingException(key, getRootCauseMessage(e), e);
 			}
 		}
@@ -87,17 +70,17 @@ public class ExpressionBindings extends AbstractMap<String, Object> implements B
 
 	@Override
 	public boolean containsKey(Object key) {
-		return bindings.containsKey(key);
+		return bindings.methods.containsKey(key);
 	}
 
 	@Override
 	public Set<String> keySet() {
-		return bindings.keySet();
+		return bindings.methods.keySet();
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return bindings.isEmpty();
+		return bindings.methods.isEmpty();
 	}
 
 	@Override
@@ -127,4 +110,64 @@ public class ExpressionBindings extends AbstractMap<String, Object> implements B
 		return entrySet;
 	}
 
+	private static final ClassValue<BindingTable> BINDING_TABLES = new ClassValue<BindingTable>() {
+
+		@Override
+		protected BindingTable computeValue(Class<?> type) {
+			return new BindingTable(type);
+		}
+	};
+
+	/**
+	 * Immutable {@link Define} method bindings of a binding bean class, shared by all binding objects of the same class
+	 */
+	protected static class BindingTable {
+
+		public final Map<String, MethodHandle> methods;
+		public final MethodHandle undefined;
+
+		public BindingTable(Class<?> type) {
+			Map<String, MethodHandle> methods = new TreeMap<String, MethodHandle>(String.CASE_INSENSITIVE_ORDER);
+			MethodHandle undefined = null;
+
+			// get method bindings
+			for (Method method : type.getMethods()) {
+				Define define = method.getAnnotation(Define.class);
+
+				if (define != null) {
+					for (String name : define.value()) {
+						// extract mapping that handles undefined bindings
+						if (name.equals(Define.undefined)) {
+							undefined = unreflect(method).asType(MethodType.methodType(Object.class, Object.class, Object.class));
+							continue;
+						}
+
+						MethodHandle existingBinding = methods.put(name, unreflect(method).asType(MethodType.methodType(Object.class, Object.class)));
+
+						if (existingBinding != null) {
+							throw new IllegalArgumentException(String.format("Illegal binding {%s} on %s", name, method.getName()));
+						}
+					}
+				}
+			}
+
+			this.methods = unmodifiableMap(methods);
+			this.undefined = undefined;
+		}
+
+		private static MethodHandle unreflect(Method method) {
+			try {
+				return MethodHandles.publicLookup().unreflect(method);
+			} catch (IllegalAccessException e) {
+				// e.g. public method of a non-public class
+				method.setAccessible(true);
+				try {
+					return MethodHandles.lookup().unreflect(method);
+				} catch (IllegalAccessException cause) {
+					throw new IllegalArgumentException(cause);
+				}
+			}
+		}
+	}
+
 }
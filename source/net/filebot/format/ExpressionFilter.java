@@ -12,16 +12,24 @@ import javax.script.SimpleScriptContext;
 
 import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
 
+import net.filebot.util.SystemProperty;
+
 public class ExpressionFilter {
 
+	public static final SystemProperty<Boolean> NATIVE_PREDICATE = SystemProperty.of("net.filebot.format.ExpressionFilter.native", Boolean::parseBoolean, true);
+
 	private final String expression;
+	private final ExpressionPredicate predicate;
 	private final CompiledScript compiledExpression;
 
 	private Throwable lastException;
 
 	public ExpressionFilter(String expression) throws ScriptException {
 		this.expression = expression;
-		this.compiledExpression = new SecureCompiledScript(compileScriptlet(expression));
+
+		// evaluate simple comparisons natively and use the script engine for everything else
+		this.predicate = NATIVE_PREDICATE.get() ? ExpressionPredicate.parse(expression) : null;
+		this.compiledExpression = predicate == null ? new SecureCompiledScript(compileScriptlet(expression)) : null;
 	}
 
 	public String getExpression() {
@@ -39,8 +47,18 @@ public class ExpressionFilter {
 	public boolean matches(Bindings bindings) {
 		this.lastException = null;
 
+		if (predicate != null) {
+			try {
+				return predicate.test(bindings);
+			} catch (Throwable e) {
+				// ignore any and all binding exceptions
+				this.lastException = e;
+			}
+			return false;
+		}
+
 		// use privileged bindings so we are not restricted by the script sandbox
-		Bindings priviledgedBindings = PrivilegedInvocation.newProxy(Bindings.class, bindings, AccessController.getContext());
+		Bindings priviledgedBindings = new PrivilegedBindings(bindings, AccessController.getContext());
 
 		// initialize script context with the privileged bindings
 		ScriptContext context = new SimpleScriptContext();
@@ -1,5 +1,7 @@
 package net.filebot.format;
 
+import static java.util.Collections.*;
+import static net.filebot.Logging.*;
 import static net.filebot.util.ExceptionUtilities.*;
 
 import java.security.AccessController;
@@ -7,9 +9,11 @@ import java.text.FieldPosition;
 import java.text.Format;
 import java.text.ParsePosition;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 import javax.lang.model.SourceVersion;
@@ -19,7 +23,6 @@ import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
-import javax.script.SimpleScriptContext;
 
 import org.codehaus.groovy.control.CompilerConfiguration;
 import org.codehaus.groovy.control.MultipleCompilationErrorsException;
@@ -36,7 +39,9 @@ public class ExpressionFormat extends Format {
 
 	private final Object[] compilation;
 
-	private SuppressedThrowables suppressed;
+	private volatile SuppressedThrowables suppressed;
+
+	private volatile Set<String> bindingNames;
 
 	public ExpressionFormat(String expression) throws ScriptException {
 		this.expression = expression;
@@ -47,7 +52,29 @@ public class ExpressionFormat extends Format {
 		return expression;
 	}
 
-	protected Object[] compile(String expression) throws ScriptException {
+	/**
+	 * @return names of all bindings that are referenced by this expression (e.g. to retrieve the corresponding data ahead of time)
+	 */
+	public Set<String> getBindingNames() throws ScriptException {
+		Set<String> names = bindingNames;
+		if (names == null) {
+			names = new TreeSet<String>();
+			for (Object snippet : parse(expression)) {
+				if (snippet instanceof Scriptlet) {
+					Scriptlet scriptlet = (Scriptlet) snippet;
+					if (scriptlet.isVariable()) {
+						names.add(scriptlet.code);
+					} else {
+						names.addAll(ExpressionAnalyzer.getDynamicVariables(scriptlet.code));
+					}
+				}
+			}
+			bindingNames = names = unmodifiableSet(names);
+		}
+		return names;
+	}
+
+	private static List<Object> parse(String expression) throws ScriptException {
 		List<Object> compilation = new ArrayList<Object>();
 
 		char open = '{';
@@ -74,23 +101,8 @@ public class ExpressionFormat extends Format {
 			} else if (c == close) {
 				if (level == 1) {
 					if (token.length() > 0) {
-						try {
-							compilation.add(compileScriptlet(token.toString()));
-						} catch (ScriptException e) {
-							// try to extract syntax exception
-							ScriptException illegalSyntax = e;
-
-							try {
-								String message = findCause(e, MultipleCompilationErrorsException.class).getErrorCollector().getSyntaxError(0).getOriginalMessage();
-								illegalSyntax = new ScriptException("SyntaxError: " + message);
-							} catch (Exception ignore) {
-								// ignore, just use original exception
-							}
-
-							throw illegalSyntax;
-						} finally {
-							token.setLength(0);
-						}
+						compilation.add(new Scriptlet(token.toString()));
+						token.setLength(0);
 					}
 				} else {
 					token.append(c);
@@ -117,9 +129,63 @@ public class ExpressionFormat extends Format {
 			compilation.add(token.toString());
 		}
 
+		return compilation;
+	}
+
+	protected Object[] compile(String expression) throws ScriptException {
+		List<Object> compilation = parse(expression);
+
+		// simple expressions like {n} don't need to be interpreted by the script engine
+		List<String> scriptlets = new ArrayList<String>();
+		for (Object snippet : compilation) {
+			if (snippet instanceof Scriptlet && !((Scriptlet) snippet).isVariable()) {
+				scriptlets.add(((Scriptlet) snippet).code);
+			}
+		}
+
+		// compile all scriptlets into a single script class
+		CompiledExpression compiledExpression = null;
+		if (scriptlets.size() > 0) {
+			try {
+				compiledExpression = CompiledExpression.compile(expression, scriptlets, (GroovyScriptEngineImpl) getGroovyScriptEngine());
+			} catch (ScriptException e) {
+				// compile each scriptlet separately, so that syntax errors refer to the offending scriptlet, and so that scriptlets that can't be inlined (e.g. import statements or method definitions) still work
+				debug.finest(cause("Failed to compile expression as a whole", e));
+			}
+		}
+
+		for (int i = 0, index = 0; i < compilation.size(); i++) {
+			if (compilation.get(i) instanceof Scriptlet) {
+				Scriptlet scriptlet = (Scriptlet) compilation.get(i);
+				if (compiledExpression != null && !scriptlet.isVariable()) {
+					compilation.set(i, compiledExpression.getScriptlet(index++));
+				} else {
+					compilation.set(i, compileScriptletWithSyntaxError(scriptlet.code));
+				}
+			}
+		}
+
 		return compilation.toArray();
 	}
 
+	private static CompiledScript compileScriptletWithSyntaxError(String expression) throws ScriptException {
+		try {
+			return compileScriptlet(expression);
+		} catch (ScriptException e) {
+			// try to extract syntax exception
+			ScriptException illegalSyntax = e;
+
+			try {
+				String message = findCause(e, MultipleCompilationErrorsException.class).getErrorCollector().getSyntaxError(0).getOriginalMessage();
+				illegalSyntax = new ScriptException("SyntaxError: " + message);
+			} catch (Exception ignore) {
+				// ignore, just use original exception
+			}
+
+			throw illegalSyntax;
+		}
+	}
+
 	public Bindings getBindings(Object value) {
 		return new ExpressionBindings(value);
 	}
@@ -130,11 +196,27 @@ public class ExpressionFormat extends Format {
 	}
 
 	public String format(Bindings bindings) {
+		Result result = evaluate(bindings);
+
+		// store for later (only meaningful if this format is not used concurrently)
+		this.suppressed = result.getSuppressed();
+
+		return result.getValue();
+	}
+
+	/**
+	 * Format the given bindings and return the value together with the exceptions that have been suppressed during this particular call, so that the same format can be used by multiple threads at the same time.
+	 */
+	public Result evaluate(Object value) {
+		return evaluate(getBindings(value));
+	}
+
+	public Result evaluate(Bindings bindings) {
 		// use privileged bindings so we are not restricted by the script sandbox
-		Bindings priviledgedBindings = PrivilegedInvocation.newProxy(Bindings.class, bindings, AccessController.getContext());
+		Bindings priviledgedBindings = new PrivilegedBindings(bindings, AccessController.getContext());
 
 		// initialize script context with the privileged bindings
-		ScriptContext context = new SimpleScriptContext();
+		ScriptContext context = new CompiledExpression.Context();
 		context.setBindings(priviledgedBindings, ScriptContext.GLOBAL_SCOPE);
 
 		// reset exception state
@@ -163,10 +245,7 @@ public class ExpressionFormat extends Format {
 			throw new SuppressedThrowables("Expression yields empty value", suppressed);
 		}
 
-		// store for later (not thread-safe)
-		this.suppressed = suppressed.isEmpty() ? null : new SuppressedThrowables("Suppressed", suppressed);
-
-		return value;
+		return new Result(value, suppressed.isEmpty() ? null : new SuppressedThrowables("Suppressed", suppressed));
 	}
 
 	public SuppressedThrowables suppressed() {
@@ -225,9 +304,9 @@ public class ExpressionFormat extends Format {
 	}
 
 	private static ScriptEngine engine;
-	private static Map<String, CompiledScript> scriptletCache = new HashMap<String, CompiledScript>();
+	private static Map<String, CompiledScript> scriptletCache = new ConcurrentHashMap<String, CompiledScript>();
 
-	protected static ScriptEngine createScriptEngine() {
+	protected static CompilerConfiguration createCompilerConfiguration() {
 		CompilerConfiguration config = new CompilerConfiguration();
 
 		// include default functions
@@ -235,7 +314,11 @@ public class ExpressionFormat extends Format {
 		imports.addStaticStars(ExpressionFormatFunctions.class.getName());
 		config.addCompilationCustomizers(imports);
 
-		GroovyClassLoader classLoader = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(), config);
+		return config;
+	}
+
+	protected static ScriptEngine createScriptEngine() {
+		GroovyClassLoader classLoader = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(), createCompilerConfiguration());
 		return new GroovyScriptEngineImpl(classLoader);
 	}
 
@@ -246,21 +329,63 @@ public class ExpressionFormat extends Format {
 		return engine;
 	}
 
-	protected static synchronized CompiledScript compileScriptlet(String expression) throws ScriptException {
+	protected static CompiledScript compileScriptlet(String expression) throws ScriptException {
 		// simple expressions like {n} don't need to be interpreted by the script engine
 		if (SourceVersion.isIdentifier(expression) && !SourceVersion.isKeyword(expression)) {
 			return new Variable(expression);
 		}
 
+		// compile outside of any lock so that different scriptlets can be compiled concurrently
 		CompiledScript scriptlet = scriptletCache.get(expression);
 		if (scriptlet == null) {
 			Compilable engine = (Compilable) getGroovyScriptEngine();
 			scriptlet = engine.compile(expression);
-			scriptletCache.put(expression, scriptlet);
+
+			CompiledScript previous = scriptletCache.putIfAbsent(expression, scriptlet);
+			if (previous != null) {
+				return previous;
+			}
 		}
 		return scriptlet;
 	}
 
+	public static class Result {
+
+		private final String value;
+		private final SuppressedThrowables suppressed;
+
+		public Result(String value, SuppressedThrowables suppressed) {
+			this.value = value;
+			this.suppressed = suppressed;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public SuppressedThrowables getSuppressed() {
+			return suppressed;
+		}
+
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+	private static class Scriptlet {
+
+		public final String code;
+
+		public Scriptlet(String code) {
+			this.code = code;
+		}
+
+		public boolean isVariable() {
+			return SourceVersion.isIdentifier(code) && !SourceVersion.isKeyword(code);
+		}
+	}
+
 	private static class Variable extends CompiledScript {
 
 		private String name;
@@ -1,6 +1,7 @@
 package net.filebot.format;
 
 import static java.util.Arrays.*;
+import static java.util.Collections.*;
 import static java.util.regex.Pattern.*;
 import static java.util.stream.Collectors.*;
 import static net.filebot.MediaTypes.*;
@@ -24,6 +25,7 @@ import java.time.temporal.Temporal;
 import java.time.temporal.TemporalAmount;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -45,6 +47,7 @@ import groovy.lang.Closure;
 import net.filebot.Language;
 import net.filebot.similarity.Normalization;
 import net.filebot.util.FileUtilities;
+import net.filebot.util.SystemProperty;
 import net.filebot.web.Episode;
 import net.filebot.web.EpisodeInfo;
 import net.filebot.web.Person;
@@ -53,6 +56,21 @@ import net.filebot.web.SimpleDate;
 
 public class ExpressionFormatMethods {
 
+	public static final SystemProperty<Integer> PATTERN_CACHE_SIZE = SystemProperty.of("net.filebot.format.ExpressionFormatMethods.patterns", Integer::parseInt, 200);
+	public static final SystemProperty<Integer> TRANSLITERATOR_CACHE_SIZE = SystemProperty.of("net.filebot.format.ExpressionFormatMethods.transliterators", Integer::parseInt, 10);
+
+	private static final Pattern WORD = compile("\\b(['`´]|\\p{Alnum})(\\p{Alnum}*)\\b", UNICODE_CHARACTER_CLASS);
+	private static final Pattern SORT_NAME = compile("^(The|A|An)\\s(.+)", CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS);
+	private static final Pattern NON_INITIAL = compile("\\s|\\B\\p{Alnum}+", UNICODE_CHARACTER_CLASS);
+	private static final Pattern TRAILING_BRACKETS = compile("\\s*[(]([^)]*)[)]$", UNICODE_CHARACTER_CLASS);
+	private static final Pattern[] PART = { compile("\\s*[(](\\w{1,3})[)]$", CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS), compile("\\W+Part (\\w+)\\W*$", CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS) };
+	private static final Pattern NUMBER = compile("\\b\\d+\\b");
+	private static final Pattern NON_ASCII = compile("\\P{ASCII}+");
+	private static final Pattern COMBINING_DIACRITICAL_MARKS = compile("\\p{InCombiningDiacriticalMarks}");
+	private static final Pattern BASIC_LATIN = compile("\\p{InBasicLatin}+");
+
+	private static final String ASCII = "Any-Latin;Latin-ASCII;[:Diacritic:]remove";
+
 	/**
 	 * Convenience methods for String.toLowerCase() and String.toUpperCase()
 	 */
@@ -96,7 +114,7 @@ public class ExpressionFormatMethods {
 	}
 
 	public static String match(String self, String pattern, int matchGroup) throws Exception {
-		Matcher matcher = compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS | MULTILINE).matcher(self);
+		Matcher matcher = pattern(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS | MULTILINE).matcher(self);
 		if (matcher.find()) {
 			return firstCapturingGroup(matcher, matchGroup);
 		} else {
@@ -113,7 +131,7 @@ public class ExpressionFormatMethods {
 
 	public static List<String> matchAll(String self, String pattern, int matchGroup) throws Exception {
 		List<String> matches = new ArrayList<String>();
-		Matcher matcher = compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS | MULTILINE).matcher(self);
+		Matcher matcher = pattern(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS | MULTILINE).matcher(self);
 		while (matcher.find()) {
 			matches.add(firstCapturingGroup(matcher, matchGroup));
 		}
@@ -139,11 +157,11 @@ public class ExpressionFormatMethods {
 	}
 
 	public static String replaceAll(String self, String pattern) {
-		return self.replaceAll(pattern, "");
+		return pattern(pattern, 0).matcher(self).replaceAll("");
 	}
 
 	public static String removeAll(String self, String pattern) {
-		return compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS | MULTILINE).matcher(self).replaceAll("").trim();
+		return pattern(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS | MULTILINE).matcher(self).replaceAll("").trim();
 	}
 
 	public static String removeIllegalCharacters(String self) {
@@ -205,7 +223,7 @@ public class ExpressionFormatMethods {
 	}
 
 	public static String replaceHeadTail(String self, Function<String, String> head, Function<String, String> tail) {
-		Matcher matcher = compile("\\b(['`´]|\\p{Alnum})(\\p{Alnum}*)\\b", UNICODE_CHARACTER_CLASS).matcher(self);
+		Matcher matcher = WORD.matcher(self);
 
 		StringBuffer buffer = new StringBuffer();
 		while (matcher.find()) {
@@ -220,7 +238,7 @@ public class ExpressionFormatMethods {
 	}
 
 	public static String sortName(String self, String replacement) {
-		return compile("^(The|A|An)\\s(.+)", CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self).replaceFirst(replacement).trim();
+		return SORT_NAME.matcher(self).replaceFirst(replacement).trim();
 	}
 
 	public static String sortInitial(String self) {
@@ -242,7 +260,7 @@ public class ExpressionFormatMethods {
 	 * e.g. "Deep Space 9" -> "DS9"
 	 */
 	public static String acronym(String self) {
-		return compile("\\s|\\B\\p{Alnum}+", UNICODE_CHARACTER_CLASS).matcher(space(sortName(self), " ")).replaceAll("");
+		return NON_INITIAL.matcher(space(sortName(self), " ")).replaceAll("");
 	}
 
 	public static String truncate(String self, int limit) {
@@ -257,7 +275,7 @@ public class ExpressionFormatMethods {
 			return self;
 
 		int softLimit = 0;
-		Matcher matcher = compile(nonWordPattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
+		Matcher matcher = pattern(nonWordPattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
 		while (matcher.find()) {
 			if (matcher.start() > hardLimit) {
 				break;
@@ -271,7 +289,7 @@ public class ExpressionFormatMethods {
 	 * Return substring before the given pattern.
 	 */
 	public static String before(String self, String pattern) {
-		Matcher matcher = compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
+		Matcher matcher = pattern(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
 
 		// pattern was found, return leading substring, else return original value
 		return matcher.find() ? self.substring(0, matcher.start()).trim() : self;
@@ -281,7 +299,7 @@ public class ExpressionFormatMethods {
 	 * Return substring after the given pattern.
 	 */
 	public static String after(String self, String pattern) {
-		Matcher matcher = compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
+		Matcher matcher = pattern(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
 
 		// pattern was found, return trailing substring, else return original value
 		return matcher.find() ? self.substring(matcher.end(), self.length()).trim() : self;
@@ -294,7 +312,7 @@ public class ExpressionFormatMethods {
 		if (pattern == null || pattern.isEmpty())
 			return false;
 
-		return compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self).find();
+		return pattern(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self).find();
 	}
 
 	/**
@@ -317,7 +335,7 @@ public class ExpressionFormatMethods {
 	}
 
 	public static String replaceTrailingBrackets(String self, String replacement) {
-		return compile("\\s*[(]([^)]*)[)]$", UNICODE_CHARACTER_CLASS).matcher(self).replaceAll(replacement);
+		return TRAILING_BRACKETS.matcher(self).replaceAll(replacement);
 	}
 
 	/**
@@ -331,10 +349,8 @@ public class ExpressionFormatMethods {
 
 	public static String replacePart(String self, String replacement) {
 		// handle '(n)', '(Part n)' and ': Part n' like syntax
-		String[] patterns = new String[] { "\\s*[(](\\w{1,3})[)]$", "\\W+Part (\\w+)\\W*$" };
-
-		for (String pattern : patterns) {
-			Matcher matcher = compile(pattern, CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS).matcher(self);
+		for (Pattern pattern : PART) {
+			Matcher matcher = pattern.matcher(self);
 			if (matcher.find()) {
 				return matcher.replaceAll(replacement).trim();
 			}
@@ -358,7 +374,7 @@ public class ExpressionFormatMethods {
 		numerals.put(1, "I");
 
 		StringBuffer s = new StringBuffer();
-		Matcher m = compile("\\b\\d+\\b").matcher(self);
+		Matcher m = NUMBER.matcher(self);
 		while (m.find()) {
 			int n = Integer.parseInt(m.group());
 			m.appendReplacement(s, n >= 1 && n <= 12 ? roman(n, numerals) : m.group());
@@ -380,7 +396,7 @@ public class ExpressionFormatMethods {
 	 * @see http://userguide.icu-project.org/transforms/general
 	 */
 	public static String transliterate(String self, String transformIdentifier) {
-		return Transliterator.getInstance(transformIdentifier).transform(self);
+		return transliterator(transformIdentifier).transform(self);
 	}
 
 	/**
@@ -393,7 +409,7 @@ public class ExpressionFormatMethods {
 	}
 
 	public static String ascii(String self, String fallback) {
-		return Transliterator.getInstance("Any-Latin;Latin-ASCII;[:Diacritic:]remove").transform(asciiQuotes(self)).replaceAll("\\P{ASCII}+", fallback).trim();
+		return NON_ASCII.matcher(transliterator(ASCII).transform(asciiQuotes(self))).replaceAll(fallback).trim();
 	}
 
 	public static String asciiQuotes(String self) {
@@ -401,7 +417,7 @@ public class ExpressionFormatMethods {
 	}
 
 	public static boolean isLatin(String self) {
-		return Normalizer.normalize(self, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}", "").matches("\\p{InBasicLatin}+");
+		return BASIC_LATIN.matcher(COMBINING_DIACRITICAL_MARKS.matcher(Normalizer.normalize(self, Normalizer.Form.NFD)).replaceAll("")).matches();
 	}
 
 	/**
@@ -593,6 +609,38 @@ public class ExpressionFormatMethods {
 		return null;
 	}
 
+	/**
+	 * Compiled patterns for user-defined regular expressions (e.g. {@code n.match(/\d+/)}) are shared by all threads
+	 */
+	private static final Map<String, Pattern> patternCache = synchronizedMap(new LinkedHashMap<String, Pattern>(64, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Entry<String, Pattern> eldest) {
+			return size() > PATTERN_CACHE_SIZE.get();
+		}
+	});
+
+	private static Pattern pattern(String regex, int flags) {
+		return patternCache.computeIfAbsent(flags + "/" + regex, k -> compile(regex, flags));
+	}
+
+	/**
+	 * Transliterator instances are expensive to create and must not be used by multiple threads at the same time
+	 */
+	private static final ThreadLocal<Map<String, Transliterator>> transliteratorCache = ThreadLocal.withInitial(() -> {
+		return new LinkedHashMap<String, Transliterator>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Entry<String, Transliterator> eldest) {
+				return size() > TRANSLITERATOR_CACHE_SIZE.get();
+			}
+		};
+	});
+
+	private static Transliterator transliterator(String id) {
+		return transliteratorCache.get().computeIfAbsent(id, Transliterator::getInstance);
+	}
+
 	private ExpressionFormatMethods() {
 		throw new UnsupportedOperationException();
 	}
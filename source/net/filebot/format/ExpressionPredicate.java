@@ -0,0 +1,331 @@
+package net.filebot.format;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.SourceVersion;
+import javax.script.Bindings;
+
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+import groovy.lang.MissingPropertyException;
+
+/**
+ * Native evaluator for the simple subset of filter expressions that only consist of bindings, literals, comparison operators and boolean operators (e.g. {@code s == 1 && age < 7}). Values are compared via the Groovy runtime, so the result is the same as if the expression had been evaluated as Groovy script.
+ */
+abstract class ExpressionPredicate {
+
+	public abstract Object eval(Bindings bindings);
+
+	public boolean test(Bindings bindings) {
+		return DefaultTypeTransformation.castToBoolean(eval(bindings));
+	}
+
+	/**
+	 * @return native predicate or null if the expression is not part of the supported subset and must be evaluated by the script engine
+	 */
+	public static ExpressionPredicate parse(String expression) {
+		try {
+			Parser parser = new Parser(tokenize(expression));
+			ExpressionPredicate predicate = parser.parseOr();
+			return parser.hasNext() ? null : predicate;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static final String[] OPERATORS = { "==", "!=", "<=", ">=", "&&", "||", "<", ">", "!", "(", ")", "-" };
+
+	private static List<Object> tokenize(String s) {
+		List<Object> tokens = new ArrayList<Object>();
+
+		for (int i = 0; i < s.length();) {
+			char c = s.charAt(i);
+
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+
+			// identifiers and keywords
+			if (Character.isJavaIdentifierStart(c)) {
+				int end = i + 1;
+				while (end < s.length() && Character.isJavaIdentifierPart(s.charAt(end))) {
+					end++;
+				}
+				tokens.add(new Name(s.substring(i, end)));
+				i = end;
+				continue;
+			}
+
+			// decimal numbers without type suffix
+			if (c >= '0' && c <= '9') {
+				int end = i;
+				while (end < s.length() && (Character.isDigit(s.charAt(end)) || s.charAt(end) == '.')) {
+					end++;
+				}
+				if (end < s.length() && Character.isJavaIdentifierPart(s.charAt(end))) {
+					throw new IllegalArgumentException("Number suffix");
+				}
+				if (c == '0' && end > i + 1 && s.charAt(i + 1) != '.') {
+					throw new IllegalArgumentException("Octal number");
+				}
+				tokens.add(new Literal(parseNumber(s.substring(i, end))));
+				i = end;
+				continue;
+			}
+
+			// plain strings without GString placeholders
+			if (c == '\'' || c == '"') {
+				StringBuilder value = new StringBuilder();
+				int end = i + 1;
+				for (; end < s.length() && s.charAt(end) != c; end++) {
+					char v = s.charAt(end);
+					if (v == '\\' || v == '$' || v == '\n') {
+						throw new IllegalArgumentException("Escape sequence");
+					}
+					value.append(v);
+				}
+				if (end >= s.length()) {
+					throw new IllegalArgumentException("Unterminated string");
+				}
+				tokens.add(new Literal(value.toString()));
+				i = end + 1;
+				continue;
+			}
+
+			String operator = null;
+			for (String op : OPERATORS) {
+				if (s.startsWith(op, i)) {
+					operator = op;
+					break;
+				}
+			}
+
+			// e.g. =~ or ==~ or <=> or === are not supported
+			if (operator == null || s.startsWith("==~", i) || s.startsWith("===", i) || s.startsWith("!==", i) || s.startsWith("<=>", i)) {
+				throw new IllegalArgumentException("Unsupported token: " + c);
+			}
+
+			tokens.add(operator);
+			i += operator.length();
+		}
+
+		return tokens;
+	}
+
+	private static Object parseNumber(String s) {
+		if (s.indexOf('.') >= 0) {
+			if (s.endsWith(".") || s.indexOf('.') != s.lastIndexOf('.')) {
+				throw new IllegalArgumentException("Bad number: " + s);
+			}
+			return new BigDecimal(s);
+		}
+
+		// same integer types as the Groovy compiler
+		BigInteger value = new BigInteger(s);
+		if (value.bitLength() < 32) {
+			return value.intValue();
+		}
+		if (value.bitLength() < 64) {
+			return value.longValue();
+		}
+		return value;
+	}
+
+	private static class Parser {
+
+		private final List<Object> tokens;
+		private int position = 0;
+
+		public Parser(List<Object> tokens) {
+			this.tokens = tokens;
+		}
+
+		public boolean hasNext() {
+			return position < tokens.size();
+		}
+
+		private Object peek() {
+			return hasNext() ? tokens.get(position) : null;
+		}
+
+		private boolean accept(String operator) {
+			if (operator.equals(peek())) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private Object next() {
+			if (!hasNext()) {
+				throw new IllegalArgumentException("Unexpected end of expression");
+			}
+			return tokens.get(position++);
+		}
+
+		public ExpressionPredicate parseOr() {
+			ExpressionPredicate left = parseAnd();
+			while (accept("||")) {
+				ExpressionPredicate a = left, b = parseAnd();
+				left = new Operator(bindings -> a.test(bindings) || b.test(bindings));
+			}
+			return left;
+		}
+
+		private ExpressionPredicate parseAnd() {
+			ExpressionPredicate left = parseComparison();
+			while (accept("&&")) {
+				ExpressionPredicate a = left, b = parseComparison();
+				left = new Operator(bindings -> a.test(bindings) && b.test(bindings));
+			}
+			return left;
+		}
+
+		private ExpressionPredicate parseNot() {
+			if (accept("!")) {
+				ExpressionPredicate a = parseNot();
+				return new Operator(bindings -> !a.test(bindings));
+			}
+			return parseOperand();
+		}
+
+		private ExpressionPredicate parseComparison() {
+			// unary operators bind more tightly than comparison operators (i.e. !a == b is the same as (!a) == b)
+			ExpressionPredicate left = parseNot();
+
+			Object operator = peek();
+			if (operator instanceof String && ((String) operator).matches("==|!=|<|<=|>|>=")) {
+				position++;
+				ExpressionPredicate a = left, b = parseNot();
+
+				switch ((String) operator) {
+				case "==":
+					return new Operator(bindings -> DefaultTypeTransformation.compareEqual(a.eval(bindings), b.eval(bindings)));
+				case "!=":
+					return new Operator(bindings -> !DefaultTypeTransformation.compareEqual(a.eval(bindings), b.eval(bindings)));
+				case "<":
+					return new Operator(bindings -> DefaultTypeTransformation.compareTo(a.eval(bindings), b.eval(bindings)) < 0);
+				case "<=":
+					return new Operator(bindings -> DefaultTypeTransformation.compareTo(a.eval(bindings), b.eval(bindings)) <= 0);
+				case ">":
+					return new Operator(bindings -> DefaultTypeTransformation.compareTo(a.eval(bindings), b.eval(bindings)) > 0);
+				case ">=":
+					return new Operator(bindings -> DefaultTypeTransformation.compareTo(a.eval(bindings), b.eval(bindings)) >= 0);
+				}
+			}
+
+			return left;
+		}
+
+		private ExpressionPredicate parseOperand() {
+			if (accept("(")) {
+				ExpressionPredicate value = parseOr();
+				if (!accept(")")) {
+					throw new IllegalArgumentException("Missing token: )");
+				}
+				return value;
+			}
+
+			// negative number literals
+			if (accept("-")) {
+				Object token = next();
+				if (token instanceof Literal && ((Literal) token).value instanceof Number) {
+					return new Literal(negate((Number) ((Literal) token).value));
+				}
+				throw new IllegalArgumentException("Unexpected token: " + token);
+			}
+
+			Object token = next();
+			if (token instanceof Literal) {
+				return (Literal) token;
+			}
+
+			if (token instanceof Name) {
+				String name = ((Name) token).name;
+				switch (name) {
+				case "true":
+					return new Literal(true);
+				case "false":
+					return new Literal(false);
+				case "null":
+					return new Literal(null);
+				}
+
+				// property access or method calls (e.g. n.length() or any{...}) are not supported
+				if (SourceVersion.isKeyword(name) || "(".equals(peek())) {
+					throw new IllegalArgumentException("Unexpected token: " + name);
+				}
+				return (Name) token;
+			}
+
+			throw new IllegalArgumentException("Unexpected token: " + token);
+		}
+
+		private static Number negate(Number n) {
+			if (n instanceof Integer)
+				return -n.intValue();
+			if (n instanceof Long)
+				return -n.longValue();
+			if (n instanceof BigInteger)
+				return ((BigInteger) n).negate();
+			return ((BigDecimal) n).negate();
+		}
+	}
+
+	private static class Literal extends ExpressionPredicate {
+
+		private final Object value;
+
+		public Literal(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object eval(Bindings bindings) {
+			return value;
+		}
+	}
+
+	private static class Name extends ExpressionPredicate {
+
+		private final String name;
+
+		public Name(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Object eval(Bindings bindings) {
+			// same as the script engine binding
+			if (!bindings.containsKey(name)) {
+				throw new MissingPropertyException(name, ExpressionPredicate.class);
+			}
+			return bindings.get(name);
+		}
+	}
+
+	private static class Operator extends ExpressionPredicate {
+
+		private final Evaluation evaluation;
+
+		public Operator(Evaluation evaluation) {
+			this.evaluation = evaluation;
+		}
+
+		@Override
+		public Object eval(Bindings bindings) {
+			return evaluation.apply(bindings);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Evaluation {
+
+		boolean apply(Bindings bindings);
+	}
+
+}
@@ -30,13 +30,24 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -55,11 +66,13 @@ import net.filebot.media.MetaAttributes;
 import net.filebot.media.PlexNamingStandard;
 import net.filebot.media.VideoFormat;
 import net.filebot.mediainfo.ImageMetadata;
-import net.filebot.mediainfo.MediaInfo;
+import net.filebot.mediainfo.MediaHeader;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
 import net.filebot.mediainfo.MediaInfoException;
+import net.filebot.mediainfo.MediaInfoSnapshot;
 import net.filebot.similarity.Normalization;
 import net.filebot.similarity.SimilarityComparator;
+import net.filebot.util.DefaultThreadFactory;
 import net.filebot.util.FileUtilities;
 import net.filebot.util.WeakValueHashMap;
 import net.filebot.web.AudioTrack;
@@ -80,7 +93,8 @@ public class MediaBindingBean {
 	private final File mediaFile;
 	private final Map<File, ?> context;
 
-	private MediaInfo mediaInfo;
+	private MediaInfoSnapshot mediaInfo;
+	private Optional<MediaHeader> mediaHeader;
 
 	public MediaBindingBean(Object infoObject, File mediaFile) {
 		this(infoObject, mediaFile, null);
@@ -447,7 +461,7 @@ public class MediaBindingBean {
 		// collect value from Video Stream 0 or Image Stream 0
 		return Stream.of(StreamKind.Video, StreamKind.Image).map(k -> {
 			// collect Width and Height as Integer List
-			return Stream.of("Width", "Height").map(p -> getMediaInfo().get(k, 0, p)).filter(s -> s.length() > 0).map(Integer::parseInt).collect(toList());
+			return Stream.of("Width", "Height").map(p -> getMediaInfoValue(k, 0, p)).filter(s -> s.length() > 0).map(Integer::parseInt).collect(toList());
 		}).filter(d -> d.size() == 2).findFirst().orElse(null);
 	}
 
@@ -1173,17 +1187,18 @@ public class MediaBindingBean {
 		return null;
 	}
 
-	private static final Map<File, MediaInfo> sharedMediaInfoObjects = synchronizedMap(new WeakValueHashMap<File, MediaInfo>(64));
+	private static final Map<File, MediaInfoSnapshot> sharedMediaInfoObjects = synchronizedMap(new WeakValueHashMap<File, MediaInfoSnapshot>(64));
+	private static final Map<File, FutureTask<MediaInfoSnapshot>> loadingMediaInfoObjects = new ConcurrentHashMap<File, FutureTask<MediaInfoSnapshot>>();
 
-	private synchronized MediaInfo getMediaInfo() {
+	private synchronized MediaInfoSnapshot getMediaInfo() {
 		// lazy initialize
 		if (mediaInfo == null) {
 			// use inferred media file (e.g. actual movie file instead of subtitle file)
 			File inferredMediaFile = getInferredMediaFile();
 
-			mediaInfo = sharedMediaInfoObjects.computeIfAbsent(inferredMediaFile, f -> {
+			mediaInfo = getSharedObject(sharedMediaInfoObjects, loadingMediaInfoObjects, inferredMediaFile, f -> {
 				try {
-					return new MediaInfo().open(f);
+					return MediaInfoSnapshot.of(f);
 				} catch (IOException e) {
 					throw new MediaInfoException(e.getMessage());
 				}
@@ -1193,6 +1208,92 @@ public class MediaBindingBean {
 		return mediaInfo;
 	}
 
+	private static final Map<File, Optional<MediaHeader>> sharedMediaHeaderObjects = synchronizedMap(new WeakValueHashMap<File, Optional<MediaHeader>>(64));
+	private static final Map<File, FutureTask<Optional<MediaHeader>>> loadingMediaHeaderObjects = new ConcurrentHashMap<File, FutureTask<Optional<MediaHeader>>>();
+
+	private synchronized MediaHeader getMediaHeader() {
+		// use media info if it has been loaded already
+		if (mediaInfo != null) {
+			return null;
+		}
+
+		// lazy initialize
+		if (mediaHeader == null) {
+			// use inferred media file (e.g. actual movie file instead of subtitle file)
+			File inferredMediaFile = getInferredMediaFile();
+
+			mediaHeader = getSharedObject(sharedMediaHeaderObjects, loadingMediaHeaderObjects, inferredMediaFile, f -> {
+				// MediaInfo does not accept small files
+				if (MediaHeader.ENABLED.get() && f.isFile() && f.length() >= 64 * 1024) {
+					try {
+						return Optional.ofNullable(MediaHeader.read(f));
+					} catch (Exception e) {
+						debug.finest(cause("Failed to read media header", e));
+					}
+				}
+				return Optional.empty();
+			});
+		}
+
+		return mediaHeader.orElse(null);
+	}
+
+	/**
+	 * Load each file only once, but without holding a lock on the shared map while loading, so that different files can be loaded concurrently
+	 */
+	private static <T> T getSharedObject(Map<File, T> shared, Map<File, FutureTask<T>> loading, File file, Function<File, T> loader) {
+		T value = shared.get(file);
+		if (value != null) {
+			return value;
+		}
+
+		FutureTask<T> task = new FutureTask<T>(() -> loader.apply(file));
+		FutureTask<T> running = loading.putIfAbsent(file, task);
+
+		// wait for the thread that is already loading the same file
+		if (running != null) {
+			return getSharedObject(running);
+		}
+
+		try {
+			task.run();
+			value = getSharedObject(task);
+
+			// publish result
+			shared.put(file, value);
+			return value;
+		} finally {
+			loading.remove(file, task);
+		}
+	}
+
+	private static <T> T getSharedObject(Future<T> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException(e.getMessage());
+		}
+	}
+
+	private String getMediaInfoValue(StreamKind streamKind, int streamNumber, String key) {
+		// read core properties from the container header if possible
+		MediaHeader header = getMediaHeader();
+		if (header != null && header.isDefined(streamKind, streamNumber, key)) {
+			return header.get(streamKind, streamNumber, key);
+		}
+
+		return getMediaInfo().get(streamKind, streamNumber, key);
+	}
+
 	private Integer identityIndexOf(Iterable<?> c, Object o) {
 		Iterator<?> itr = c.iterator();
 		for (int i = 0; itr.hasNext(); i++) {
@@ -1206,7 +1307,7 @@ public class MediaBindingBean {
 
 	private String getMediaInfo(StreamKind streamKind, int streamNumber, String... keys) {
 		for (String key : keys) {
-			String value = getMediaInfo().get(streamKind, streamNumber, key);
+			String value = getMediaInfoValue(streamKind, streamNumber, key);
 			if (value.length() > 0) {
 				return value;
 			}
@@ -1289,6 +1390,101 @@ public class MediaBindingBean {
 		return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CHARACTER_CLASS);
 	}
 
+	static final Set<String> MEDIA_INFO_BINDINGS = Stream.of("vc", "ac", "cf", "vf", "hpi", "af", "channels", "aco", "resolution", "bitdepth", "ws", "hd", "dim", "width", "height", "mediaTitle", "audioLanguages", "textLanguages", "bitrate", "kbps", "mbps", "khz", "duration", "seconds", "minutes", "hours", "media", "menu", "image", "video", "audio", "text", "chapters", "encodedDate").collect(toSet());
+	static final Set<String> MEDIA_HEADER_BINDINGS = Stream.of("ac", "vf", "af", "resolution", "ws", "hd", "dim", "width", "height", "duration", "seconds", "minutes", "hours").collect(toSet());
+	static final Set<String> MOVIE_INFO_BINDINGS = Stream.of("t", "d", "languages", "runtime", "actors", "genres", "genre", "director", "certification", "rating", "votes", "collection", "info").collect(toSet());
+	static final Set<String> PRIMARY_MOVIE_INFO_BINDINGS = Stream.of("primaryTitle", "tmdbid", "imdbid", "omdb").collect(toSet());
+	static final Set<String> PRIMARY_SERIES_INFO_BINDINGS = Stream.of("primaryTitle", "omdb").collect(toSet());
+	static final Set<String> EPISODE_LIST_BINDINGS = Stream.of("episodelist", "sy", "sc").collect(toSet());
+
+	/**
+	 * @return true if the container header defines all the values that are read by the given binding
+	 */
+	private static boolean isDefinedByMediaHeader(MediaHeader header, String binding) {
+		switch (binding) {
+		case "ac":
+			return header.isDefined(StreamKind.Audio, 0, "CodecID/Hint") && header.isDefined(StreamKind.Audio, 0, "Format");
+		case "af":
+			return header.isDefined(StreamKind.Audio, 0, "Channel(s)_Original") && header.isDefined(StreamKind.Audio, 0, "Channel(s)");
+		case "vf":
+		case "resolution":
+		case "ws":
+		case "hd":
+		case "dim":
+		case "width":
+		case "height":
+			return header.isDefined(StreamKind.Video, 0, "Width") && header.isDefined(StreamKind.Video, 0, "Height");
+		case "duration":
+		case "seconds":
+		case "minutes":
+		case "hours":
+			return header.isDefined(StreamKind.General, 0, "Duration");
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Retrieve media info and online meta info for all given binding beans in parallel ahead of time, so that evaluating the given bindings later on doesn't block on I/O. Each movie or series is only looked up once, and failures are ignored here and will be reported when the binding is evaluated.
+	 */
+	public static void prefetch(Collection<MediaBindingBean> beans, Set<String> bindings) {
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+		if (!disjoint(bindings, MEDIA_INFO_BINDINGS)) {
+			// read container headers first if all media info bindings may be defined by the container header
+			Set<String> mediaInfoBindings = bindings.stream().filter(MEDIA_INFO_BINDINGS::contains).collect(toSet());
+			if (MEDIA_HEADER_BINDINGS.containsAll(mediaInfoBindings)) {
+				beans.stream().filter(it -> it.mediaFile != null).forEach(it -> tasks.add(() -> {
+					// read media info unless the container header defines all the values that are needed
+					MediaHeader header = it.getMediaHeader();
+					if (header != null && mediaInfoBindings.stream().allMatch(b -> isDefinedByMediaHeader(header, b))) {
+						return header;
+					}
+					return it.getMediaInfo();
+				}));
+			} else {
+				beans.stream().filter(it -> it.mediaFile != null).forEach(it -> tasks.add(it::getMediaInfo));
+			}
+		}
+
+		Collection<MediaBindingBean> movies = beans.stream().filter(it -> it.infoObject instanceof Movie).collect(toMap(it -> it.infoObject, it -> it, (a, b) -> a, LinkedHashMap::new)).values();
+		if (!disjoint(bindings, MOVIE_INFO_BINDINGS)) {
+			movies.forEach(it -> tasks.add(it::getMovieInfo));
+		}
+		if (!disjoint(bindings, PRIMARY_MOVIE_INFO_BINDINGS)) {
+			movies.forEach(it -> tasks.add(it::getPrimaryMovieInfo));
+		}
+
+		Collection<MediaBindingBean> series = beans.stream().filter(it -> it.infoObject instanceof Episode && it.getSeriesInfo() != null).collect(toMap(it -> asList(it.getSeriesInfo().getDatabase(), it.getSeriesInfo().getId()), it -> it, (a, b) -> a, LinkedHashMap::new)).values();
+		if (!disjoint(bindings, PRIMARY_SERIES_INFO_BINDINGS)) {
+			series.forEach(it -> tasks.add(it::getPrimarySeriesInfo));
+		}
+		if (!disjoint(bindings, EPISODE_LIST_BINDINGS)) {
+			series.forEach(it -> tasks.add(it::getEpisodeList));
+		}
+
+		if (tasks.isEmpty()) {
+			return;
+		}
+
+		debug.finest(format("Prefetch %s for %d items", bindings, tasks.size()));
+
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(Settings.getPreferredThreadPoolSize(), new DefaultThreadFactory("MediaBindingBeanPrefetch"));
+		try {
+			for (Future<Object> it : workerThreadPool.invokeAll(tasks)) {
+				try {
+					it.get();
+				} catch (ExecutionException e) {
+					debug.finest(cause("Prefetch failed", e.getCause()));
+				}
+			}
+		} catch (InterruptedException e) {
+			debug.finest(cause("Prefetch interrupted", e));
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return String.format("%s ⇔ %s", infoObject, mediaFile == null ? null : mediaFile.getName());
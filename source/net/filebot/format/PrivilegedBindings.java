@@ -0,0 +1,65 @@
+package net.filebot.format;
+
+import java.security.AccessControlContext;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+/**
+ * Evaluate bindings with the permissions of the given context (and not the permissions of the script sandbox) without going through a dynamic proxy for each call
+ */
+public class PrivilegedBindings extends AbstractMap<String, Object> implements Bindings {
+
+	private final Bindings bindings;
+	private final AccessControlContext context;
+
+	public PrivilegedBindings(Bindings bindings, AccessControlContext context) {
+		this.bindings = bindings;
+		this.context = context;
+	}
+
+	@Override
+	public Object get(Object key) {
+		return AccessController.doPrivileged((PrivilegedAction<Object>) () -> bindings.get(key), context);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		return bindings.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> map) {
+		bindings.putAll(map);
+	}
+
+	@Override
+	public Object remove(Object key) {
+		return bindings.remove(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return bindings.containsKey(key);
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return bindings.keySet();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return bindings.isEmpty();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return AccessController.doPrivileged((PrivilegedAction<Set<Entry<String, Object>>>) bindings::entrySet, context);
+	}
+
+}
@@ -0,0 +1,140 @@
+package net.filebot.hash;
+
+import static java.util.stream.Collectors.*;
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.web.OpenSubtitlesHasher;
+
+/**
+ * Find identical files in three stages: group by file size, then by a hash of the head and tail chunks (same sampling as the OpenSubtitles hash), and finally by the full hash of the remaining candidates.
+ */
+public class DuplicateFinder {
+
+	public static final int SAMPLE_SIZE = OpenSubtitlesHasher.HASH_CHUNK_SIZE;
+
+	private final HashType hashType;
+	private final int threadPoolSize;
+
+	public DuplicateFinder(HashType hashType, int threadPoolSize) {
+		this.hashType = hashType;
+		this.threadPoolSize = threadPoolSize;
+	}
+
+	/**
+	 * @return groups of identical files keyed by full hash
+	 */
+	public Map<String, List<File>> findDuplicates(Collection<File> files) throws Exception {
+		// stage 1: group by size (metadata only)
+		List<List<File>> candidates = candidates(files.stream().filter(File::isFile).distinct().collect(groupingBy(File::length, LinkedHashMap::new, toList())));
+		debug.fine(format("Size stage: %,d candidate groups", candidates.size()));
+
+		if (candidates.isEmpty()) {
+			return new LinkedHashMap<String, List<File>>();
+		}
+
+		// small files are fully read in the sample stage already
+		Map<File, String> fullHash = new ConcurrentHashMap<File, String>();
+
+		// can't use parallel stream because default fork/join pool doesn't play well with the security manager
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(threadPoolSize, new DefaultThreadFactory("DuplicateFinder"));
+		try {
+			// stage 2: group by size and head / tail sample (reads at most 128 KB per file)
+			candidates = candidates(partition(candidates, f -> f.length() + "/" + sample(f, fullHash), workerThreadPool));
+			debug.fine(format("Sample stage: %,d candidate groups", candidates.size()));
+
+			// stage 3: group by full hash
+			Map<String, List<File>> duplicates = partition(candidates, f -> {
+				String hash = fullHash.get(f);
+				return hash != null ? hash : hash(f);
+			}, workerThreadPool);
+
+			duplicates.values().removeIf(g -> g.size() < 2);
+			return duplicates;
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
+
+	protected String sample(File file, Map<File, String> fullHash) throws IOException {
+		long size = file.length();
+
+		if (size <= 2 * SAMPLE_SIZE) {
+			String hash = hash(file);
+			fullHash.put(file, hash);
+			return hash;
+		}
+
+		Hash hash = hashType.newHash();
+		ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			for (long position : new long[] { 0, size - SAMPLE_SIZE }) {
+				buffer.clear();
+				while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+					continue;
+				}
+				hash.update(buffer.array(), 0, buffer.position());
+			}
+		}
+
+		return hash.digest();
+	}
+
+	protected String hash(File file) throws IOException {
+		try {
+			return VerificationUtilities.computeHash(file, hashType);
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private Map<String, List<File>> partition(List<List<File>> groups, HashFunction function, ExecutorService executor) throws Exception {
+		// submit all files of all groups so that all workers are busy
+		Map<File, Future<String>> futures = new LinkedHashMap<File, Future<String>>();
+		for (List<File> group : groups) {
+			for (File f : group) {
+				futures.put(f, executor.submit(() -> function.apply(f)));
+			}
+		}
+
+		Map<String, List<File>> partitions = new LinkedHashMap<String, List<File>>();
+		for (Entry<File, Future<String>> it : futures.entrySet()) {
+			try {
+				partitions.computeIfAbsent(it.getValue().get(), k -> new ArrayList<File>()).add(it.getKey());
+			} catch (ExecutionException e) {
+				debug.warning(cause(it.getKey().getPath(), e));
+			}
+		}
+
+		return partitions;
+	}
+
+	private static <K> List<List<File>> candidates(Map<K, List<File>> groups) {
+		return groups.values().stream().filter(g -> g.size() > 1).collect(toList());
+	}
+
+	@FunctionalInterface
+	private interface HashFunction {
+
+		String apply(File file) throws IOException;
+	}
+
+}
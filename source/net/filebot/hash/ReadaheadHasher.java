@@ -0,0 +1,168 @@
+package net.filebot.hash;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Compute file hashes with I/O and hashing decoupled. The reading thread hands filled buffers to a hash worker through a bounded queue, so the reader can run ahead of the hash function by a fixed number of buffers.
+ */
+public class ReadaheadHasher {
+
+	private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+	private final Executor hashWorkers;
+
+	private final int bufferSize;
+	private final int readahead;
+
+	public ReadaheadHasher(Executor hashWorkers, int bufferSize, int readahead) {
+		this.hashWorkers = hashWorkers;
+		this.bufferSize = bufferSize;
+		this.readahead = readahead;
+	}
+
+	/**
+	 * Read the file sequentially on the current thread and hash the data on a hash worker thread
+	 */
+	public String hash(File file, HashType type, LongConsumer progress) throws IOException, InterruptedException {
+		BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<ByteBuffer>(readahead + 1);
+		BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<ByteBuffer>(readahead);
+
+		for (int i = 0; i < readahead; i++) {
+			empty.add(ByteBuffer.allocate(bufferSize));
+		}
+
+		FutureTask<String> digest = new FutureTask<String>(() -> {
+			Hash hash = type.newHash();
+
+			for (ByteBuffer buffer = filled.take(); buffer != EOF; buffer = filled.take()) {
+				hash.update(buffer.array(), 0, buffer.limit());
+				progress.accept(buffer.limit());
+				empty.put(buffer);
+			}
+
+			return hash.digest();
+		});
+		hashWorkers.execute(digest);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (!digest.isDone()) {
+				// wait for the hash worker to release a buffer
+				ByteBuffer buffer = empty.poll(100, TimeUnit.MILLISECONDS);
+				if (buffer == null) {
+					continue;
+				}
+
+				buffer.clear();
+
+				if (channel.read(buffer) < 0) {
+					filled.put(EOF);
+					break;
+				}
+
+				buffer.flip();
+				filled.put(buffer);
+
+				// make this long-running operation interruptible
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+
+			return get(digest);
+		} finally {
+			digest.cancel(true);
+		}
+	}
+
+	/**
+	 * Keep multiple read requests in flight for high-latency storage (e.g. network shares) and hash the results in order
+	 */
+	public String hash(File file, HashType type, int queueDepth, LongConsumer progress) throws IOException, InterruptedException {
+		if (queueDepth <= 1) {
+			return hash(file, type, progress);
+		}
+
+		Hash hash = type.newHash();
+
+		try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long length = channel.size();
+
+			ByteBuffer[] buffer = new ByteBuffer[queueDepth];
+			@SuppressWarnings("unchecked")
+			Future<Integer>[] request = (Future<Integer>[]) new Future<?>[queueDepth];
+
+			// issue initial read requests
+			long position = 0;
+			for (int i = 0; i < queueDepth && position < length; i++, position += bufferSize) {
+				buffer[i] = ByteBuffer.allocate(bufferSize);
+				request[i] = channel.read(buffer[i], position);
+			}
+
+			// consume completed requests in order and reuse buffers for the next read request
+			try {
+				for (long offset = 0; offset < length; offset += bufferSize) {
+					int i = (int) ((offset / bufferSize) % queueDepth);
+					int expected = (int) Math.min(bufferSize, length - offset);
+
+					// short read (e.g. network interruption) so we need to read the remaining bytes
+					for (int n = get(request[i]); n < expected;) {
+						if (n < 0) {
+							throw new EOFException(file.getPath());
+						}
+
+						int r = get(channel.read(buffer[i], offset + n));
+						n = r < 0 ? r : n + r;
+					}
+
+					hash.update(buffer[i].array(), 0, expected);
+					progress.accept(expected);
+
+					if (position < length) {
+						buffer[i].clear();
+						request[i] = channel.read(buffer[i], position);
+						position += bufferSize;
+					}
+
+					// make this long-running operation interruptible
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				}
+			} finally {
+				for (Future<Integer> it : request) {
+					if (it != null) {
+						it.cancel(true);
+					}
+				}
+			}
+		}
+
+		return hash.digest();
+	}
+
+	private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+}
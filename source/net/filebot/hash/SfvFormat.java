@@ -32,6 +32,12 @@ public class SfvFormat extends VerificationFormat {
 
 	@Override
 	public Entry<File, String> parseObject(String line) throws ParseException {
+		// try fast path for well-formed lines and use the regex for everything else
+		Entry<File, String> entry = parseSimpleLine(line);
+		if (entry != null) {
+			return entry;
+		}
+
 		Matcher matcher = pattern.matcher(line);
 
 		if (!matcher.matches()) {
@@ -41,4 +47,23 @@ public class SfvFormat extends VerificationFormat {
 		return entry(matcher.group(1), matcher.group(2));
 	}
 
+
+	@Override
+	protected Entry<File, String> parseSimpleLine(String line) {
+		// the last 8 characters are the hash and the greedy path group leaves exactly one whitespace character as separator
+		int split = line.length() - 9;
+
+		if (split < 1 || !isWhitespace(line.charAt(split))) {
+			return null;
+		}
+
+		for (int i = split + 1; i < line.length(); i++) {
+			if (!isHexDigit(line.charAt(i))) {
+				return null;
+			}
+		}
+
+		return entry(line.substring(0, split), line.substring(split + 1));
+	}
+
 }
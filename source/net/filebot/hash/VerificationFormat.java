@@ -55,6 +55,12 @@ public class VerificationFormat extends Format {
 
 	@Override
 	public Entry<File, String> parseObject(String line) throws ParseException {
+		// try fast path for well-formed lines and use the regex for everything else
+		Entry<File, String> entry = parseSimpleLine(line);
+		if (entry != null) {
+			return entry;
+		}
+
 		Matcher matcher = pattern.matcher(line);
 
 		if (!matcher.find()) {
@@ -64,6 +70,71 @@ public class VerificationFormat extends Format {
 		return entry(matcher.group(2), matcher.group(1));
 	}
 
+	/**
+	 * Parse lines such as {@code <hash> *<path>} or {@code <hash> ?SHA1*<path>} without regex overhead, or return {@code null} if the line is not in simple form.
+	 */
+	protected Entry<File, String> parseSimpleLine(String line) {
+		int length = line.length();
+		int i = 0;
+
+		// hash
+		while (i < length && isHexDigit(line.charAt(i))) {
+			i++;
+		}
+
+		int hashEnd = i;
+		if (hashEnd == 0) {
+			return null;
+		}
+
+		// separator
+		while (i < length && isWhitespace(line.charAt(i))) {
+			i++;
+		}
+
+		if (i == hashEnd || i == length) {
+			return null;
+		}
+
+		// optional ?TYPE hint must be followed by * binary flag
+		if (line.charAt(i) == '?') {
+			int j = i + 1;
+			while (j < length && isWordCharacter(line.charAt(j))) {
+				j++;
+			}
+
+			if (j == i + 1 || j >= length || line.charAt(j) != '*') {
+				return null;
+			}
+
+			i = j;
+		}
+
+		// optional * binary flag
+		if (line.charAt(i) == '*') {
+			i++;
+		}
+
+		if (i == length) {
+			return null;
+		}
+
+		return entry(line.substring(i), line.substring(0, hashEnd));
+	}
+
+	protected static boolean isHexDigit(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+
+	protected static boolean isWordCharacter(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	protected static boolean isWhitespace(char c) {
+		// same as \s in Java regex
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+
 	@Override
 	public Entry<File, String> parseObject(String line, ParsePosition pos) {
 		throw new UnsupportedOperationException();
@@ -0,0 +1,193 @@
+package net.filebot.hash;
+
+import static java.nio.charset.StandardCharsets.*;
+import static net.filebot.Logging.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.filebot.ApplicationFolder;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Checkpoint journal for long-running verification runs. Each verified entry is appended as one record, so that an interrupted run can be resumed with the same results. Entries that have failed with an error can be recorded again (e.g. retry on resume) and the last record for each entry wins.
+ */
+public class VerificationJournal implements Closeable {
+
+	public static final SystemProperty<Integer> CHECKPOINT_INTERVAL = SystemProperty.of("net.filebot.hash.VerificationJournal.checkpoint", Integer::parseInt, 1000);
+	public static final SystemProperty<Long> CHECKPOINT_MILLIS = SystemProperty.of("net.filebot.hash.VerificationJournal.checkpoint.millis", Long::parseLong, 5000L);
+
+	private static final String RECORD_END = "$";
+
+	public static VerificationJournal open(File verificationFile, HashType type) throws IOException {
+		File folder = ApplicationFolder.AppData.resolve("journal");
+		createFolders(folder);
+
+		File journal = new File(folder, md5(verificationFile.getAbsolutePath()) + ".check");
+		String header = String.join("\t", type.name(), String.valueOf(verificationFile.length()), String.valueOf(verificationFile.lastModified()), verificationFile.getAbsolutePath());
+
+		return new VerificationJournal(journal, header);
+	}
+
+	private final File file;
+	private final String header;
+	private final List<Record> records;
+
+	private Writer out;
+	private FileOutputStream stream;
+
+	private int pending = 0;
+	private long lastCheckpoint = System.currentTimeMillis();
+
+	public VerificationJournal(File file, String header) throws IOException {
+		this.file = file;
+		this.header = header;
+		this.records = read(file, header);
+
+		if (records.size() > 0) {
+			debug.fine(format("Resume verification from checkpoint: %,d entries [%s]", records.size(), file));
+		}
+
+		// rewrite valid records so that a truncated trailing record is dropped
+		this.stream = new FileOutputStream(file, false);
+		this.out = new BufferedWriter(new OutputStreamWriter(stream, UTF_8), BUFFER_SIZE);
+
+		out.write(header);
+		out.write('\n');
+		for (Record it : records) {
+			write(it);
+		}
+		checkpoint();
+	}
+
+	public int size() {
+		return records.size();
+	}
+
+	public Record get(int index) {
+		return index < records.size() ? records.get(index) : null;
+	}
+
+	public synchronized void record(int index, String hash, String error) throws IOException {
+		if (index > records.size()) {
+			throw new IllegalArgumentException(String.format("Out of order record: %d (expected %d)", index, records.size()));
+		}
+		if ((hash == null) == (error == null)) {
+			throw new IllegalArgumentException(String.format("Record %d must have either hash or error", index));
+		}
+
+		Record r = new Record(index, hash, error);
+		if (index < records.size()) {
+			records.set(index, r);
+		} else {
+			records.add(r);
+		}
+		write(r);
+
+		if (++pending >= CHECKPOINT_INTERVAL.get() || System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_MILLIS.get()) {
+			checkpoint();
+		}
+	}
+
+	public synchronized void checkpoint() throws IOException {
+		out.flush();
+		stream.getFD().sync();
+
+		pending = 0;
+		lastCheckpoint = System.currentTimeMillis();
+	}
+
+	private void write(Record r) throws IOException {
+		out.write(String.join("\t", String.valueOf(r.index), r.hash == null ? "" : r.hash, r.error == null ? "" : r.error.replaceAll("\\s", " "), RECORD_END));
+		out.write('\n');
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			checkpoint();
+			out.close();
+			out = null;
+		}
+	}
+
+	public void delete() throws IOException {
+		close();
+		file.delete();
+	}
+
+	private static List<Record> read(File file, String header) throws IOException {
+		List<Record> records = new ArrayList<Record>();
+
+		if (!file.exists()) {
+			return records;
+		}
+
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8), BUFFER_SIZE)) {
+			// discard checkpoints if the verification file has changed
+			if (!header.equals(in.readLine())) {
+				debug.fine(format("Discard outdated checkpoint [%s]", file));
+				return records;
+			}
+
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] field = line.split("\t", -1);
+
+				// ignore incomplete records (e.g. process was killed while writing)
+				if (field.length != 4 || !RECORD_END.equals(field[3])) {
+					break;
+				}
+
+				int index = Integer.parseInt(field[0]);
+				if (index > records.size() || field[1].isEmpty() == field[2].isEmpty()) {
+					break;
+				}
+
+				Record r = new Record(index, field[1].isEmpty() ? null : field[1], field[2].isEmpty() ? null : field[2]);
+				if (index < records.size()) {
+					records.set(index, r);
+				} else {
+					records.add(r);
+				}
+			}
+		} catch (Exception e) {
+			debug.warning(cause("Failed to read checkpoint", e));
+		}
+
+		return records;
+	}
+
+	public static class Record {
+
+		public final int index;
+		public final String hash;
+		public final String error;
+
+		public Record(int index, String hash, String error) {
+			this.index = index;
+			this.hash = hash;
+			this.error = error;
+		}
+
+		public boolean isError() {
+			return error != null;
+		}
+
+		@Override
+		public String toString() {
+			return isError() ? error : hash;
+		}
+	}
+
+}
@@ -10,6 +10,8 @@ import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import net.filebot.util.Throughput;
+
 public final class VerificationUtilities {
 
 	/**
@@ -91,6 +93,7 @@ public final class VerificationUtilities {
 
 			while ((len = in.read(buffer)) >= 0) {
 				hash.update(buffer, 0, len);
+				Throughput.HASH.update(len);
 
 				// make this long-running operation interruptible
 				if (Thread.interrupted())
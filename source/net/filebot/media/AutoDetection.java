@@ -18,27 +18,36 @@ import static net.filebot.util.StringUtilities.*;
 import java.io.File;
 import java.io.FileFilter;
 import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
-import net.filebot.mediainfo.MediaInfo;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.mediainfo.MediaInfoSnapshot;
 import net.filebot.similarity.NameSimilarityMetric;
 import net.filebot.util.FastFile;
+import net.filebot.util.FileUtilities;
 import net.filebot.web.Episode;
 import net.filebot.web.Movie;
 
@@ -118,7 +127,8 @@ public class AutoDetection {
 
 		if (VIDEO_FILES.accept(f) && f.length() > ONE_MEGABYTE) {
 			// check for Japanese audio or characteristic subtitles
-			try (MediaInfo mi = new MediaInfo().open(f)) {
+			try {
+				MediaInfoSnapshot mi = MediaInfoSnapshot.of(f);
 				long minutes = Duration.ofMillis(Long.parseLong(mi.get(StreamKind.General, 0, "Duration"))).toMinutes();
 				return minutes < 60 || mi.get(StreamKind.General, 0, "AudioLanguageList").contains("Japanese") && mi.get(StreamKind.General, 0, "TextCodecList").contains("ASS");
 			} catch (Exception e) {
@@ -161,6 +171,85 @@ public class AutoDetection {
 		return groups;
 	}
 
+	/**
+	 * Detect groups in a pipelined fashion and pass on the groups of each top-level folder as soon as all files of that folder have been processed, while detection of the following files continues in the background. At most {@code capacity} files are detected ahead of the consumer, and top-level folders with more than {@code capacity} files (e.g. a flat input folder) are passed on in chunks of {@code capacity} files.
+	 */
+	public void group(int capacity, GroupConsumer consumer) throws Exception {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+
+		List<File> root = getCommonPath(files);
+
+		// process files top-level folder by top-level folder
+		Map<File, List<File>> folders = stream(files).collect(groupingBy(f -> getTopLevelFolder(root, f), LinkedHashMap::new, toList()));
+		List<List<File>> units = new ArrayList<List<File>>();
+		for (List<File> folder : folders.values()) {
+			for (int i = 0; i < folder.size(); i += capacity) {
+				units.add(folder.subList(i, Math.min(i + capacity, folder.size())));
+			}
+		}
+
+		Deque<Entry<File, Future<Group>>> queue = new ArrayDeque<Entry<File, Future<Group>>>(capacity);
+
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(getPreferredThreadPoolSize());
+		try {
+			Iterator<File> input = units.stream().flatMap(List::stream).iterator();
+			Iterator<List<File>> unit = units.iterator();
+
+			while (unit.hasNext()) {
+				Map<Group, Set<File>> groups = new TreeMap<Group, Set<File>>();
+
+				for (int i = unit.next().size(); i > 0; i--) {
+					// keep the detection queue filled
+					while (queue.size() < capacity && input.hasNext()) {
+						File f = input.next();
+						queue.add(new SimpleImmutableEntry<File, Future<Group>>(f, workerThreadPool.submit(() -> detectGroup(f))));
+					}
+
+					Entry<File, Future<Group>> it = queue.remove();
+					try {
+						groups.computeIfAbsent(it.getValue().get(), k -> new TreeSet<File>()).add(new File(it.getKey().getPath())); // use FastFile internally but do not expose to outside code that expects File objects
+					} catch (ExecutionException e) {
+						debug.log(Level.SEVERE, e.getMessage(), e);
+					}
+				}
+
+				consumer.accept(groups);
+			}
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	public interface GroupConsumer {
+
+		void accept(Map<Group, Set<File>> groups) throws Exception;
+	}
+
+	private static List<File> getCommonPath(File[] files) {
+		List<File> common = null;
+		for (File f : files) {
+			List<File> path = FileUtilities.listPath(f.getParentFile());
+			if (common == null) {
+				common = new ArrayList<File>(path);
+			} else {
+				int i = 0;
+				while (i < common.size() && i < path.size() && common.get(i).equals(path.get(i))) {
+					i++;
+				}
+				common.subList(i, common.size()).clear();
+			}
+		}
+		return common == null ? emptyList() : common;
+	}
+
+	private static File getTopLevelFolder(List<File> root, File f) {
+		List<File> path = FileUtilities.listPath(f);
+		return path.size() > root.size() + 1 ? path.get(root.size()) : f.getParentFile();
+	}
+
 	private Group detectGroup(File f) throws Exception {
 		Group group = new Group();
 
@@ -49,8 +49,8 @@ import net.filebot.Language;
 import net.filebot.Resource;
 import net.filebot.WebServices;
 import net.filebot.archive.Archive;
-import net.filebot.mediainfo.MediaInfo;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.mediainfo.MediaInfoSnapshot;
 import net.filebot.similarity.DateMatcher;
 import net.filebot.similarity.EpisodeMetrics;
 import net.filebot.similarity.MetricAvg;
@@ -1117,7 +1117,8 @@ public class MediaDetection {
 
 			filesByExtension.stream().collect(groupingBy(f -> {
 				if (VIDEO_FILES.accept(f) && f.length() > ONE_MEGABYTE) {
-					try (MediaInfo mi = new MediaInfo().open(f)) {
+					try {
+						MediaInfoSnapshot mi = MediaInfoSnapshot.of(f);
 						Object d = Duration.ofMillis(Long.parseLong(mi.get(StreamKind.General, 0, "Duration"))).toMinutes() < 10 ? ChronoUnit.MINUTES : ChronoUnit.HOURS;
 						String v = mi.get(StreamKind.Video, 0, "CodecID");
 						String a = mi.get(StreamKind.Audio, 0, "CodecID");
@@ -1,16 +1,25 @@
 package net.filebot.media;
 
-import static java.util.Comparator.*;
 import static net.filebot.Logging.*;
 import static net.filebot.MediaTypes.*;
+import static net.filebot.Settings.*;
 import static net.filebot.media.MediaDetection.*;
 import static net.filebot.util.StringUtilities.*;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 import net.filebot.format.MediaBindingBean;
+import net.filebot.util.DefaultThreadFactory;
 
 public class VideoQuality implements Comparator<File> {
 
@@ -20,11 +29,67 @@ public class VideoQuality implements Comparator<File> {
 		return DESCENDING_ORDER.compare(f1, f2) < 0;
 	}
 
-	private final Comparator<File> chain = comparing(f -> new MediaBindingBean(f, f), comparingInt(this::getRepack).thenComparingInt(this::getResolution).thenComparingLong(MediaBindingBean::getFileSize));
+	/**
+	 * @return the given files sorted by video quality (best first)
+	 */
+	public static List<File> sortDescending(Collection<File> files) {
+		VideoQuality quality = new VideoQuality();
+		quality.prefetch(files);
+
+		List<File> sorted = new ArrayList<File>(files);
+		sorted.sort(quality.reversed());
+		return sorted;
+	}
+
+	// quality keys that have been computed ahead of time
+	private final Map<File, Key> keys = new ConcurrentHashMap<File, Key>();
 
 	@Override
 	public int compare(File f1, File f2) {
-		return chain.compare(f1, f2);
+		return getKey(f1).compareTo(getKey(f2));
+	}
+
+	public Key getKey(File f) {
+		Key key = keys.get(f);
+		return key != null ? key : createKey(f);
+	}
+
+	public void remove(File f) {
+		keys.remove(f);
+	}
+
+	/**
+	 * Compute the quality keys for the given files in parallel, so that subsequent comparisons don't need to read media info or match file names again
+	 */
+	public void prefetch(Collection<File> files) {
+		List<Callable<Key>> tasks = new ArrayList<Callable<Key>>(files.size());
+		files.stream().distinct().filter(f -> !keys.containsKey(f)).forEach(f -> {
+			tasks.add(() -> {
+				// compute outside of the map lock so that files are processed concurrently
+				Key key = createKey(f);
+				Key previous = keys.putIfAbsent(f, key);
+				return previous != null ? previous : key;
+			});
+		});
+
+		if (tasks.isEmpty()) {
+			return;
+		}
+
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(Math.min(tasks.size(), getPreferredThreadPoolSize()), new DefaultThreadFactory("VideoQuality"));
+		try {
+			// files that fail here will fail again (and be logged) when compared
+			workerThreadPool.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			debug.finest(cause("Prefetch interrupted", e));
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
+
+	protected Key createKey(File f) {
+		MediaBindingBean m = new MediaBindingBean(f, f);
+		return new Key(getRepack(m), getResolution(m), m.getFileSize());
 	}
 
 	private final Pattern repack = releaseInfo.getRepackPattern();
@@ -48,4 +113,52 @@ public class VideoQuality implements Comparator<File> {
 		return 0;
 	}
 
+	/**
+	 * Immutable sort key, i.e. repack, resolution and file size in order of precedence
+	 */
+	public static class Key implements Comparable<Key> {
+
+		private final int repack;
+		private final int resolution;
+		private final long size;
+
+		public Key(int repack, int resolution, long size) {
+			this.repack = repack;
+			this.resolution = resolution;
+			this.size = size;
+		}
+
+		public int getRepack() {
+			return repack;
+		}
+
+		public int getResolution() {
+			return resolution;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			int r = Integer.compare(repack, other.repack);
+			if (r != 0) {
+				return r;
+			}
+
+			r = Integer.compare(resolution, other.resolution);
+			if (r != 0) {
+				return r;
+			}
+
+			return Long.compare(size, other.size);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[repack=%d, resolution=%d, size=%d]", repack, resolution, size);
+		}
+	}
+
 }
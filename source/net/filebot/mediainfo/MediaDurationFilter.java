@@ -24,8 +24,8 @@ public class MediaDurationFilter implements FileFilter {
 	}
 
 	public long getDuration(File f) {
-		try (MediaInfo mi = new MediaInfo().open(f)) {
-			String duration = mi.get(StreamKind.General, 0, "Duration");
+		try {
+			String duration = MediaInfoSnapshot.of(f).get(StreamKind.General, 0, "Duration");
 			if (duration.length() > 0) {
 				return Long.parseLong(duration);
 			}
@@ -0,0 +1,601 @@
+package net.filebot.mediainfo;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static net.filebot.Logging.*;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Core media properties (e.g. duration, resolution, audio format) read directly from Matroska EBML and MP4 moov headers. Only the header elements are read and all reads are bounded, so this is much faster than a full MediaInfo parse, especially for large files on network storage. Values are only defined if they are the same as the values MediaInfo would report, so that callers can fall back to MediaInfo for anything else.
+ */
+public class MediaHeader {
+
+	/**
+	 * Disabled by default until the values have been verified against the values reported by libmediainfo (see MediaHeaderTest.parityMediaInfo)
+	 */
+	public static final SystemProperty<Boolean> ENABLED = SystemProperty.of("net.filebot.mediainfo.MediaHeader.probe", Boolean::parseBoolean, false);
+
+	// header elements larger than this limit are not read
+	private static final int MAX_HEADER_SIZE = 16 * 1024 * 1024;
+
+	// number of top-level elements that are skipped before giving up
+	private static final int MAX_ELEMENT_COUNT = 64;
+
+	private final Map<StreamKind, List<Map<String, String>>> streams;
+
+	public MediaHeader(Map<StreamKind, List<Map<String, String>>> streams) {
+		this.streams = streams;
+	}
+
+	/**
+	 * @return true if the given value is defined by the container header, or false if MediaInfo must be used instead
+	 */
+	public boolean isDefined(StreamKind streamKind, int streamNumber, String parameter) {
+		List<Map<String, String>> values = streams.get(streamKind);
+		return values != null && streamNumber >= 0 && streamNumber < values.size() && values.get(streamNumber).containsKey(parameter);
+	}
+
+	/**
+	 * @return defined value (may be the empty string if MediaInfo would not report a value either) or null if the value is not defined by the container header
+	 */
+	public String get(StreamKind streamKind, int streamNumber, String parameter) {
+		return isDefined(streamKind, streamNumber, parameter) ? streams.get(streamKind).get(streamNumber).get(parameter) : null;
+	}
+
+	public Map<StreamKind, List<Map<String, String>>> snapshot() {
+		return streams;
+	}
+
+	@Override
+	public String toString() {
+		return streams.toString();
+	}
+
+	/**
+	 * @return container header values or null if the file is not a supported Matroska or MP4 file
+	 */
+	public static MediaHeader read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer magic = read(channel, 0, 8);
+			if (magic.limit() < 8) {
+				return null;
+			}
+
+			Builder header = new Builder();
+
+			if (magic.getInt(0) == EBML) {
+				return readMatroska(channel, header) ? header.build() : null;
+			}
+
+			if (magic.getInt(4) == FTYP) {
+				return readMP4(channel, header) ? header.build() : null;
+			}
+
+			return null;
+		} catch (EOFException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			// truncated or malformed header
+			debug.finest(format("Failed to read media header: %s: %s", file, e));
+			return null;
+		}
+	}
+
+	/**
+	 * Matroska element IDs
+	 */
+	private static final int EBML = 0x1A45DFA3;
+	private static final int DOC_TYPE = 0x4282;
+	private static final int SEGMENT = 0x18538067;
+	private static final int INFO = 0x1549A966;
+	private static final int TIMECODE_SCALE = 0x2AD7B1;
+	private static final int DURATION = 0x4489;
+	private static final int TRACKS = 0x1654AE6B;
+	private static final int TRACK_ENTRY = 0xAE;
+	private static final int TRACK_TYPE = 0x83;
+	private static final int CODEC_ID = 0x86;
+	private static final int VIDEO = 0xE0;
+	private static final int PIXEL_WIDTH = 0xB0;
+	private static final int PIXEL_HEIGHT = 0xBA;
+	private static final int PIXEL_CROP_BOTTOM = 0x54AA;
+	private static final int PIXEL_CROP_TOP = 0x54BB;
+	private static final int PIXEL_CROP_LEFT = 0x54CC;
+	private static final int PIXEL_CROP_RIGHT = 0x54DD;
+	private static final int AUDIO = 0xE1;
+	private static final int CHANNELS = 0x9F;
+	private static final int CLUSTER = 0x1F43B675;
+
+	/**
+	 * Matroska audio codec IDs with the same Format and CodecID/Hint values as reported by MediaInfo
+	 */
+	private static final Map<String, String[]> MATROSKA_AUDIO_FORMATS = new LinkedHashMap<String, String[]>();
+
+	static {
+		MATROSKA_AUDIO_FORMATS.put("A_AC3", new String[] { "AC-3", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_EAC3", new String[] { "E-AC-3", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_DTS", new String[] { "DTS", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_FLAC", new String[] { "FLAC", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_OPUS", new String[] { "Opus", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_VORBIS", new String[] { "Vorbis", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_AAC", new String[] { "AAC", "" });
+		MATROSKA_AUDIO_FORMATS.put("A_MPEG/L3", new String[] { "MPEG Audio", "MP3" });
+	}
+
+	/**
+	 * Audio formats where the number of channels in the track header is always the same as the number of channels in the bitstream (e.g. but not DTS-HD, E-AC-3 JOC or HE-AAC with parametric stereo)
+	 */
+	private static final List<String> MATROSKA_AUDIO_CHANNELS = unmodifiableList(asList("A_AC3", "A_FLAC", "A_OPUS", "A_VORBIS", "A_MPEG/L3"));
+
+	private static boolean readMatroska(FileChannel channel, Builder header) throws IOException {
+		long position = 0;
+
+		// EBML header
+		Element ebml = readElement(channel, position);
+		String docType = readMatroskaDocType(readBody(channel, ebml));
+		if (docType == null) {
+			return false;
+		}
+
+		// Segment
+		Element segment = readElement(channel, ebml.end());
+		if (segment.id != SEGMENT) {
+			return false;
+		}
+
+		ByteBuffer info = null;
+		ByteBuffer tracks = null;
+
+		// Info and Tracks are usually at the beginning of the Segment but may be preceded by SeekHead and Void elements
+		long end = segment.size < 0 ? channel.size() : Math.min(segment.end(), channel.size());
+		position = segment.start;
+
+		for (int i = 0; i < MAX_ELEMENT_COUNT && position < end && (info == null || tracks == null); i++) {
+			Element e = readElement(channel, position);
+
+			if (e.id == CLUSTER || e.size < 0) {
+				break;
+			}
+			if (e.id == INFO) {
+				info = readBody(channel, e);
+			} else if (e.id == TRACKS) {
+				tracks = readBody(channel, e);
+			}
+
+			position = e.end();
+		}
+
+		if (info == null || tracks == null) {
+			return false;
+		}
+
+		header.general().put("Format", docType.equals("webm") ? "WebM" : "Matroska");
+
+		// Info
+		long timecodeScale = 1000000;
+		Double duration = null;
+
+		for (ByteBuffer b = info; b.hasRemaining();) {
+			int id = readMatroskaId(b);
+			ByteBuffer value = readMatroskaBody(b);
+
+			if (id == TIMECODE_SCALE) {
+				timecodeScale = readUnsigned(value);
+			} else if (id == DURATION) {
+				duration = readFloat(value);
+			}
+		}
+
+		if (duration != null && duration > 0) {
+			header.general().put("Duration", String.valueOf(Math.round(duration * timecodeScale / 1e6)));
+		}
+
+		// Tracks
+		for (ByteBuffer b = tracks; b.hasRemaining();) {
+			int id = readMatroskaId(b);
+			ByteBuffer value = readMatroskaBody(b);
+
+			if (id == TRACK_ENTRY) {
+				readMatroskaTrack(value, header);
+			}
+		}
+
+		return true;
+	}
+
+	private static String readMatroskaDocType(ByteBuffer ebml) {
+		while (ebml.hasRemaining()) {
+			int id = readMatroskaId(ebml);
+			ByteBuffer value = readMatroskaBody(ebml);
+
+			if (id == DOC_TYPE) {
+				String docType = readString(value);
+				return docType.equals("matroska") || docType.equals("webm") ? docType : null;
+			}
+		}
+		return null;
+	}
+
+	private static void readMatroskaTrack(ByteBuffer track, Builder header) {
+		long type = 0;
+		String codec = "";
+		ByteBuffer video = null;
+		ByteBuffer audio = null;
+
+		while (track.hasRemaining()) {
+			int id = readMatroskaId(track);
+			ByteBuffer value = readMatroskaBody(track);
+
+			if (id == TRACK_TYPE) {
+				type = readUnsigned(value);
+			} else if (id == CODEC_ID) {
+				codec = readString(value);
+			} else if (id == VIDEO) {
+				video = value;
+			} else if (id == AUDIO) {
+				audio = value;
+			}
+		}
+
+		if (type == 1) {
+			Map<String, String> stream = header.add(StreamKind.Video);
+			long width = -1, height = -1;
+			boolean cropped = false;
+
+			for (ByteBuffer b = video == null ? ByteBuffer.allocate(0) : video; b.hasRemaining();) {
+				int id = readMatroskaId(b);
+				ByteBuffer value = readMatroskaBody(b);
+
+				if (id == PIXEL_WIDTH) {
+					width = readUnsigned(value);
+				} else if (id == PIXEL_HEIGHT) {
+					height = readUnsigned(value);
+				} else if (id == PIXEL_CROP_BOTTOM || id == PIXEL_CROP_TOP || id == PIXEL_CROP_LEFT || id == PIXEL_CROP_RIGHT) {
+					cropped |= readUnsigned(value) != 0;
+				}
+			}
+
+			// MediaInfo may report the cropped dimensions
+			if (width > 0 && height > 0 && !cropped) {
+				stream.put("Width", String.valueOf(width));
+				stream.put("Height", String.valueOf(height));
+			}
+		} else if (type == 2) {
+			Map<String, String> stream = header.add(StreamKind.Audio);
+			String[] format = MATROSKA_AUDIO_FORMATS.get(codec.startsWith("A_AAC") ? "A_AAC" : codec);
+
+			if (format != null) {
+				stream.put("Format", format[0]);
+				stream.put("CodecID/Hint", format[1]);
+			}
+
+			if (MATROSKA_AUDIO_CHANNELS.contains(codec)) {
+				long channels = 1; // default value if not set
+
+				for (ByteBuffer b = audio == null ? ByteBuffer.allocate(0) : audio; b.hasRemaining();) {
+					int id = readMatroskaId(b);
+					ByteBuffer value = readMatroskaBody(b);
+
+					if (id == CHANNELS) {
+						channels = readUnsigned(value);
+					}
+				}
+
+				stream.put("Channel(s)", String.valueOf(channels));
+				stream.put("Channel(s)_Original", "");
+			}
+		}
+	}
+
+	private static Element readElement(FileChannel channel, long position) throws IOException {
+		ByteBuffer b = read(channel, position, 12);
+		int id = readMatroskaId(b);
+		long size = readMatroskaSize(b);
+		return new Element(id, position + b.position(), size);
+	}
+
+	private static ByteBuffer readBody(FileChannel channel, Element e) throws IOException {
+		if (e.size < 0 || e.size > MAX_HEADER_SIZE) {
+			throw new IllegalArgumentException("Illegal element size: " + e.size);
+		}
+
+		ByteBuffer b = read(channel, e.start, (int) e.size);
+		if (b.limit() < e.size) {
+			throw new EOFException();
+		}
+		return b;
+	}
+
+	private static int readMatroskaId(ByteBuffer b) {
+		int first = b.get() & 0xFF;
+		int length = Integer.numberOfLeadingZeros(first) - 23;
+		if (length < 1 || length > 4) {
+			throw new IllegalArgumentException("Illegal element ID");
+		}
+
+		// element IDs include the length marker
+		int id = first;
+		for (int i = 1; i < length; i++) {
+			id = (id << 8) | (b.get() & 0xFF);
+		}
+		return id;
+	}
+
+	private static long readMatroskaSize(ByteBuffer b) {
+		int first = b.get() & 0xFF;
+		int length = Integer.numberOfLeadingZeros(first) - 23;
+		if (length < 1 || length > 8) {
+			throw new IllegalArgumentException("Illegal element size");
+		}
+
+		// remove length marker
+		long size = first & (0xFF >> length);
+		boolean unknown = size == (0xFF >> length);
+
+		for (int i = 1; i < length; i++) {
+			int next = b.get() & 0xFF;
+			size = (size << 8) | next;
+			unknown &= next == 0xFF;
+		}
+		return unknown ? -1 : size;
+	}
+
+	private static ByteBuffer readMatroskaBody(ByteBuffer b) {
+		long size = readMatroskaSize(b);
+		if (size < 0 || size > b.remaining()) {
+			throw new IllegalArgumentException("Illegal element size: " + size);
+		}
+		return slice(b, (int) size);
+	}
+
+	/**
+	 * MP4 box types
+	 */
+	private static final int FTYP = 0x66747970;
+	private static final int MOOV = 0x6D6F6F76;
+	private static final int MVHD = 0x6D766864;
+	private static final int TRAK = 0x7472616B;
+	private static final int MDIA = 0x6D646961;
+	private static final int HDLR = 0x68646C72;
+	private static final int MINF = 0x6D696E66;
+	private static final int STBL = 0x7374626C;
+	private static final int STSD = 0x73747364;
+	private static final int VIDE = 0x76696465;
+	private static final int SOUN = 0x736F756E;
+
+	private static boolean readMP4(FileChannel channel, Builder header) throws IOException {
+		long position = 0;
+		long size = channel.size();
+
+		// moov is usually either at the beginning or at the end of the file
+		for (int i = 0; i < MAX_ELEMENT_COUNT && position + 8 <= size; i++) {
+			ByteBuffer b = read(channel, position, 16);
+			long boxSize = b.getInt() & 0xFFFFFFFFL;
+			int type = b.getInt();
+			int headerSize = 8;
+
+			if (boxSize == 1) {
+				boxSize = b.getLong();
+				headerSize = 16;
+			} else if (boxSize == 0) {
+				boxSize = size - position;
+			}
+
+			if (boxSize < headerSize) {
+				return false;
+			}
+
+			if (type == MOOV) {
+				Element moov = new Element(type, position + headerSize, boxSize - headerSize);
+				return readMP4Movie(readBody(channel, moov), header);
+			}
+
+			position += boxSize;
+		}
+
+		return false;
+	}
+
+	private static boolean readMP4Movie(ByteBuffer moov, Builder header) {
+		boolean movieHeader = false;
+
+		for (Map.Entry<Integer, ByteBuffer> box : readMP4Boxes(moov)) {
+			if (box.getKey() == MVHD) {
+				ByteBuffer b = box.getValue();
+				int version = b.get();
+				skip(b, 3 + (version == 1 ? 16 : 8));
+
+				long timescale = b.getInt() & 0xFFFFFFFFL;
+				long duration = version == 1 ? b.getLong() : b.getInt() & 0xFFFFFFFFL;
+
+				// duration is undefined for fragmented files
+				if (timescale > 0 && duration > 0 && duration != 0xFFFFFFFFL && duration != -1) {
+					header.general().put("Duration", String.valueOf(Math.round(duration * 1000d / timescale)));
+				}
+				movieHeader = true;
+			} else if (box.getKey() == TRAK) {
+				readMP4Track(box.getValue(), header);
+			}
+		}
+
+		return movieHeader;
+	}
+
+	private static void readMP4Track(ByteBuffer trak, Builder header) {
+		ByteBuffer mdia = findMP4Box(trak, MDIA);
+		ByteBuffer hdlr = mdia == null ? null : findMP4Box(mdia.duplicate(), HDLR);
+		if (hdlr == null) {
+			return;
+		}
+
+		skip(hdlr, 8);
+		int handler = hdlr.getInt();
+
+		if (handler == VIDE) {
+			Map<String, String> stream = header.add(StreamKind.Video);
+
+			// minf -> stbl -> stsd -> first VisualSampleEntry
+			ByteBuffer minf = findMP4Box(mdia, MINF);
+			ByteBuffer stbl = minf == null ? null : findMP4Box(minf, STBL);
+			ByteBuffer stsd = stbl == null ? null : findMP4Box(stbl, STSD);
+
+			if (stsd != null && stsd.remaining() >= 8 + 8 + 24 + 4) {
+				skip(stsd, 8 + 8 + 24);
+				int width = stsd.getShort() & 0xFFFF;
+				int height = stsd.getShort() & 0xFFFF;
+
+				if (width > 0 && height > 0) {
+					stream.put("Width", String.valueOf(width));
+					stream.put("Height", String.valueOf(height));
+				}
+			}
+		} else if (handler == SOUN) {
+			// audio format and channels depend on the decoder configuration
+			header.add(StreamKind.Audio);
+		}
+	}
+
+	private static List<Map.Entry<Integer, ByteBuffer>> readMP4Boxes(ByteBuffer b) {
+		List<Map.Entry<Integer, ByteBuffer>> boxes = new ArrayList<Map.Entry<Integer, ByteBuffer>>();
+
+		while (b.remaining() >= 8) {
+			long size = b.getInt() & 0xFFFFFFFFL;
+			int type = b.getInt();
+			int headerSize = 8;
+
+			if (size == 1) {
+				size = b.getLong();
+				headerSize = 16;
+			} else if (size == 0) {
+				size = b.remaining() + headerSize;
+			}
+
+			if (size < headerSize || size - headerSize > b.remaining()) {
+				throw new IllegalArgumentException("Illegal box size: " + size);
+			}
+
+			boxes.add(new SimpleImmutableEntry<Integer, ByteBuffer>(type, slice(b, (int) (size - headerSize))));
+		}
+
+		return boxes;
+	}
+
+	private static ByteBuffer findMP4Box(ByteBuffer b, int type) {
+		for (Map.Entry<Integer, ByteBuffer> box : readMP4Boxes(b)) {
+			if (box.getKey() == type) {
+				return box.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(length);
+		while (b.hasRemaining()) {
+			if (channel.read(b, position + b.position()) < 0) {
+				break;
+			}
+		}
+		b.flip();
+		return b;
+	}
+
+	private static ByteBuffer slice(ByteBuffer b, int length) {
+		ByteBuffer slice = b.slice();
+		slice.limit(length);
+		skip(b, length);
+		return slice;
+	}
+
+	private static void skip(ByteBuffer b, int length) {
+		b.position(b.position() + length);
+	}
+
+	private static long readUnsigned(ByteBuffer b) {
+		long value = 0;
+		while (b.hasRemaining()) {
+			value = (value << 8) | (b.get() & 0xFF);
+		}
+		return value;
+	}
+
+	private static double readFloat(ByteBuffer b) {
+		switch (b.remaining()) {
+		case 4:
+			return b.getFloat();
+		case 8:
+			return b.getDouble();
+		default:
+			throw new IllegalArgumentException("Illegal float size: " + b.remaining());
+		}
+	}
+
+	private static String readString(ByteBuffer b) {
+		byte[] bytes = new byte[b.remaining()];
+		b.get(bytes);
+
+		// strings may be zero-padded
+		int length = 0;
+		while (length < bytes.length && bytes[length] != 0) {
+			length++;
+		}
+		return new String(bytes, 0, length, UTF_8);
+	}
+
+	private static class Element {
+
+		public final int id;
+		public final long start;
+		public final long size;
+
+		public Element(int id, long start, long size) {
+			this.id = id;
+			this.start = start;
+			this.size = size;
+		}
+
+		public long end() {
+			return start + size;
+		}
+	}
+
+	private static class Builder {
+
+		private final Map<StreamKind, List<Map<String, String>>> streams = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
+
+		public Map<String, String> general() {
+			List<Map<String, String>> general = streams.get(StreamKind.General);
+			return general == null ? add(StreamKind.General) : general.get(0);
+		}
+
+		public Map<String, String> add(StreamKind kind) {
+			Map<String, String> stream = new LinkedHashMap<String, String>();
+			streams.computeIfAbsent(kind, k -> new ArrayList<Map<String, String>>()).add(stream);
+			return stream;
+		}
+
+		public MediaHeader build() {
+			streams.replaceAll((k, v) -> {
+				List<Map<String, String>> values = new ArrayList<Map<String, String>>(v.size());
+				v.forEach(m -> values.add(unmodifiableMap(m)));
+				return unmodifiableList(values);
+			});
+			return new MediaHeader(unmodifiableMap(streams));
+		}
+	}
+
+}
@@ -183,6 +183,13 @@ public class MediaInfo implements Closeable {
 		return streamInfo;
 	}
 
+	/**
+	 * Close the current media file but keep the native handle, so that the same instance can be used to open another file
+	 */
+	public synchronized void closeFile() {
+		MediaInfoLibrary.INSTANCE.Close(handle);
+	}
+
 	@Override
 	public synchronized void close() {
 		cleanable.clean();
@@ -0,0 +1,273 @@
+package net.filebot.mediainfo;
+
+import static net.filebot.Logging.*;
+import static net.filebot.Settings.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Bounded pool of native MediaInfo handles. Each handle is used by one thread at a time and reused for many files, and all handles are deleted when the pool is closed rather than whenever the garbage collector gets around to it.
+ */
+public class MediaInfoPool implements Closeable {
+
+	public static final SystemProperty<Integer> POOL_SIZE = SystemProperty.of("net.filebot.mediainfo.MediaInfoPool.size", Integer::parseInt, getPreferredThreadPoolSize());
+
+	private static MediaInfoPool defaultPool;
+
+	public static synchronized MediaInfoPool getDefaultPool() {
+		if (defaultPool == null) {
+			defaultPool = new MediaInfoPool(POOL_SIZE.get());
+
+			// delete native handles on shutdown
+			Runtime.getRuntime().addShutdownHook(new Thread(defaultPool::close, "MediaInfoPoolShutdownHook"));
+		}
+		return defaultPool;
+	}
+
+	private final int size;
+	private final Semaphore permits;
+	private final Deque<MediaInfo> idle = new ArrayDeque<MediaInfo>();
+	private final AtomicInteger handles = new AtomicInteger(0);
+
+	private boolean closed = false;
+
+	public MediaInfoPool(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Illegal pool size: " + size);
+		}
+		this.size = size;
+		this.permits = new Semaphore(size, true);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return number of native handles that currently exist (idle or in use)
+	 */
+	public int getHandleCount() {
+		return handles.get();
+	}
+
+	/**
+	 * @return number of native handles that are currently in use
+	 */
+	public int getActiveCount() {
+		return size - permits.availablePermits();
+	}
+
+	/**
+	 * Borrow a native handle, and block if all handles are in use. Each handle must be returned via {@link #release(MediaInfo)}.
+	 */
+	public MediaInfo acquire() throws InterruptedException {
+		permits.acquire();
+		try {
+			synchronized (idle) {
+				if (closed) {
+					throw new IllegalStateException("MediaInfo pool has been closed");
+				}
+				if (idle.size() > 0) {
+					return idle.pop();
+				}
+			}
+
+			MediaInfo mi = new MediaInfo();
+			handles.incrementAndGet();
+			return mi;
+		} catch (RuntimeException | Error e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	public void release(MediaInfo mi) {
+		try {
+			mi.closeFile();
+
+			synchronized (idle) {
+				if (!closed) {
+					idle.push(mi);
+					return;
+				}
+			}
+
+			// pool has been closed while the handle was in use
+			dispose(mi);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Open the given file with a pooled handle and read values via the given function before the handle is returned to the pool
+	 */
+	public <T> T open(File file, Function<MediaInfo, T> read) throws IOException {
+		MediaInfo mi = null;
+		try {
+			mi = acquire();
+			return read.apply(mi.open(file));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for MediaInfo: " + file);
+		} finally {
+			if (mi != null) {
+				release(mi);
+			}
+		}
+	}
+
+	/**
+	 * Read media info snapshots for the given files in parallel using the handles of this pool. Snapshots are served from the persistent snapshot cache if possible.
+	 *
+	 * @return results in the same order as the given files
+	 */
+	public List<ScanResult> scan(Collection<File> files) throws InterruptedException {
+		long start = System.nanoTime();
+
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(size, new DefaultThreadFactory("MediaInfoScan"));
+		try {
+			List<Future<ScanResult>> futures = new ArrayList<Future<ScanResult>>(files.size());
+			for (File f : files) {
+				futures.add(workerThreadPool.submit(() -> scan(f)));
+			}
+
+			List<ScanResult> results = new ArrayList<ScanResult>(futures.size());
+			for (Future<ScanResult> it : futures) {
+				try {
+					results.add(it.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+
+			debug.fine(format("Scanned %,d files in %,d ms [%d MediaInfo handles, %s native memory in use]", results.size(), Duration.ofNanos(System.nanoTime() - start).toMillis(), getHandleCount(), formatNativeMemoryUsage()));
+			return results;
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+	}
+
+	private ScanResult scan(File file) {
+		long start = System.nanoTime();
+		try {
+			MediaInfoSnapshot snapshot = MediaInfoSnapshot.of(file, this);
+			return new ScanResult(file, snapshot, null, System.nanoTime() - start);
+		} catch (Exception e) {
+			return new ScanResult(file, null, e, System.nanoTime() - start);
+		} finally {
+			debug.finest(format("MediaInfo: %s [%,d ms]", file, Duration.ofNanos(System.nanoTime() - start).toMillis()));
+		}
+	}
+
+	@Override
+	public void close() {
+		List<MediaInfo> handles;
+		synchronized (idle) {
+			closed = true;
+			handles = new ArrayList<MediaInfo>(idle);
+			idle.clear();
+		}
+		handles.forEach(this::dispose);
+	}
+
+	private void dispose(MediaInfo mi) {
+		mi.close();
+		handles.decrementAndGet();
+	}
+
+	public static class ScanResult {
+
+		private final File file;
+		private final MediaInfoSnapshot snapshot;
+		private final Exception error;
+		private final long latency;
+
+		public ScanResult(File file, MediaInfoSnapshot snapshot, Exception error, long latency) {
+			this.file = file;
+			this.snapshot = snapshot;
+			this.error = error;
+			this.latency = latency;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return media info snapshot or throw the exception that occurred while reading the file
+		 */
+		public MediaInfoSnapshot getSnapshot() throws Exception {
+			if (error != null) {
+				throw error;
+			}
+			return snapshot;
+		}
+
+		public Exception getError() {
+			return error;
+		}
+
+		public Duration getLatency() {
+			return Duration.ofNanos(latency);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s [%,d ms]", file, getLatency().toMillis());
+		}
+	}
+
+	/**
+	 * @return estimated native memory in use by the current process (i.e. resident memory that has not been committed by the JVM for heap and non-heap memory pools) or -1 if unknown
+	 */
+	public static long getNativeMemoryUsage() {
+		// resident set size is only available on Linux
+		File statm = new File("/proc/self/statm");
+		if (!statm.exists()) {
+			return -1;
+		}
+
+		try {
+			String[] pages = new String(Files.readAllBytes(statm.toPath())).trim().split("\\s+");
+			long resident = Long.parseLong(pages[1]) * 4096;
+
+			MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+			long committed = memory.getHeapMemoryUsage().getCommitted() + memory.getNonHeapMemoryUsage().getCommitted();
+
+			return Math.max(0, resident - committed);
+		} catch (Exception e) {
+			debug.finest(cause("Failed to read memory usage", e));
+		}
+
+		return -1;
+	}
+
+	private static String formatNativeMemoryUsage() {
+		long bytes = getNativeMemoryUsage();
+		return bytes < 0 ? "unknown" : String.format("%,d MB", bytes / (1024 * 1024));
+	}
+
+}
@@ -0,0 +1,149 @@
+package net.filebot.mediainfo;
+
+import static java.util.Collections.*;
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.filebot.Cache;
+import net.filebot.CacheType;
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.util.SystemProperty;
+
+/**
+ * Immutable copy of all MediaInfo values of a given media file. Snapshots are persisted by file path, size and last-modified time, so that the native MediaInfo library only needs to parse each media file once.
+ */
+public class MediaInfoSnapshot {
+
+	public static final SystemProperty<Boolean> PERSISTENT_CACHE = SystemProperty.of("net.filebot.mediainfo.MediaInfoSnapshot.persistent", Boolean::parseBoolean, true);
+
+	private final Map<StreamKind, List<Map<String, String>>> streams;
+
+	public MediaInfoSnapshot(Map<StreamKind, List<Map<String, String>>> streams) {
+		this.streams = streams;
+	}
+
+	/**
+	 * @return value of the given parameter or the empty string, same as {@link MediaInfo#get(StreamKind, int, String)}
+	 */
+	public String get(StreamKind streamKind, int streamNumber, String parameter) {
+		List<Map<String, String>> values = streams.get(streamKind);
+
+		if (values != null && streamNumber >= 0 && streamNumber < values.size()) {
+			String value = values.get(streamNumber).get(parameter);
+			if (value != null) {
+				return value;
+			}
+		}
+
+		return "";
+	}
+
+	public int streamCount(StreamKind streamKind) {
+		List<Map<String, String>> values = streams.get(streamKind);
+		return values == null ? 0 : values.size();
+	}
+
+	public Map<StreamKind, List<Map<String, String>>> snapshot() {
+		return streams;
+	}
+
+	@Override
+	public String toString() {
+		return streams.toString();
+	}
+
+	public static MediaInfoSnapshot of(File file) throws IOException {
+		return of(file, MediaInfoPool.getDefaultPool());
+	}
+
+	public static MediaInfoSnapshot of(File file, MediaInfoPool pool) throws IOException {
+		// invalid files are not cached and fail with the same exception as MediaInfo.open()
+		if (!PERSISTENT_CACHE.get() || !file.isFile()) {
+			return read(file, pool);
+		}
+
+		return of(file, pool, Cache.getCache("mediainfo", CacheType.Persistent));
+	}
+
+	static MediaInfoSnapshot of(File file, MediaInfoPool pool, Cache cache) throws IOException {
+		String key = getCacheKey(file);
+
+		Object value = cache.get(key);
+		if (value instanceof String[][]) {
+			try {
+				return decode((String[][]) value);
+			} catch (Exception e) {
+				debug.finest(cause("Failed to load media info", e));
+			}
+		}
+
+		MediaInfoSnapshot snapshot = read(file, pool);
+		cache.put(key, encode(snapshot));
+		return snapshot;
+	}
+
+	private static MediaInfoSnapshot read(File file, MediaInfoPool pool) throws IOException {
+		return pool.open(file, mi -> new MediaInfoSnapshot(unmodifiable(mi.snapshot())));
+	}
+
+	protected static String getCacheKey(File file) throws IOException {
+		// file contents are assumed to be the same as long as file size and last-modified time are the same
+		return file.getCanonicalPath() + '\t' + file.length() + '\t' + file.lastModified();
+	}
+
+	/**
+	 * Encode as a flat table of strings (one row per stream, i.e. stream kind followed by parameter name and value pairs) to minimize storage overhead
+	 */
+	protected static String[][] encode(MediaInfoSnapshot snapshot) {
+		List<String[]> rows = new ArrayList<String[]>();
+
+		snapshot.streams.forEach((kind, streams) -> {
+			for (Map<String, String> stream : streams) {
+				String[] row = new String[1 + stream.size() * 2];
+				row[0] = kind.name();
+
+				int i = 1;
+				for (Map.Entry<String, String> it : stream.entrySet()) {
+					row[i++] = it.getKey();
+					row[i++] = it.getValue();
+				}
+				rows.add(row);
+			}
+		});
+
+		return rows.toArray(new String[0][]);
+	}
+
+	protected static MediaInfoSnapshot decode(String[][] rows) {
+		Map<StreamKind, List<Map<String, String>>> streams = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
+
+		for (String[] row : rows) {
+			Map<String, String> stream = new LinkedHashMap<String, String>((row.length - 1) / 2);
+			for (int i = 1; i < row.length; i += 2) {
+				stream.put(row[i], row[i + 1]);
+			}
+			streams.computeIfAbsent(StreamKind.valueOf(row[0]), k -> new ArrayList<Map<String, String>>()).add(stream);
+		}
+
+		return new MediaInfoSnapshot(unmodifiable(streams));
+	}
+
+	private static Map<StreamKind, List<Map<String, String>>> unmodifiable(Map<StreamKind, List<Map<String, String>>> streams) {
+		streams.replaceAll((kind, values) -> {
+			List<Map<String, String>> list = new ArrayList<Map<String, String>>(values.size());
+			for (Map<String, String> it : values) {
+				list.add(unmodifiableMap(it));
+			}
+			return unmodifiableList(list);
+		});
+		return unmodifiableMap(streams);
+	}
+
+}
@@ -0,0 +1,50 @@
+package net.filebot.platform.posix;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.NativeLong;
+import com.sun.jna.ptr.LongByReference;
+
+interface LibC extends Library {
+
+	int O_RDONLY = 00;
+	int O_WRONLY = 01;
+	int O_CREAT = 0100;
+	int O_EXCL = 0200;
+	int O_TRUNC = 01000;
+
+	int SEEK_END = 2;
+	int SEEK_DATA = 3;
+	int SEEK_HOLE = 4;
+
+	int EPERM = 1;
+	int ENXIO = 6;
+	int EBADF = 9;
+	int EXDEV = 18;
+	int EINVAL = 22;
+	int ENOTTY = 25;
+	int ENOSYS = 38;
+	int EOPNOTSUPP = 95;
+
+	// _IOW(0x94, 9, int)
+	long FICLONE = 0x40049409L;
+
+	int open(String path, int flags, int mode) throws LastErrorException;
+
+	// Linux only (large file support on 32-bit platforms)
+	int open64(String path, int flags, int mode) throws LastErrorException;
+
+	int close(int fd) throws LastErrorException;
+
+	int ioctl(int fd, NativeLong request, int arg) throws LastErrorException;
+
+	long lseek64(int fd, long offset, int whence) throws LastErrorException;
+
+	int ftruncate64(int fd, long length) throws LastErrorException;
+
+	NativeLong copy_file_range(int fd_in, LongByReference off_in, int fd_out, LongByReference off_out, NativeLong len, int flags) throws LastErrorException;
+
+	// Mac OS X only
+	int clonefile(String src, String dst, int flags) throws LastErrorException;
+
+}
@@ -0,0 +1,299 @@
+package net.filebot.platform.posix;
+
+import static net.filebot.Logging.*;
+import static net.filebot.platform.posix.LibC.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.ptr.LongByReference;
+
+/**
+ * In-process copy-on-write clones and in-kernel file copies via libc, so that no external process needs to be spawned and no data needs to pass through the Java heap.
+ */
+public class PosixFileCopy {
+
+	private static final long CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final LibC libc = loadLibC();
+
+	private static LibC loadLibC() {
+		try {
+			if (Platform.isLinux() || Platform.isMac()) {
+				return (LibC) Native.loadLibrary("c", LibC.class);
+			}
+		} catch (Throwable e) {
+			debug.fine(cause("Failed to load libc", e));
+		}
+		return null;
+	}
+
+	private static volatile boolean copyFileRangeSupported = Platform.isLinux();
+	private static volatile boolean open64Supported = Platform.isLinux();
+
+	public static boolean isSupported() {
+		return libc != null;
+	}
+
+	/**
+	 * Create a copy-on-write clone via FICLONE (e.g. btrfs, xfs) or clonefile (e.g. apfs)
+	 *
+	 * @return false if the file system does not support cloning
+	 */
+	public static boolean reflink(File source, File destination) throws IOException {
+		if (libc == null) {
+			return false;
+		}
+
+		// clone into a temporary file so that an existing destination is only replaced if cloning succeeds
+		File temp = getTempFile(destination);
+		try {
+			if (clone(source, temp)) {
+				replace(temp, destination);
+				return true;
+			}
+			return false;
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private static boolean clone(File source, File destination) throws IOException {
+		if (Platform.isMac()) {
+			try {
+				libc.clonefile(source.getPath(), destination.getPath(), 0);
+				return true;
+			} catch (LastErrorException | UnsatisfiedLinkError e) {
+				debug.finest(cause("clonefile", e));
+				return false;
+			}
+		}
+
+		int in = open(source, O_RDONLY, 0);
+		if (in < 0) {
+			return false;
+		}
+		try {
+			int out = open(destination, O_WRONLY | O_CREAT | O_EXCL, getMode(source));
+			if (out < 0) {
+				return false;
+			}
+			try {
+				libc.ioctl(out, new NativeLong(FICLONE), in);
+				return true;
+			} catch (LastErrorException e) {
+				debug.finest(cause("FICLONE", e));
+				return false;
+			} finally {
+				close(out);
+			}
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Copy file data in the kernel via copy_file_range and preserve sparse regions
+	 *
+	 * @return false if copy_file_range is not supported for the given files
+	 */
+	public static boolean copyFileRange(File source, File destination, LongConsumer progress) throws IOException {
+		if (libc == null || !copyFileRangeSupported) {
+			return false;
+		}
+
+		// keep track of reported progress so that it can be taken back if we need to fall back to another strategy
+		AtomicLong reported = new AtomicLong(0);
+		LongConsumer counter = n -> {
+			reported.addAndGet(n);
+			progress.accept(n);
+		};
+
+		// copy into a temporary file so that an existing destination is only replaced once all data has been copied
+		File temp = getTempFile(destination);
+		try {
+			if (copyFileRange(source, temp, getMode(source), counter)) {
+				replace(temp, destination);
+				return true;
+			}
+
+			progress.accept(-reported.get());
+			return false;
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private static boolean copyFileRange(File source, File destination, int mode, LongConsumer progress) throws IOException {
+		long copied = 0;
+
+		int in = open(source, O_RDONLY, 0);
+		if (in < 0) {
+			return false;
+		}
+		try {
+			int out = open(destination, O_WRONLY | O_CREAT | O_EXCL, mode);
+			if (out < 0) {
+				return false;
+			}
+			try {
+				long size = libc.lseek64(in, 0, SEEK_END);
+
+				// copy data segments only and skip holes
+				long position = 0;
+				while (position < size) {
+					long data = seek(in, position, SEEK_DATA, position);
+					if (data < 0) {
+						break; // only holes until the end of the file
+					}
+
+					long hole = seek(in, data, SEEK_HOLE, size);
+					progress.accept(data - position);
+
+					long n = copyRange(in, out, data, hole, progress);
+					copied += n;
+
+					// copy_file_range may return 0 early (e.g. procfs, sysfs or if the source file has been truncated)
+					if (n < hole - data) {
+						if (copied == 0) {
+							debug.finest(format("copy_file_range: no data [%s]", source));
+							return false;
+						}
+						throw new IOException(String.format("Short copy: %s [%,d of %,d bytes]", source, data + n, size));
+					}
+
+					position = hole;
+				}
+
+				// trailing holes
+				progress.accept(size - position);
+				libc.ftruncate64(out, size);
+				return true;
+			} catch (LastErrorException e) {
+				if (copied == 0 && isUnsupported(e.getErrorCode())) {
+					debug.finest(cause("copy_file_range", e));
+					return false;
+				}
+				throw new IOException(String.format("copy_file_range failed: %s", e.getMessage()), e);
+			} catch (UnsatisfiedLinkError e) {
+				debug.finest(cause("copy_file_range", e));
+				copyFileRangeSupported = false;
+				return false;
+			} finally {
+				close(out);
+			}
+		} finally {
+			close(in);
+		}
+	}
+
+	private static long copyRange(int in, int out, long start, long end, LongConsumer progress) throws IOException {
+		LongByReference offsetIn = new LongByReference(start);
+		LongByReference offsetOut = new LongByReference(start);
+		long copied = 0;
+
+		while (offsetIn.getValue() < end) {
+			long n = libc.copy_file_range(in, offsetIn, out, offsetOut, new NativeLong(Math.min(CHUNK_SIZE, end - offsetIn.getValue())), 0).longValue();
+			if (n <= 0) {
+				break; // no more data
+			}
+
+			copied += n;
+			progress.accept(n);
+
+			// make this long-running operation interruptible
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException();
+			}
+		}
+
+		return copied;
+	}
+
+	private static long seek(int fd, long offset, int whence, long defaultValue) {
+		try {
+			return libc.lseek64(fd, offset, whence);
+		} catch (LastErrorException e) {
+			if (e.getErrorCode() == ENXIO) {
+				return -1; // no more data
+			}
+			return defaultValue; // SEEK_DATA / SEEK_HOLE not supported
+		}
+	}
+
+	private static boolean isUnsupported(int errno) {
+		switch (errno) {
+		case ENOSYS:
+			copyFileRangeSupported = false;
+			return true;
+		case EXDEV:
+		case EINVAL:
+		case EOPNOTSUPP:
+		case EBADF:
+		case EPERM:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return file descriptor or -1 if the file can't be opened natively (e.g. EOVERFLOW) and the caller should fall back to a Java copy
+	 */
+	private static int open(File file, int flags, int mode) {
+		try {
+			// open64 is required for files larger than 2 GB on 32-bit Linux (e.g. i686 and armv7l)
+			if (open64Supported) {
+				try {
+					return libc.open64(file.getPath(), flags, mode);
+				} catch (UnsatisfiedLinkError e) {
+					debug.finest(cause("open64", e));
+					open64Supported = false;
+				}
+			}
+			return libc.open(file.getPath(), flags, mode);
+		} catch (LastErrorException e) {
+			debug.finest(cause(file.getPath(), e));
+			return -1;
+		}
+	}
+
+	private static int getMode(File file) {
+		// same permissions as Files.copy() (without COPY_ATTRIBUTES)
+		try {
+			return (Integer) Files.getAttribute(file.toPath(), "unix:mode") & 0777;
+		} catch (Exception e) {
+			debug.finest(cause("unix:mode", e));
+			return 0666;
+		}
+	}
+
+	private static File getTempFile(File destination) {
+		File folder = destination.getAbsoluteFile().getParentFile();
+		return new File(folder, '.' + destination.getName() + '.' + Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1) + ".tmp");
+	}
+
+	private static void replace(File temp, File destination) throws IOException {
+		// same folder, so the existing destination path is replaced atomically (and hardlinks or symlinks are replaced rather than written through)
+		Files.move(temp.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void close(int fd) throws IOException {
+		try {
+			libc.close(fd);
+		} catch (LastErrorException e) {
+			throw new IOException(String.format("close failed: %s", e.getMessage()), e);
+		}
+	}
+
+}
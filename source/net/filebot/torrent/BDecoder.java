@@ -24,188 +24,137 @@ package net.filebot.torrent;
 
 import static java.nio.charset.StandardCharsets.*;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * A set of utility methods to decode a bencoded array of byte into a Map. integer are represented as Long, String as byte[], dictionnaries as Map, and list as List.
+ * Streaming decoder for bencoded data. Values are pulled one by one from the underlying stream, so large structures (e.g. the file list of a multi-file torrent) can be processed without building nested Maps first. integer are represented as Long, String as byte[], dictionnaries as Map, and list as List.
  *
  * @author TdC_VgA
  */
 class BDecoder {
 
 	public static Map<?, ?> decode(InputStream is) throws IOException {
-		return (new BDecoder().decodeStream(is));
+		return (new BDecoder(is).decodeStream());
 	}
 
-	public Map<?, ?> decodeStream(InputStream data) throws IOException {
-		Object res = decodeInputStream(data, 0);
-
-		if (res == null)
-			throw (new IOException("BDecoder: zero length file"));
-		else if (!(res instanceof Map))
-			throw (new IOException("BDecoder: top level isn't a Map"));
-
-		return ((Map<?, ?>) res);
+	public enum Token {
+		DICTIONARY, LIST, INTEGER, STRING, END, EOF
 	}
 
-	private Object decodeInputStream(InputStream bais, int nesting) throws IOException {
-		if (!bais.markSupported())
-			throw new IOException("InputStream must support the mark() method");
-
-		// set a mark
-		bais.mark(Integer.MAX_VALUE);
-
-		// read a byte
-		int tempByte = bais.read();
-
-		// decide what to do
-		switch (tempByte) {
-		case 'd':
-			// create a new dictionary object
-			Map<String, Object> tempMap = new HashMap<String, Object>();
-
-			// get the key
-			byte[] tempByteArray = null;
-
-			while ((tempByteArray = (byte[]) decodeInputStream(bais, nesting + 1)) != null) {
+	/**
+	 * Byte strings larger than this are rejected unless they are explicitly read via {@link #nextBytes(int)}
+	 */
+	public static final int MAX_STRING_LENGTH = 8 * 1024 * 1024;
 
-				// decode some more
+	private final InputStream in;
 
-				Object value = decodeInputStream(bais, nesting + 1);
+	private int next = -2;
 
-				// add the value to the map
-
-				CharBuffer cb = ISO_8859_1.decode(ByteBuffer.wrap(tempByteArray));
-
-				String key = new String(cb.array(), 0, cb.limit());
+	public BDecoder(InputStream in) {
+		this.in = in;
+	}
 
-				tempMap.put(key, value);
-			}
+	public Map<?, ?> decodeStream() throws IOException {
+		if (peek() == Token.EOF)
+			throw (new IOException("BDecoder: zero length file"));
+		else if (peek() != Token.DICTIONARY)
+			throw (new IOException("BDecoder: top level isn't a Map"));
 
-			if (bais.available() < nesting)
-				throw (new IOException("BDecoder: invalid input data, 'e' missing from end of dictionary"));
+		return ((Map<?, ?>) nextValue());
+	}
 
-			// return the map
-			return tempMap;
+	public Token peek() throws IOException {
+		if (next == -2) {
+			next = in.read();
+		}
 
+		switch (next) {
+		case 'd':
+			return Token.DICTIONARY;
 		case 'l':
-			// create the list
-			List<Object> tempList = new ArrayList<Object>();
-
-			// create the key
-			Object tempElement = null;
-			while ((tempElement = decodeInputStream(bais, nesting + 1)) != null)
-				// add the element
-				tempList.add(tempElement);
-
-			if (bais.available() < nesting)
-				throw (new IOException("BDecoder: invalid input data, 'e' missing from end of list"));
-
-			// return the list
-			return tempList;
-
+			return Token.LIST;
+		case 'i':
+			return Token.INTEGER;
 		case 'e':
+			return Token.END;
 		case -1:
-			return null;
-
-		case 'i':
-			return getNumberFromStream(bais, 'e');
-
-		case '0':
-		case '1':
-		case '2':
-		case '3':
-		case '4':
-		case '5':
-		case '6':
-		case '7':
-		case '8':
-		case '9':
-			// move back one
-			bais.reset();
-			// get the string
-			return getByteArrayFromStream(bais);
-
-		default: {
+			return Token.EOF;
+		default:
+			if (next >= '0' && next <= '9')
+				return Token.STRING;
 
-			int rem_len = bais.available();
-
-			if (rem_len > 256)
-				rem_len = 256;
-
-			byte[] rem_data = new byte[rem_len];
-
-			bais.read(rem_data);
-
-			throw (new IOException("BDecoder: unknown command '" + tempByte + ", remainder = " + new String(rem_data)));
-		}
+			throw (new IOException("BDecoder: unknown command '" + next + "'"));
 		}
 	}
 
-	private long getNumberFromStream(InputStream bais, char parseChar) throws IOException {
-		int length = 0;
+	private void consume(Token token) throws IOException {
+		if (peek() != token)
+			throw (new IOException("BDecoder: expected " + token + " but found " + peek()));
 
-		// place a mark
-		bais.mark(Integer.MAX_VALUE);
+		next = -2;
+	}
 
-		int tempByte = bais.read();
-		while ((tempByte != parseChar) && (tempByte >= 0)) {
-			tempByte = bais.read();
-			length++;
-		}
+	public void beginDictionary() throws IOException {
+		consume(Token.DICTIONARY);
+	}
 
-		// are we at the end of the stream?
-		if (tempByte < 0)
-			return -1;
+	public void beginList() throws IOException {
+		consume(Token.LIST);
+	}
 
-		// reset the mark
-		bais.reset();
+	/**
+	 * @return true if the current dictionary or list has more elements
+	 */
+	public boolean hasNext() throws IOException {
+		Token token = peek();
 
-		// get the length
-		byte[] tempArray = new byte[length];
-		int count = 0;
-		int len = 0;
+		if (token == Token.EOF)
+			throw (new EOFException("BDecoder: invalid input data, 'e' missing from end of dictionary or list"));
 
-		// get the string
-		while ((count != length) && ((len = bais.read(tempArray, count, length - count)) > 0))
-			count += len;
+		return token != Token.END;
+	}
 
-		// jump ahead in the stream to compensate for the :
-		bais.skip(1);
+	public void end() throws IOException {
+		consume(Token.END);
+	}
 
-		// return the value
-		CharBuffer cb = ISO_8859_1.decode(ByteBuffer.wrap(tempArray));
+	public String nextKey() throws IOException {
+		return new String(nextBytes(), ISO_8859_1);
+	}
 
-		String str_value = new String(cb.array(), 0, cb.limit());
+	public long nextLong() throws IOException {
+		consume(Token.INTEGER);
+		return readNumber('e');
+	}
 
-		return Long.parseLong(str_value);
+	public byte[] nextBytes() throws IOException {
+		return nextBytes(MAX_STRING_LENGTH);
 	}
 
-	private byte[] getByteArrayFromStream(InputStream bais) throws IOException {
-		int length = (int) getNumberFromStream(bais, ':');
+	public byte[] nextBytes(int limit) throws IOException {
+		if (peek() != Token.STRING)
+			throw (new IOException("BDecoder: expected " + Token.STRING + " but found " + peek()));
 
-		if (length < 0)
-			return null;
+		long length = readNumber(':');
 
 		// note that torrent hashes can be big (consider a 55GB file with 2MB
 		// pieces
 		// this generates a pieces hash of 1/2 meg
-		if (length > 8 * 1024 * 1024)
+		if (length < 0 || length > limit)
 			throw (new IOException("Byte array length too large (" + length + ")"));
 
-		byte[] tempArray = new byte[length];
+		byte[] tempArray = new byte[(int) length];
 		int count = 0;
 		int len = 0;
 
 		// get the string
-		while ((count != length) && ((len = bais.read(tempArray, count, length - count)) > 0))
+		while ((count != length) && ((len = in.read(tempArray, count, tempArray.length - count)) > 0))
 			count += len;
 
 		if (count != tempArray.length)
@@ -214,4 +163,104 @@ class BDecoder {
 		return tempArray;
 	}
 
+	/**
+	 * Skip the next value without decoding it
+	 */
+	public void skipValue() throws IOException {
+		switch (peek()) {
+		case DICTIONARY:
+		case LIST:
+			next = -2;
+			while (hasNext()) {
+				skipValue();
+			}
+			end();
+			break;
+		case INTEGER:
+			nextLong();
+			break;
+		case STRING:
+			long length = readNumber(':');
+			for (long n = length; n > 0;) {
+				long skipped = in.skip(n);
+				if (skipped <= 0) {
+					if (in.read() < 0)
+						throw (new IOException("BDecoder::skipValue: truncated"));
+					skipped = 1;
+				}
+				n -= skipped;
+			}
+			break;
+		default:
+			throw (new IOException("BDecoder: unexpected " + peek()));
+		}
+	}
+
+	/**
+	 * Decode the next value into Map, List, Long or byte[] objects
+	 */
+	public Object nextValue() throws IOException {
+		switch (peek()) {
+		case DICTIONARY:
+			// create a new dictionary object
+			Map<String, Object> tempMap = new HashMap<String, Object>();
+
+			beginDictionary();
+			while (hasNext()) {
+				String key = nextKey();
+				tempMap.put(key, nextValue());
+			}
+			end();
+
+			return tempMap;
+
+		case LIST:
+			// create the list
+			List<Object> tempList = new ArrayList<Object>();
+
+			beginList();
+			while (hasNext()) {
+				tempList.add(nextValue());
+			}
+			end();
+
+			return tempList;
+
+		case INTEGER:
+			return nextLong();
+
+		case STRING:
+			return nextBytes();
+
+		default:
+			throw (new IOException("BDecoder: unexpected " + peek()));
+		}
+	}
+
+	private long readNumber(char parseChar) throws IOException {
+		StringBuilder number = new StringBuilder(20);
+
+		// the first digit of a string length has already been read
+		if (next >= '0' && next <= '9') {
+			number.append((char) next);
+		}
+		next = -2;
+
+		int tempByte = in.read();
+		while ((tempByte != parseChar) && (tempByte >= 0)) {
+			number.append((char) tempByte);
+			tempByte = in.read();
+		}
+
+		// are we at the end of the stream?
+		if (tempByte < 0)
+			throw (new EOFException("BDecoder: truncated number"));
+
+		try {
+			return Long.parseLong(number.toString());
+		} catch (NumberFormatException e) {
+			throw (new IOException("BDecoder: illegal number: " + number));
+		}
+	}
+
 }
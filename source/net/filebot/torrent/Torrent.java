@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ public class Torrent {
 	private String comment;
 	private Long creationDate;
 	private Long pieceLength;
+	private byte[] pieces;
 
 	private List<FileInfo> files;
 	private boolean singleFileTorrent;
@@ -35,7 +37,9 @@ public class Torrent {
 	}
 
 	public Torrent(File torrent) throws IOException {
-		this(decodeTorrent(torrent));
+		try (InputStream in = new BufferedInputStream(new FileInputStream(torrent))) {
+			decode(new BDecoder(in));
+		}
 	}
 
 	public Torrent(Map<?, ?> torrentMap) {
@@ -57,6 +61,7 @@ public class Torrent {
 
 		name = decodeString(infoMap.get("name"), charset);
 		pieceLength = (Long) infoMap.get("piece length");
+		pieces = (byte[]) infoMap.get("pieces");
 
 		if (infoMap.containsKey("files")) {
 			// torrent contains multiple entries
@@ -98,14 +103,116 @@ public class Torrent {
 		}
 	}
 
-	private static Map<?, ?> decodeTorrent(File torrent) throws IOException {
-		InputStream in = new BufferedInputStream(new FileInputStream(torrent));
+	private void decode(BDecoder decoder) throws IOException {
+		Charset charset = UTF_8;
+		byte[] createdBy = null, announce = null, comment = null;
+
+		decoder.beginDictionary();
+		while (decoder.hasNext()) {
+			switch (decoder.nextKey()) {
+			case "encoding":
+				encoding = decodeString(decoder.nextBytes(), charset);
+				try {
+					charset = Charset.forName(encoding);
+				} catch (IllegalArgumentException e) {
+					// invalid encoding, just keep using UTF-8
+				}
+				break;
+			case "created by":
+				createdBy = decoder.nextBytes();
+				break;
+			case "announce":
+				announce = decoder.nextBytes();
+				break;
+			case "comment":
+				comment = decoder.nextBytes();
+				break;
+			case "creation date":
+				creationDate = decoder.nextLong();
+				break;
+			case "info":
+				decodeInfo(decoder, charset); // keys are sorted so encoding is known at this point
+				break;
+			default:
+				decoder.skipValue();
+			}
+		}
+		decoder.end();
+
+		this.createdBy = decodeString(createdBy, charset);
+		this.announce = decodeString(announce, charset);
+		this.comment = decodeString(comment, charset);
+	}
 
-		try {
-			return BDecoder.decode(in);
-		} finally {
-			in.close();
+	private void decodeInfo(BDecoder decoder, Charset charset) throws IOException {
+		List<FileInfo> entries = null;
+		Long length = null;
+
+		decoder.beginDictionary();
+		while (decoder.hasNext()) {
+			switch (decoder.nextKey()) {
+			case "name":
+				name = decodeString(decoder.nextBytes(), charset);
+				break;
+			case "piece length":
+				pieceLength = decoder.nextLong();
+				break;
+			case "pieces":
+				pieces = decoder.nextBytes(Integer.MAX_VALUE);
+				break;
+			case "length":
+				length = decoder.nextLong();
+				break;
+			case "files":
+				// torrent contains multiple entries
+				entries = new ArrayList<FileInfo>();
+
+				decoder.beginList();
+				while (decoder.hasNext()) {
+					entries.add(decodeFileInfo(decoder, charset));
+				}
+				decoder.end();
+				break;
+			default:
+				decoder.skipValue();
+			}
 		}
+		decoder.end();
+
+		singleFileTorrent = (entries == null);
+		files = singleFileTorrent ? singletonList(new SimpleFileInfo(name, length)) : unmodifiableList(entries);
+	}
+
+	private FileInfo decodeFileInfo(BDecoder decoder, Charset charset) throws IOException {
+		StringBuilder path = new StringBuilder(80);
+		Long length = null;
+
+		decoder.beginDictionary();
+		while (decoder.hasNext()) {
+			switch (decoder.nextKey()) {
+			case "length":
+				length = decoder.nextLong();
+				break;
+			case "path":
+				decoder.beginList();
+				while (decoder.hasNext()) {
+					// append separator
+					if (path.length() > 0) {
+						path.append("/");
+					}
+
+					// append path element
+					path.append(decodeString(decoder.nextBytes(), charset));
+				}
+				decoder.end();
+				break;
+			default:
+				decoder.skipValue();
+			}
+		}
+		decoder.end();
+
+		return new SimpleFileInfo(path.toString(), length);
 	}
 
 	private String decodeString(Object byteArray, Charset charset) {
@@ -158,4 +265,21 @@ public class Torrent {
 		return singleFileTorrent;
 	}
 
+	public int getPieceCount() {
+		return pieces == null ? 0 : pieces.length / PIECE_HASH_LENGTH;
+	}
+
+	public byte[] getPieceHash(int index) {
+		return Arrays.copyOfRange(pieces, index * PIECE_HASH_LENGTH, (index + 1) * PIECE_HASH_LENGTH);
+	}
+
+	public long getLength() {
+		return files.stream().mapToLong(FileInfo::getLength).sum();
+	}
+
+	/**
+	 * Length of a SHA-1 piece hash
+	 */
+	public static final int PIECE_HASH_LENGTH = 20;
+
 }
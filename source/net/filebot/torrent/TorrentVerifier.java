@@ -0,0 +1,214 @@
+package net.filebot.torrent;
+
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.Throughput;
+import net.filebot.vfs.FileInfo;
+
+/**
+ * Verify payload data against the SHA-1 piece hashes of a torrent. Pieces may span multiple files, so each piece is mapped onto the byte ranges of the files it covers. Ranges of consecutive pieces are hashed in parallel.
+ */
+public class TorrentVerifier {
+
+	private final Torrent torrent;
+	private final File[] files;
+	private final long[] offsets;
+
+	public TorrentVerifier(Torrent torrent, File folder) {
+		this.torrent = torrent;
+
+		// single file torrents are stored as {folder}/{name} and multi file torrents as {folder}/{name}/{path}
+		List<FileInfo> entries = torrent.getFiles();
+		this.files = new File[entries.size()];
+		this.offsets = new long[entries.size() + 1];
+
+		for (int i = 0; i < files.length; i++) {
+			files[i] = torrent.isSingleFileTorrent() ? new File(folder, torrent.getName()) : new File(new File(folder, torrent.getName()), entries.get(i).getPath());
+			offsets[i + 1] = offsets[i] + entries.get(i).getLength();
+		}
+	}
+
+	public File[] getFiles() {
+		return files.clone();
+	}
+
+	/**
+	 * @return set of pieces that failed verification
+	 */
+	public BitSet verify(int threadPoolSize) throws Exception {
+		int pieceCount = torrent.getPieceCount();
+		Long pieceLength = torrent.getPieceLength();
+		long totalLength = offsets[files.length];
+
+		// pieces must cover all the data exactly, otherwise truncated or malformed torrents would pass verification
+		if (pieceLength == null || pieceLength <= 0 || pieceLength > Integer.MAX_VALUE || pieceCount != (totalLength + pieceLength - 1) / pieceLength) {
+			throw new IOException(String.format("Bad torrent: %,d pieces of %,d bytes do not cover %,d bytes", pieceCount, pieceLength, totalLength));
+		}
+
+		int batchCount = Math.max(1, Math.min(pieceCount, threadPoolSize * 4));
+		BitSet failed = new BitSet(pieceCount);
+
+		// can't use parallel stream because default fork/join pool doesn't play well with the security manager
+		ExecutorService workerThreadPool = Executors.newFixedThreadPool(threadPoolSize, new DefaultThreadFactory("TorrentVerifier"));
+		try {
+			// each worker verifies a range of consecutive pieces to keep reads sequential
+			List<Future<BitSet>> batches = new ArrayList<Future<BitSet>>(batchCount);
+			for (int i = 0; i < batchCount; i++) {
+				int from = (int) ((long) pieceCount * i / batchCount);
+				int to = (int) ((long) pieceCount * (i + 1) / batchCount);
+				batches.add(workerThreadPool.submit(() -> verify(from, to)));
+			}
+
+			for (Future<BitSet> it : batches) {
+				failed.or(it.get());
+			}
+		} finally {
+			workerThreadPool.shutdownNow();
+		}
+
+		return failed;
+	}
+
+	/**
+	 * @return files that are affected by the given failed pieces, and missing files (including empty files that are not part of any piece)
+	 */
+	public Map<File, Integer> getCorruptedFiles(BitSet failed) {
+		Map<File, Integer> corrupted = new LinkedHashMap<File, Integer>();
+		long pieceLength = torrent.getPieceLength();
+
+		for (int p = failed.nextSetBit(0); p >= 0; p = failed.nextSetBit(p + 1)) {
+			long start = p * pieceLength;
+			long end = Math.min(start + pieceLength, offsets[files.length]);
+
+			for (int i = 0; i < files.length; i++) {
+				// empty files are not part of any piece
+				if (offsets[i] < end && offsets[i + 1] > start && offsets[i + 1] > offsets[i]) {
+					corrupted.merge(files[i], 1, Integer::sum);
+				}
+			}
+		}
+
+		for (File file : files) {
+			if (!file.isFile()) {
+				corrupted.putIfAbsent(file, 0);
+			}
+		}
+
+		return corrupted;
+	}
+
+	protected BitSet verify(int fromPiece, int toPiece) throws Exception {
+		BitSet failed = new BitSet();
+
+		MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+		long pieceLength = torrent.getPieceLength();
+		long totalLength = offsets[files.length];
+		ByteBuffer buffer = ByteBuffer.allocate((int) pieceLength);
+
+		FileChannel channel = null;
+		int channelIndex = -1;
+
+		try {
+			for (int p = fromPiece; p < toPiece; p++) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+
+				long start = p * pieceLength;
+				long end = Math.min(start + pieceLength, totalLength);
+
+				buffer.clear();
+				buffer.limit((int) (end - start));
+
+				// read all segments of this piece from the files it spans
+				boolean complete = true;
+				for (int i = findFile(start); i < files.length && offsets[i] < end && complete; i++) {
+					if (offsets[i + 1] == offsets[i]) {
+						continue; // empty file
+					}
+
+					if (channelIndex != i) {
+						if (channel != null) {
+							channel.close();
+						}
+						channel = open(files[i]);
+						channelIndex = i;
+					}
+
+					long position = Math.max(start, offsets[i]) - offsets[i];
+					int length = (int) (Math.min(end, offsets[i + 1]) - Math.max(start, offsets[i]));
+					complete = channel != null && read(channel, buffer, position, length);
+				}
+
+				if (!complete) {
+					failed.set(p);
+					Throughput.HASH.expect(start - end); // missing data will never be read
+					continue;
+				}
+
+				buffer.flip();
+				sha1.update(buffer);
+				Throughput.HASH.update(end - start);
+
+				if (!MessageDigest.isEqual(sha1.digest(), torrent.getPieceHash(p))) {
+					failed.set(p);
+				}
+			}
+		} finally {
+			if (channel != null) {
+				channel.close();
+			}
+		}
+
+		return failed;
+	}
+
+	private int findFile(long offset) {
+		// exact match is the start of a file, otherwise the insertion point is the file after the one that contains the offset
+		int i = Arrays.binarySearch(offsets, 0, files.length, offset);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	private FileChannel open(File file) {
+		try {
+			return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			debug.finest(cause("Failed to open file", e));
+			return null; // missing files fail all pieces they are part of
+		}
+	}
+
+	private boolean read(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+		int limit = buffer.limit();
+		buffer.limit(buffer.position() + length);
+
+		try {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + length - buffer.remaining()) < 0) {
+					return false; // file is too short
+				}
+			}
+			return true;
+		} finally {
+			buffer.limit(limit);
+		}
+	}
+
+}
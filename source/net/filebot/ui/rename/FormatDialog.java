@@ -98,7 +98,7 @@ public class FormatDialog extends JDialog {
 	private MediaBindingBean sample = null;
 
 	private ExecutorService executor = createExecutor();
-	private RunnableFuture<String> currentPreviewFuture;
+	private RunnableFuture<?> currentPreviewFuture;
 
 	private JLabel preview = new JLabel();
 	private JLabel status = new JLabel();
@@ -482,24 +482,25 @@ public class FormatDialog extends JDialog {
 			Timer progressIndicatorTimer = invokeLater(400, () -> progressIndicator.setVisible(true));
 
 			// cancel old worker later
-			Future<String> obsoletePreviewFuture = currentPreviewFuture;
+			Future<?> obsoletePreviewFuture = currentPreviewFuture;
 
 			// create new worker
-			currentPreviewFuture = new SwingWorker<String, Void>() {
+			currentPreviewFuture = new SwingWorker<ExpressionFormat.Result, Void>() {
 
 				@Override
-				protected String doInBackground() throws Exception {
-					return format.format(sample);
+				protected ExpressionFormat.Result doInBackground() throws Exception {
+					return format.evaluate(sample);
 				}
 
 				@Override
 				protected void done() {
 					try {
-						preview.setText(get());
+						ExpressionFormat.Result result = get();
+						preview.setText(result.getValue());
 
 						// check internal script exception
-						if (format.suppressed() != null) {
-							throw format.suppressed();
+						if (result.getSuppressed() != null) {
+							throw result.getSuppressed();
 						}
 
 						// no warning or error
@@ -1,6 +1,7 @@
 package net.filebot.ui.rename;
 
 import static java.util.Collections.*;
+import static net.filebot.Settings.*;
 import static net.filebot.util.ExceptionUtilities.*;
 import static net.filebot.util.FileUtilities.*;
 
@@ -28,6 +29,7 @@ import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.event.ListEvent;
 import net.filebot.similarity.Match;
+import net.filebot.util.DefaultThreadFactory;
 import net.filebot.util.ui.SwingUI;
 
 public class RenameModel extends MatchModel<Object, File> {
@@ -162,7 +164,15 @@ public class RenameModel extends MatchModel<Object, File> {
 
 		private final List<FormattedFuture> futures = new ArrayList<FormattedFuture>();
 
-		private final Executor backgroundFormatter = new ThreadPoolExecutor(0, 1, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		private final Executor backgroundFormatter = createBackgroundFormatter();
+
+		private Executor createBackgroundFormatter() {
+			// format matches concurrently, idle threads are released after a couple of seconds
+			int threadPoolSize = getPreferredThreadPoolSize();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("RenameModelFormatter"));
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
 
 		public FormattedFutureEventList(EventList<Object> source) {
 			super(source);
@@ -4,8 +4,15 @@ import static net.filebot.Logging.*;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.File;
+import java.nio.file.FileStore;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -16,6 +23,8 @@ import java.util.logging.Level;
 
 import net.filebot.Settings;
 import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.StorageType;
+import net.filebot.util.Throughput;
 
 class ChecksumComputationService {
 
@@ -23,13 +32,34 @@ class ChecksumComputationService {
 
 	private final Set<ThreadPoolExecutor> executors = new HashSet<ThreadPoolExecutor>(4);
 
+	// one executor per volume so that each device is read with its preferred number of concurrent readers
+	private final Map<Object, ChecksumComputationExecutor> volumes = new HashMap<Object, ChecksumComputationExecutor>(4);
+
 	private final AtomicInteger completedTaskCount = new AtomicInteger(0);
 	private final AtomicInteger totalTaskCount = new AtomicInteger(0);
 
+	private final Throughput throughput = new Throughput("Checksum");
+
 	private final int threadPoolSize = Settings.getPreferredThreadPoolSize();
 
 	public ExecutorService newExecutor() {
-		return new ChecksumComputationExecutor();
+		return new VolumeScheduler();
+	}
+
+	protected ChecksumComputationExecutor getExecutor(File file) {
+		FileStore store = StorageType.getFileStore(file);
+		Object volume = store != null ? store : StorageType.UNKNOWN;
+
+		synchronized (executors) {
+			ChecksumComputationExecutor executor = volumes.get(volume);
+
+			if (executor == null || executor.isShutdown()) {
+				executor = new ChecksumComputationExecutor(store == null ? StorageType.UNKNOWN : StorageType.forFile(file));
+				volumes.put(volume, executor);
+			}
+
+			return executor;
+		}
 	}
 
 	public void reset() {
@@ -43,15 +73,21 @@ class ChecksumComputationService {
 				}
 			}
 
-			totalTaskCount.set(0);
-			completedTaskCount.set(0);
+			resetCounts();
 
 			executors.clear();
+			volumes.clear();
 		}
 
 		pcs.firePropertyChange(TASK_COUNT_PROPERTY, -1, getTaskCount());
 	}
 
+	private void resetCounts() {
+		totalTaskCount.set(0);
+		completedTaskCount.set(0);
+		throughput.reset();
+	}
+
 	/**
 	 * Get the number of active executors that are associated with this {@link ChecksumComputationService}.
 	 *
@@ -76,6 +112,13 @@ class ChecksumComputationService {
 		return completedTaskCount.get();
 	}
 
+	/**
+	 * Get the byte-level progress of the current session
+	 */
+	public Throughput getThroughput() {
+		return throughput;
+	}
+
 	public void purge() {
 		synchronized (executors) {
 			for (ThreadPoolExecutor executor : executors) {
@@ -84,23 +127,103 @@ class ChecksumComputationService {
 		}
 	}
 
+	/**
+	 * Dispatch tasks to the executor of the volume they read from
+	 */
+	private class VolumeScheduler extends AbstractExecutorService {
+
+		private final List<ChecksumComputationExecutor> targets = new ArrayList<ChecksumComputationExecutor>(4);
+
+		private boolean shutdown = false;
+
+		public VolumeScheduler() {
+			synchronized (executors) {
+				if (getTaskCount() == 0) {
+					// all previous tasks have been completed, start a new session
+					resetCounts();
+				}
+			}
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			if (shutdown) {
+				throw new IllegalStateException("Executor has been shut down");
+			}
+
+			File file = command instanceof ChecksumComputationTask ? ((ChecksumComputationTask) command).getFile() : null;
+			ChecksumComputationExecutor executor = getExecutor(file == null ? new File(".") : file);
+
+			synchronized (targets) {
+				if (!targets.contains(executor)) {
+					targets.add(executor);
+				}
+			}
+
+			executor.execute(command);
+		}
+
+		@Override
+		public void shutdown() {
+			// volume executors are shared and live until the service is reset
+			shutdown = true;
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			shutdown = true;
+			return new ArrayList<Runnable>(0);
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			synchronized (targets) {
+				return shutdown && targets.stream().allMatch(e -> e.isTerminated() || e.getActiveCount() == 0 && e.getQueue().isEmpty());
+			}
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (!isTerminated()) {
+				if (System.nanoTime() > deadline) {
+					return false;
+				}
+				Thread.sleep(10);
+			}
+			return true;
+		}
+	}
+
 	private class ChecksumComputationExecutor extends ThreadPoolExecutor {
 
-		public ChecksumComputationExecutor() {
-			super(1, threadPoolSize, 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("ChecksumComputationPool", Thread.MIN_PRIORITY));
+		private final StorageType storage;
+
+		public ChecksumComputationExecutor(StorageType storage) {
+			super(1, threadPoolSize, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("ChecksumComputationPool", Thread.MIN_PRIORITY));
+			this.storage = storage;
 
 			synchronized (executors) {
 				if (executors.add(this) && executors.size() == 1) {
 					// first executor of a new session, reset counts
-					totalTaskCount.set(0);
-					completedTaskCount.set(0);
+					resetCounts();
 				}
 			}
 
-			prestartAllCoreThreads();
+			// release reader threads of idle volumes
+			allowCoreThreadTimeOut(true);
 		}
 
 		protected int getPreferredPoolSize() {
+			if (storage != StorageType.UNKNOWN) {
+				return Math.min(storage.getPreferredReaderCount(), threadPoolSize);
+			}
+
 			// for a few files, use one thread
 			// for lots of files, use multiple threads
 			// e.g 50 files ~ 1 thread, 200 files ~ 2 threads, 1000 files ~ 3 threads, 40000 files ~ 5 threads
@@ -119,6 +242,12 @@ class ChecksumComputationService {
 				}
 			}
 
+			if (command instanceof ChecksumComputationTask) {
+				ChecksumComputationTask task = (ChecksumComputationTask) command;
+				task.setThroughput(throughput);
+				throughput.expect(task.getFile().length());
+			}
+
 			synchronized (this) {
 				super.execute(command);
 			}
@@ -134,6 +263,14 @@ class ChecksumComputationService {
 
 			synchronized (this) {
 				delta += getQueue().size();
+
+				// cancelled tasks will never be read
+				for (Runnable r : getQueue()) {
+					if (r instanceof ChecksumComputationTask && ((ChecksumComputationTask) r).isCancelled()) {
+						throughput.expect(-((ChecksumComputationTask) r).getRemainingBytes());
+					}
+				}
+
 				super.purge();
 				delta -= getQueue().size();
 			}
@@ -157,6 +294,11 @@ class ChecksumComputationService {
 					completedTaskCount.incrementAndGet();
 				}
 
+				// account for cancelled, failed or truncated reads
+				if (r instanceof ChecksumComputationTask) {
+					throughput.expect(-((ChecksumComputationTask) r).getRemainingBytes());
+				}
+
 				pcs.firePropertyChange(TASK_COUNT_PROPERTY, getTaskCount() + 1, getTaskCount());
 			}
 		}
@@ -171,6 +313,7 @@ class ChecksumComputationService {
 		protected void terminated() {
 			synchronized (executors) {
 				executors.remove(this);
+				volumes.values().remove(this);
 			}
 		}
 	}
@@ -3,62 +3,83 @@ package net.filebot.ui.sfv;
 import static net.filebot.util.FileUtilities.*;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.SwingWorker;
 
-import net.filebot.hash.Hash;
+import net.filebot.Settings;
 import net.filebot.hash.HashType;
+import net.filebot.hash.ReadaheadHasher;
+import net.filebot.util.DefaultThreadFactory;
+import net.filebot.util.StorageType;
+import net.filebot.util.Throughput;
 
 class ChecksumComputationTask extends SwingWorker<Map<HashType, String>, Void> {
 
+	private static final int READAHEAD_BUFFERS = 8;
+
+	private static final ReadaheadHasher hasher = new ReadaheadHasher(newHashWorkerPool(), BUFFER_SIZE, READAHEAD_BUFFERS);
+
+	private static ExecutorService newHashWorkerPool() {
+		// hashing is CPU-bound so we never need more hash workers than cores
+		int threadPoolSize = Settings.getPreferredThreadPoolSize();
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 5L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("ChecksumHashWorker", Thread.MIN_PRIORITY, true));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	private final File file;
 	private final HashType hashType;
 
+	private Throughput throughput;
+	private volatile long processed;
+
 	public ChecksumComputationTask(File file, HashType hashType) {
 		this.file = file;
 		this.hashType = hashType;
 	}
 
+	public File getFile() {
+		return file;
+	}
+
+	void setThroughput(Throughput throughput) {
+		this.throughput = throughput;
+	}
+
+	long getRemainingBytes() {
+		return file.length() - processed;
+	}
+
 	@Override
 	protected Map<HashType, String> doInBackground() throws Exception {
-		// create hash instance
-		Hash hash = hashType.newHash();
-
 		// cache length for speed
 		long length = file.length();
 
-		// open file
-		InputStream in = new FileInputStream(file);
+		String hash = hasher.hash(file, hashType, StorageType.forFile(file).getPreferredQueueDepth(), n -> {
+			processed += n;
 
-		try {
-			byte[] buffer = new byte[BUFFER_SIZE];
+			// update progress
+			setProgress(length == 0 ? 100 : (int) ((processed * 100) / length));
 
-			long position = 0;
-			int len = 0;
-
-			while ((len = in.read(buffer)) >= 0) {
-				position += len;
-
-				hash.update(buffer, 0, len);
-
-				// update progress
-				setProgress((int) ((position * 100) / length));
+			if (throughput != null) {
+				throughput.update(n);
+			}
 
-				// check abort status
-				if (isCancelled() || Thread.interrupted()) {
-					throw new CancellationException();
-				}
+			// check abort status
+			if (isCancelled()) {
+				throw new CancellationException();
 			}
-		} finally {
-			in.close();
-		}
+		});
 
-		return Collections.singletonMap(hashType, hash.digest());
+		return Collections.singletonMap(hashType, hash);
 	}
 
 }
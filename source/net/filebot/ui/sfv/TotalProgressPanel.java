@@ -5,6 +5,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.time.Duration;
 
 import javax.swing.JComponent;
 import javax.swing.JProgressBar;
@@ -12,6 +13,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.border.TitledBorder;
 
+import net.filebot.util.Throughput;
 import net.miginfocom.swing.MigLayout;
 
 class TotalProgressPanel extends JComponent {
@@ -46,6 +48,7 @@ class TotalProgressPanel extends JComponent {
 		public void propertyChange(PropertyChangeEvent evt) {
 			int completedTaskCount = getComputationService(evt).getCompletedTaskCount();
 			int totalTaskCount = getComputationService(evt).getTotalTaskCount();
+			Throughput throughput = getComputationService(evt).getThroughput();
 
 			// invoke on EDT
 			SwingUtilities.invokeLater(() -> {
@@ -59,11 +62,21 @@ class TotalProgressPanel extends JComponent {
 				if (totalTaskCount != 0) {
 					progressBar.setValue(completedTaskCount);
 					progressBar.setMaximum(totalTaskCount);
-					progressBar.setString(String.format("%d / %d", completedTaskCount, totalTaskCount));
+					progressBar.setString(getProgressString(completedTaskCount, totalTaskCount, throughput));
 				}
 			});
 		}
 
+		private String getProgressString(int completedTaskCount, int totalTaskCount, Throughput throughput) {
+			double rate = throughput.getRate();
+			if (rate <= 0) {
+				return String.format("%d / %d", completedTaskCount, totalTaskCount);
+			}
+
+			Duration eta = throughput.getETA();
+			return String.format("%d / %d (%s%s)", completedTaskCount, totalTaskCount, Throughput.formatRate(rate), eta == null ? "" : ", " + Throughput.formatDuration(eta) + " remaining");
+		}
+
 		private ChecksumComputationService getComputationService(PropertyChangeEvent evt) {
 			return ((ChecksumComputationService) evt.getSource());
 		}
@@ -22,6 +22,7 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileStore;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -31,6 +32,8 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -39,10 +42,13 @@ import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -82,8 +88,48 @@ public final class FileUtilities {
 			}
 		}
 
+		// moving files across file systems requires copying all the data
+		boolean copy = !isSameFileStore(source.getAbsoluteFile().getParentFile(), destination.getAbsoluteFile().getParentFile());
+		long length = copy ? source.length() : 0;
+
+		if (copy) {
+			Throughput.COPY.expect(length);
+		}
+
 		// Linux and Mac OS X
-		return Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING).toFile();
+		try {
+			File file = Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING).toFile();
+
+			if (copy) {
+				Throughput.COPY.update(length);
+			}
+
+			return file;
+		} catch (IOException | RuntimeException e) {
+			if (copy) {
+				Throughput.COPY.expect(-length);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * File stores of recently used source and destination folders, so that moving many files between the same folders does not look up the file store for each file
+	 */
+	private static final Map<File, FileStore> fileStoreCache = synchronizedMap(new LinkedHashMap<File, FileStore>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Entry<File, FileStore> eldest) {
+			return size() > FILE_STORE_CACHE_SIZE;
+		}
+	});
+
+	private static boolean isSameFileStore(File a, File b) {
+		// files in the same folder are always on the same file system
+		if (a == null || b == null || a.equals(b)) {
+			return Objects.equals(a, b);
+		}
+		return Objects.equals(fileStoreCache.computeIfAbsent(a, StorageType::getFileStore), fileStoreCache.computeIfAbsent(b, StorageType::getFileStore));
 	}
 
 	public static File copyAs(File source, File destination) throws IOException {
@@ -97,7 +143,53 @@ public final class FileUtilities {
 		}
 
 		// copy file
-		return Files.copy(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING).toFile();
+		return copyFile(source, destination, Throughput.COPY);
+	}
+
+	/**
+	 * Same as {@link Files#copy(Path, Path, java.nio.file.CopyOption...)} with {@link StandardCopyOption#REPLACE_EXISTING} but copy in chunks so we can keep track of progress
+	 */
+	public static File copyFile(File source, File destination, Throughput throughput) throws IOException {
+		// nothing to do if source and destination are the same file
+		if (destination.exists() && Files.isSameFile(source.toPath(), destination.toPath())) {
+			return destination;
+		}
+
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+			long size = in.size();
+			throughput.expect(size);
+
+			// replace existing files, hardlinks or symlinks instead of writing through them
+			Files.deleteIfExists(destination.toPath());
+
+			try (FileChannel out = FileChannel.open(destination.toPath(), EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW), getPermissions(source))) {
+				for (long position = 0; position < size;) {
+					long n = in.transferTo(position, Math.min(COPY_CHUNK_SIZE, size - position), out);
+					if (n <= 0) {
+						throughput.expect(position - size);
+						throw new IOException(String.format("Short copy: %s [%,d of %,d bytes]", source, position, size));
+					}
+
+					position += n;
+					throughput.update(n);
+				}
+			} catch (IOException e) {
+				// do not leave a partial file behind
+				Files.deleteIfExists(destination.toPath());
+				throw e;
+			}
+		}
+
+		return destination;
+	}
+
+	private static FileAttribute<?>[] getPermissions(File file) {
+		// same permissions as the source file (subject to umask) just like Files.copy()
+		try {
+			return new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(Files.getPosixFilePermissions(file.toPath())) };
+		} catch (UnsupportedOperationException | IOException e) {
+			return new FileAttribute<?>[0];
+		}
 	}
 
 	public static File resolve(File source, File destination) {
@@ -716,6 +808,10 @@ public final class FileUtilities {
 
 	public static final int BUFFER_SIZE = 64 * 1024;
 
+	public static final long COPY_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final int FILE_STORE_CACHE_SIZE = 100;
+
 	public static final long ONE_KILOBYTE = 1000;
 	public static final long ONE_MEGABYTE = 1000 * ONE_KILOBYTE;
 	public static final long ONE_GIGABYTE = 1000 * ONE_MEGABYTE;
@@ -0,0 +1,119 @@
+package net.filebot.util;
+
+import static java.util.Arrays.*;
+import static net.filebot.Logging.*;
+
+import java.io.File;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.filebot.Settings;
+
+public enum StorageType {
+
+	ROTATIONAL, SOLID_STATE, NETWORK, UNKNOWN;
+
+	/**
+	 * Number of files that should be read concurrently from a single device of this type
+	 */
+	public int getPreferredReaderCount() {
+		switch (this) {
+		case ROTATIONAL:
+			return 1; // sequential reads only, concurrent reads would make the disk seek back and forth
+		case SOLID_STATE:
+			return Math.max(2, Settings.getPreferredThreadPoolSize());
+		case NETWORK:
+			return 2;
+		default:
+			return Settings.getPreferredThreadPoolSize();
+		}
+	}
+
+	/**
+	 * Number of files that should be written concurrently to a single device of this type
+	 */
+	public int getPreferredWriterCount() {
+		switch (this) {
+		case ROTATIONAL:
+			return 1;
+		case SOLID_STATE:
+			return 4;
+		case NETWORK:
+			return 4; // multiple streams help to saturate the link and the remote disk array
+		default:
+			return 2;
+		}
+	}
+
+	/**
+	 * Number of outstanding read requests per file
+	 */
+	public int getPreferredQueueDepth() {
+		return this == NETWORK ? 8 : 1;
+	}
+
+	private static final List<String> NETWORK_FILE_SYSTEMS = asList("nfs", "nfs4", "cifs", "smb", "smbfs", "smb2", "smb3", "afpfs", "webdav", "davfs", "fuse.sshfs", "9p");
+
+	private static final Map<FileStore, StorageType> cache = new ConcurrentHashMap<FileStore, StorageType>();
+
+	public static StorageType forFile(File file) {
+		FileStore store = getFileStore(file);
+		return store == null ? UNKNOWN : cache.computeIfAbsent(store, StorageType::forFileStore);
+	}
+
+	public static FileStore getFileStore(File file) {
+		// use closest existing parent folder for files that do not exist yet
+		for (File f = file.getAbsoluteFile(); f != null; f = f.getParentFile()) {
+			if (f.exists()) {
+				try {
+					return Files.getFileStore(f.toPath());
+				} catch (Exception e) {
+					debug.finest(cause("Failed to get file store", e));
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static StorageType forFileStore(FileStore store) {
+		String type = store.type().toLowerCase();
+
+		if (NETWORK_FILE_SYSTEMS.contains(type)) {
+			return NETWORK;
+		}
+
+		// e.g. /dev/sda1 or /dev/nvme0n1p1
+		String name = store.name();
+		if (name.startsWith("/dev/")) {
+			return forBlockDevice(name.substring(5));
+		}
+
+		return UNKNOWN;
+	}
+
+	static StorageType forBlockDevice(String name) {
+		try {
+			// e.g. /sys/class/block/sda1 -> /sys/devices/.../block/sda/sda1
+			Path device = Paths.get("/sys/class/block", name).toRealPath();
+
+			// partitions do not have their own queue properties so we need to check the parent device
+			for (Path d : new Path[] { device, device.getParent() }) {
+				Path rotational = d.resolve("queue/rotational");
+				if (Files.exists(rotational)) {
+					return new String(Files.readAllBytes(rotational)).trim().equals("1") ? ROTATIONAL : SOLID_STATE;
+				}
+			}
+		} catch (Exception e) {
+			debug.finest(cause("Failed to read block device properties", e));
+		}
+
+		return UNKNOWN;
+	}
+
+}
@@ -0,0 +1,240 @@
+package net.filebot.util;
+
+import static java.util.Arrays.*;
+import static net.filebot.util.FileUtilities.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Byte-level progress and throughput accounting for long-running I/O operations. Producers report processed bytes via {@link #update(long)} and announce upcoming work via {@link #expect(long)}, so that rate and ETA can be derived independently of the number of files.
+ */
+public class Throughput {
+
+	public static final Throughput HASH = new Throughput("Hash");
+	public static final Throughput COPY = new Throughput("Copy");
+	public static final Throughput EXTRACT = new Throughput("Extract");
+
+	public static List<Throughput> values() {
+		return asList(HASH, COPY, EXTRACT);
+	}
+
+	/**
+	 * Rate is measured over a sliding window of recent samples
+	 */
+	private static final long SAMPLE_INTERVAL = 250;
+	private static final int SAMPLE_COUNT = 40;
+
+	private static final long REPORT_INTERVAL = 5000;
+
+	private final String name;
+
+	private final AtomicLong bytes = new AtomicLong(0);
+	private final AtomicLong total = new AtomicLong(0);
+
+	private final long[] sampleTime = new long[SAMPLE_COUNT];
+	private final long[] sampleBytes = new long[SAMPLE_COUNT];
+	private int sampleIndex = 0;
+	private int sampleSize = 0;
+
+	public Throughput(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void expect(long length) {
+		total.addAndGet(length);
+	}
+
+	public void update(long length) {
+		long value = bytes.addAndGet(length);
+		long now = System.currentTimeMillis();
+
+		synchronized (sampleTime) {
+			long last = sampleSize == 0 ? 0 : sampleTime[(sampleIndex + SAMPLE_COUNT - 1) % SAMPLE_COUNT];
+
+			// start a new sample window after a long pause so that idle time between operations does not affect the rate
+			if (sampleSize > 0 && now - last >= SAMPLE_INTERVAL * SAMPLE_COUNT) {
+				sampleSize = 0;
+			}
+
+			if (sampleSize == 0 || now - last >= SAMPLE_INTERVAL) {
+				if (sampleSize == 0) {
+					// rate is measured from the beginning of the first update
+					sampleTime[sampleIndex] = now;
+					sampleBytes[sampleIndex] = value - length;
+					sampleIndex = (sampleIndex + 1) % SAMPLE_COUNT;
+					sampleSize++;
+				}
+
+				sampleTime[sampleIndex] = now;
+				sampleBytes[sampleIndex] = value;
+				sampleIndex = (sampleIndex + 1) % SAMPLE_COUNT;
+				sampleSize = Math.min(sampleSize + 1, SAMPLE_COUNT);
+			}
+		}
+	}
+
+	public void reset() {
+		synchronized (sampleTime) {
+			bytes.set(0);
+			total.set(0);
+			sampleIndex = 0;
+			sampleSize = 0;
+		}
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public long getTotal() {
+		return Math.max(total.get(), bytes.get());
+	}
+
+	/**
+	 * @return bytes per second
+	 */
+	public double getRate() {
+		synchronized (sampleTime) {
+			if (sampleSize < 2) {
+				return 0;
+			}
+
+			int first = (sampleIndex + SAMPLE_COUNT - sampleSize) % SAMPLE_COUNT;
+			int last = (sampleIndex + SAMPLE_COUNT - 1) % SAMPLE_COUNT;
+
+			// include the time since the last sample so that the rate drops when no more data is coming in
+			long time = Math.max(System.currentTimeMillis(), sampleTime[last]) - sampleTime[first];
+			long data = bytes.get() - sampleBytes[first];
+
+			return time <= 0 ? 0 : data * 1000d / time;
+		}
+	}
+
+	/**
+	 * @return estimated time remaining or null if unknown
+	 */
+	public Duration getETA() {
+		double rate = getRate();
+		long remaining = getTotal() - getBytes();
+
+		if (rate <= 0 || total.get() <= 0) {
+			return null;
+		}
+
+		return Duration.ofSeconds((long) Math.ceil(remaining / rate));
+	}
+
+	public boolean isActive() {
+		return getBytes() < getTotal();
+	}
+
+	/**
+	 * Report the progress of a single operation periodically until the returned {@link Monitor} is closed. The shared counters are not reset, so concurrent operations (e.g. multiple jobs in server mode) do not interfere with each other.
+	 */
+	public Monitor monitor(long expected, Consumer<String> report) {
+		return new Monitor(expected, report);
+	}
+
+	/**
+	 * Progress of a single operation relative to the shared counters at the time the operation was started
+	 */
+	public class Monitor implements AutoCloseable {
+
+		private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new DefaultThreadFactory("ThroughputMonitor", Thread.MIN_PRIORITY, true));
+
+		private final long startTime = System.currentTimeMillis();
+		private final long startBytes = bytes.get();
+		private final long startTotal = total.get();
+
+		private final long expected;
+		private final Consumer<String> report;
+		private long lastReport = 0;
+
+		public Monitor(long expected, Consumer<String> report) {
+			this.expected = expected;
+			this.report = report;
+			expect(expected);
+			this.executor.scheduleWithFixedDelay(this::report, REPORT_INTERVAL, REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+		}
+
+		public long getBytes() {
+			return bytes.get() - startBytes;
+		}
+
+		public long getTotal() {
+			return Math.max(total.get() - startTotal, getBytes());
+		}
+
+		public Duration getETA() {
+			double rate = getRate();
+			long remaining = getTotal() - getBytes();
+
+			if (rate <= 0 || remaining <= 0) {
+				return null;
+			}
+
+			return Duration.ofSeconds((long) Math.ceil(remaining / rate));
+		}
+
+		public String getSummary() {
+			long elapsed = System.currentTimeMillis() - startTime;
+			double rate = elapsed <= 0 ? 0 : getBytes() * 1000d / elapsed;
+			return String.format("%s: %s in %s (%s)", name, formatSize(getBytes()), formatDuration(Duration.ofMillis(elapsed)), formatRate(rate));
+		}
+
+		private void report() {
+			// only report while data is being processed
+			long bytes = getBytes();
+			if (bytes != lastReport) {
+				lastReport = bytes;
+				report.accept(toString());
+			}
+		}
+
+		@Override
+		public void close() {
+			executor.shutdownNow();
+
+			// drop the expected data of this operation that was never processed (e.g. failed files) so that the shared counters stay balanced
+			long remaining = Math.min(expected, getTotal() - getBytes());
+			if (remaining > 0) {
+				expect(-remaining);
+			}
+
+			if (getBytes() > 0) {
+				report.accept(getSummary());
+			}
+		}
+
+		@Override
+		public String toString() {
+			Duration eta = getETA();
+			return String.format("%s: %s / %s (%s%s)", name, formatSize(getBytes()), formatSize(getTotal()), formatRate(getRate()), eta == null ? "" : ", ETA " + formatDuration(eta));
+		}
+	}
+
+	public static String formatRate(double bytesPerSecond) {
+		return String.format("%.1f MB/s", bytesPerSecond / ONE_MEGABYTE);
+	}
+
+	public static String formatDuration(Duration d) {
+		long s = d.getSeconds();
+		return s >= 3600 ? String.format("%d:%02d:%02d", s / 3600, (s % 3600) / 60, s % 60) : String.format("%02d:%02d", s / 60, s % 60);
+	}
+
+	@Override
+	public String toString() {
+		Duration eta = getETA();
+		return String.format("%s: %s / %s (%s%s)", name, formatSize(getBytes()), formatSize(getTotal()), formatRate(getRate()), eta == null ? "" : ", ETA " + formatDuration(eta));
+	}
+
+}
@@ -29,8 +29,8 @@ import net.filebot.Cache.TypedCache;
 import net.filebot.CacheType;
 import net.filebot.ResourceManager;
 import net.filebot.media.MediaDetection;
-import net.filebot.mediainfo.MediaInfo;
 import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.mediainfo.MediaInfoSnapshot;
 import net.filebot.util.ExceptionUtilities;
 import net.filebot.util.Timer;
 import net.filebot.web.OpenSubtitlesXmlRpc.BaseInfo;
@@ -312,7 +312,8 @@ public class OpenSubtitlesClient implements SubtitleProvider, VideoHashSubtitleS
 			sub.setSubContent(readFile(subtitleFile));
 		}
 
-		try (MediaInfo mi = new MediaInfo().open(videoFile)) {
+		try {
+			MediaInfoSnapshot mi = MediaInfoSnapshot.of(videoFile);
 			sub.setMovieFPS(mi.get(StreamKind.Video, 0, "FrameRate"));
 			sub.setMovieTimeMS(mi.get(StreamKind.General, 0, "Duration"));
 		} catch (Throwable e) {
@@ -4,22 +4,33 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import net.filebot.format.ExpressionFilterTest;
+import net.filebot.format.ExpressionFormatMethodsTest;
 import net.filebot.format.ExpressionFormatTest;
+import net.filebot.format.MediaBindingBeanTest;
+import net.filebot.hash.DuplicateFinderTest;
 import net.filebot.hash.VerificationFormatTest;
+import net.filebot.hash.VerificationJournalTest;
 import net.filebot.media.MediaDetectionTest;
 import net.filebot.media.ReleaseInfoTest;
 import net.filebot.media.VideoFormatTest;
+import net.filebot.media.VideoQualityTest;
+import net.filebot.mediainfo.MediaHeaderTest;
+import net.filebot.mediainfo.MediaInfoPoolTest;
+import net.filebot.mediainfo.MediaInfoSnapshotTest;
 import net.filebot.mediainfo.MediaInfoTest;
+import net.filebot.platform.posix.PosixFileCopyTest;
 import net.filebot.similarity.EpisodeMetricsTest;
 import net.filebot.similarity.SimilarityTestSuite;
 import net.filebot.subtitle.SubtitleReaderTestSuite;
+import net.filebot.torrent.TorrentVerifierTest;
 import net.filebot.ui.SupportDialogTest;
 import net.filebot.ui.rename.MatchModelTest;
 import net.filebot.util.UtilTestSuite;
 import net.filebot.web.WebTestSuite;
 
 @RunWith(Suite.class)
-@SuiteClasses({ ExpressionFormatTest.class, VerificationFormatTest.class, MatchModelTest.class, SupportDialogTest.class, EpisodeMetricsTest.class, ReleaseInfoTest.class, VideoFormatTest.class, MediaDetectionTest.class, MediaInfoTest.class, SimilarityTestSuite.class, WebTestSuite.class, SubtitleReaderTestSuite.class, UtilTestSuite.class })
+@SuiteClasses({ ExpressionFormatTest.class, MediaBindingBeanTest.class, ExpressionFilterTest.class, ExpressionFormatMethodsTest.class, VerificationFormatTest.class, VerificationJournalTest.class, DuplicateFinderTest.class, MatchModelTest.class, SupportDialogTest.class, EpisodeMetricsTest.class, ReleaseInfoTest.class, VideoFormatTest.class, MediaDetectionTest.class, VideoQualityTest.class, MediaInfoTest.class, MediaInfoSnapshotTest.class, MediaInfoPoolTest.class, MediaHeaderTest.class, TorrentVerifierTest.class, PosixFileCopyTest.class, SimilarityTestSuite.class, WebTestSuite.class, SubtitleReaderTestSuite.class, UtilTestSuite.class })
 public class AllTests {
 
 }
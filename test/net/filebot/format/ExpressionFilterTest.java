@@ -0,0 +1,87 @@
+package net.filebot.format;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import net.filebot.web.Episode;
+import net.filebot.web.SimpleDate;
+
+public class ExpressionFilterTest {
+
+	static final String[] SIMPLE = { "s == 1", "s != 1", "e < 10", "e <= 10 && s >= 2", "!special", "s == 1 || e > 20", "!(s == 1) && absolute > 100", "age < 7", "age >= 365", "n == 'Doctor Who'", "n != \"Doctor Who\"", "s == 1.0", "e > -1", "special == null", "!s == false", "true", "xyz == 1" };
+	static final String[] COMPLEX = { "n.length() > 5", "s in [1, 2]", "e % 2 == 0", "n =~ /Who/", "s == 1L", "n == \"$s\"", "s == 010", "x = 1" };
+
+	@Test
+	public void parse() {
+		for (String it : SIMPLE) {
+			assertNotNull(it, ExpressionPredicate.parse(it));
+		}
+		for (String it : COMPLEX) {
+			assertNull(it, ExpressionPredicate.parse(it));
+		}
+	}
+
+	@Test
+	public void nativePredicateMatchesScriptEngine() throws Exception {
+		List<Episode> episodes = createEpisodes(200);
+
+		for (String expression : SIMPLE) {
+			ExpressionFilter script = createFilter(expression, false);
+			ExpressionFilter predicate = createFilter(expression, true);
+
+			for (Episode e : episodes) {
+				MediaBindingBean bindings = new MediaBindingBean(e, null);
+				assertEquals(expression + " => " + e, script.matches(bindings), predicate.matches(bindings));
+			}
+		}
+	}
+
+	@Ignore("Benchmark")
+	@Test
+	public void benchmark() throws Exception {
+		List<Episode> episodes = createEpisodes(5000);
+
+		for (String expression : new String[] { "s == 1", "age < 7", "e <= 10 && s >= 2 || special != null" }) {
+			long script = time(createFilter(expression, false), episodes);
+			long predicate = time(createFilter(expression, true), episodes);
+
+			System.out.format("Filter %s for %,d episodes: Groovy %,d ms, Native %,d ms%n", expression, episodes.size(), script, predicate);
+		}
+	}
+
+	private long time(ExpressionFilter filter, List<Episode> episodes) {
+		long start = System.nanoTime();
+		for (Episode e : episodes) {
+			filter.matches(new MediaBindingBean(e, null));
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private ExpressionFilter createFilter(String expression, boolean predicate) throws Exception {
+		System.setProperty("net.filebot.format.ExpressionFilter.native", String.valueOf(predicate));
+		try {
+			return new ExpressionFilter(expression);
+		} finally {
+			System.clearProperty("net.filebot.format.ExpressionFilter.native");
+		}
+	}
+
+	private List<Episode> createEpisodes(int size) {
+		long today = System.currentTimeMillis();
+
+		List<Episode> episodes = new ArrayList<Episode>(size);
+		for (int i = 0; i < size; i++) {
+			Integer season = i % 7 == 0 ? null : i % 5 + 1;
+			Integer special = season == null ? i % 3 + 1 : null;
+			SimpleDate airdate = i % 11 == 0 ? null : new SimpleDate(today - i * 24L * 60 * 60 * 1000 / 3);
+			episodes.add(new Episode(i % 2 == 0 ? "Doctor Who" : "Firefly", season, i % 30 + 1, "Episode " + i, i, special, airdate, i, null));
+		}
+		return episodes;
+	}
+
+}
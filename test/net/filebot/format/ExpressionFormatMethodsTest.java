@@ -0,0 +1,103 @@
+package net.filebot.format;
+
+import static net.filebot.format.ExpressionFormatMethods.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.ibm.icu.text.Transliterator;
+
+import net.filebot.web.Episode;
+
+public class ExpressionFormatMethodsTest {
+
+	static final String[] EXPRESSIONS = { "{n.ascii()}", "{n.sortName()}", "{n.upperInitial()}", "{n.match(/(\\w+)$/)}", "{t.replaceAll(/[!?.]+$/)}", "{n.transliterate('Any-Latin')}", "{t.replacePart(', Part $1')}", "{n.acronym()}" };
+
+	@Test
+	public void stringMethods() throws Exception {
+		assertEquals("Osterreich", ascii("Österreich"));
+		assertEquals("katakana", ascii("カタカナ"));
+		assertEquals("Doktor Kto", transliterate("Доктор Кто", "Any-Latin; Latin-ASCII"));
+		assertEquals("Walking Dead", sortName("The Walking Dead"));
+		assertEquals("DS9", acronym("Deep Space 9"));
+		assertEquals("The Day A New Demon Was Born", upperInitial("The Day a new Demon was born"));
+		assertEquals("Today Is the Day, Part 1", replacePart("Today Is the Day: Part 1", ", Part $1"));
+		assertEquals("Star Wars: Episode IV", roman("Star Wars: Episode 4"));
+		assertEquals("The IT Crowd", replaceTrailingBrackets("The IT Crowd (UK)"));
+		assertEquals("Doctor Who", replaceAll("Doctor Who!?", "[!?]+"));
+		assertEquals("2016", match("Firefly 2016 1080p", "\\d{4}"));
+		assertTrue(isLatin("Österreich"));
+		assertFalse(isLatin("カタカナ"));
+	}
+
+	@Test
+	public void concurrentTransliteration() throws Exception {
+		String[] values = { "Österreich", "カタカナ", "Доктор Кто", "Ελληνικά" };
+		String[] expected = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			expected[i] = ascii(values[i]);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < 1000; i++) {
+				int index = i % values.length;
+				futures.add(executor.submit(() -> assertEquals(expected[index], ascii(values[index]))));
+			}
+			for (Future<?> it : futures) {
+				it.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Ignore("Benchmark")
+	@Test
+	public void benchmark() throws Exception {
+		List<Episode> episodes = new ArrayList<Episode>();
+		for (int i = 0; i < 2000; i++) {
+			episodes.add(new Episode(i % 2 == 0 ? "The Walking Dead" : "Доктор Кто", i % 5 + 1, i % 20 + 1, "Episode " + i + ": Part " + (i % 3 + 1) + "!", i, null, null, i, null));
+		}
+
+		for (String expression : EXPRESSIONS) {
+			ExpressionFormat format = new ExpressionFormat(expression);
+			format.format(new MediaBindingBean(episodes.get(0), null)); // warm up
+
+			long start = System.nanoTime();
+			for (Episode e : episodes) {
+				format.format(new MediaBindingBean(e, null));
+			}
+			System.out.format("Format %s for %,d episodes: %,d ms%n", expression, episodes.size(), (System.nanoTime() - start) / 1_000_000);
+		}
+
+		// baseline cost of creating a new instance for each call
+		long start = System.nanoTime();
+		for (Episode e : episodes) {
+			Pattern.compile("(\\w+)$", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CHARACTER_CLASS | Pattern.MULTILINE).matcher(e.getSeriesName()).find();
+		}
+		System.out.format("Pattern.compile for %,d episodes: %,d ms%n", episodes.size(), (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		for (Episode e : episodes) {
+			Transliterator.getInstance("Any-Latin;Latin-ASCII;[:Diacritic:]remove").transform(e.getSeriesName());
+		}
+		System.out.format("Transliterator.getInstance for %,d episodes: %,d ms%n", episodes.size(), (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		for (Episode e : episodes) {
+			ascii(e.getSeriesName());
+		}
+		System.out.format("ascii() for %,d episodes: %,d ms%n", episodes.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+}
@@ -3,6 +3,8 @@ package net.filebot.format;
 
 import static org.junit.Assert.*;
 
+import java.util.stream.IntStream;
+
 import javax.script.Bindings;
 import javax.script.CompiledScript;
 import javax.script.ScriptException;
@@ -112,6 +114,42 @@ public class ExpressionFormatTest {
 		assertEquals("Suppressed: Binding \"xyz\": undefined", format.suppressed().getMessage());
 	}
 
+	@Test
+	public void suppressedScriptlet() throws Exception {
+		TestScriptFormat format = new TestScriptFormat("{value.upper()}-{value.xyz}-{value.lower()}");
+
+		assertEquals("ABC--abc", format.format("aBc"));
+		assertEquals("Suppressed: Binding \"xyz\": undefined", format.suppressed().getMessage());
+	}
+
+	@Test
+	public void scriptletVariables() throws Exception {
+		assertEquals("1-2", new TestScriptFormat("{x = 1}-{x + 1}").format(0));
+		assertEquals("7", new TestScriptFormat("{def x = 7; x}").format(0));
+	}
+
+	@Test
+	public void scriptletMethodDefinition() throws Exception {
+		assertEquals("[7]-7", new TestScriptFormat("{def f(x) { \"[$x]\" }; f(value)}-{value}").format(7));
+	}
+
+	@Test
+	public void bindingNames() throws Exception {
+		TestScriptFormat format = new TestScriptFormat("{n} - {def x = vf; x + ac} {[1, 2].collect{ it + y }} {\"$rating\"}");
+		assertEquals("[ac, n, rating, vf, y]", format.getBindingNames().toString());
+	}
+
+	@Test
+	public void concurrentEvaluation() throws Exception {
+		TestScriptFormat format = new TestScriptFormat("{value.pad(4)}{value % 2 == 0 ? '' : value.xyz}");
+
+		IntStream.range(0, 1000).parallel().forEach(i -> {
+			ExpressionFormat.Result result = format.evaluate(i);
+			assertEquals(String.format("%04d", i), result.getValue());
+			assertEquals(i % 2 != 0, result.getSuppressed() != null);
+		});
+	}
+
 	protected static class TestScriptFormat extends ExpressionFormat {
 
 		public TestScriptFormat(String format) throws ScriptException {
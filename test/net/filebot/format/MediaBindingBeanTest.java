@@ -0,0 +1,48 @@
+package net.filebot.format;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class MediaBindingBeanTest {
+
+	Set<String> getDefinedBindings() {
+		Set<String> names = new TreeSet<String>();
+		for (Method method : MediaBindingBean.class.getMethods()) {
+			Define define = method.getAnnotation(Define.class);
+			if (define != null) {
+				names.addAll(asList(define.value()));
+			}
+		}
+		return names;
+	}
+
+	void assertDefined(Set<String> bindings) {
+		Set<String> undefined = new TreeSet<String>(bindings);
+		undefined.removeAll(getDefinedBindings());
+		assertEquals("Undefined bindings", "[]", undefined.toString());
+	}
+
+	@Test
+	public void prefetchBindings() {
+		// binding names used for prefetching must match the @Define names exactly
+		assertDefined(MediaBindingBean.MEDIA_INFO_BINDINGS);
+		assertDefined(MediaBindingBean.MEDIA_HEADER_BINDINGS);
+		assertDefined(MediaBindingBean.MOVIE_INFO_BINDINGS);
+		assertDefined(MediaBindingBean.PRIMARY_MOVIE_INFO_BINDINGS);
+		assertDefined(MediaBindingBean.PRIMARY_SERIES_INFO_BINDINGS);
+		assertDefined(MediaBindingBean.EPISODE_LIST_BINDINGS);
+	}
+
+	@Test
+	public void mediaHeaderBindings() {
+		// container header values are only used instead of media info values
+		assertTrue(MediaBindingBean.MEDIA_INFO_BINDINGS.containsAll(MediaBindingBean.MEDIA_HEADER_BINDINGS));
+	}
+
+}
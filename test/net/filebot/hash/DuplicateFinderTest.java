@@ -0,0 +1,92 @@
+package net.filebot.hash;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DuplicateFinderTest {
+
+	File folder;
+
+	@Before
+	public void setUp() throws Exception {
+		folder = Files.createTempDirectory("duplicates").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(folder);
+	}
+
+	File write(String name, byte[] data) throws IOException {
+		File file = new File(folder, name);
+		Files.write(file.toPath(), data);
+		return file;
+	}
+
+	@Test
+	public void findDuplicates() throws Exception {
+		byte[] small = "small file".getBytes();
+		byte[] large = new byte[3 * DuplicateFinder.SAMPLE_SIZE];
+		new Random(42).nextBytes(large);
+
+		// same size and same head and tail sample but different data in between
+		byte[] middle = large.clone();
+		middle[large.length / 2] ^= 1;
+
+		File a1 = write("a1.txt", small);
+		File a2 = write("a2.txt", small);
+		File b = write("b.txt", "SMALL FILE".getBytes());
+		File c1 = write("c1.bin", large);
+		File c2 = write("c2.bin", large);
+		File d = write("d.bin", middle);
+		File e = write("e.bin", new byte[large.length + 1]);
+
+		List<File> hashed = new ArrayList<File>();
+		DuplicateFinder finder = new DuplicateFinder(HashType.MD5, 2) {
+
+			@Override
+			protected String hash(File file) throws IOException {
+				synchronized (hashed) {
+					hashed.add(file);
+				}
+				return super.hash(file);
+			}
+		};
+
+		Map<String, List<File>> duplicates = finder.findDuplicates(asList(a1, a2, b, c1, c2, d, e, a1, folder));
+
+		assertEquals(2, duplicates.size());
+		assertEquals(asList(a1, a2), duplicates.get(VerificationUtilities.computeHash(a1, HashType.MD5)));
+		assertEquals(asList(c1, c2), duplicates.get(VerificationUtilities.computeHash(c1, HashType.MD5)));
+
+		// small files are hashed once in the sample stage, files with a unique size are never read
+		Set<File> expected = new HashSet<File>(asList(a1, a2, b, c1, c2, d));
+		assertEquals(expected, new HashSet<File>(hashed));
+		assertEquals(expected.size(), hashed.size());
+	}
+
+	@Test
+	public void noDuplicates() throws Exception {
+		File a = write("a.txt", "a".getBytes());
+		File b = write("b.txt", "b".getBytes());
+		File c = write("c.txt", "cc".getBytes());
+
+		assertTrue(new DuplicateFinder(HashType.SFV, 1).findDuplicates(asList(a, b, c)).isEmpty());
+	}
+
+}
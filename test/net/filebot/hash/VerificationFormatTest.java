@@ -30,4 +30,33 @@ public class VerificationFormatTest {
 		assertEquals("folder", sha1.getKey().getParent());
 		assertEquals("1a02a7c1e9ac91346d08829d5037b240f42ded07", sha1.getValue());
 	}
+
+
+	@Test
+	public void parseSimpleLine() throws Exception {
+		VerificationFormat format = new VerificationFormat();
+
+		assertEquals("folder/file.txt", format.parseSimpleLine("50e85fe18e17e3616774637a82968f4c *folder/file.txt").getKey().getPath());
+		assertEquals("folder/file.txt", format.parseSimpleLine("1a02a7c1e9ac91346d08829d5037b240f42ded07 ?SHA1*folder/file.txt").getKey().getPath());
+		assertEquals("*file.txt", format.parseSimpleLine("50e85fe18e17e3616774637a82968f4c  **file.txt").getKey().getPath());
+
+		// defer to regex
+		assertEquals(null, format.parseSimpleLine("50e85fe18e17e3616774637a82968f4c ?SHA1 file.txt"));
+		assertEquals(" file.txt", format.parseObject("50e85fe18e17e3616774637a82968f4c ?SHA1 file.txt").getKey().getPath());
+	}
+
+
+	@Test
+	public void parseSfvLine() throws Exception {
+		SfvFormat format = new SfvFormat();
+
+		Entry<File, String> sfv = format.parseObject("folder/file.txt 970E4EF1");
+		assertEquals("folder/file.txt", sfv.getKey().getPath());
+		assertEquals("970E4EF1", sfv.getValue());
+
+		// greedy path group keeps all but the last whitespace character
+		assertEquals("file name.txt ", format.parseObject("file name.txt  970E4EF1").getKey().getPath());
+		assertEquals(null, format.parseSimpleLine("file.txt 970E4EF"));
+	}
+
 }
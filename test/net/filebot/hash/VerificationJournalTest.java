@@ -0,0 +1,68 @@
+package net.filebot.hash;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerificationJournalTest {
+
+	File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = Files.createTempFile("journal", ".check").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+
+	@Test
+	public void resume() throws Exception {
+		try (VerificationJournal journal = new VerificationJournal(file, "header")) {
+			journal.record(0, "abc", null);
+			journal.record(1, null, "java.io.FileNotFoundException: /mnt/share/file");
+			journal.record(2, "def", null);
+		}
+
+		try (VerificationJournal journal = new VerificationJournal(file, "header")) {
+			assertEquals(3, journal.size());
+			assertEquals("abc", journal.get(0).hash);
+			assertTrue(journal.get(1).isError());
+
+			// retry failed entry
+			journal.record(1, "123", null);
+		}
+
+		try (VerificationJournal journal = new VerificationJournal(file, "header")) {
+			assertEquals(3, journal.size());
+			assertEquals("123", journal.get(1).hash);
+			assertEquals("def", journal.get(2).hash);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recordWithoutError() throws Exception {
+		try (VerificationJournal journal = new VerificationJournal(file, "header")) {
+			journal.record(0, null, null);
+		}
+	}
+
+	@Test
+	public void discardOutdated() throws Exception {
+		try (VerificationJournal journal = new VerificationJournal(file, "header")) {
+			journal.record(0, "abc", null);
+		}
+
+		try (VerificationJournal journal = new VerificationJournal(file, "modified")) {
+			assertEquals(0, journal.size());
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package net.filebot.media;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class VideoQualityTest {
+
+	List<File> files = new ArrayList<File>();
+
+	@After
+	public void delete() {
+		files.forEach(File::delete);
+	}
+
+	File write(String name, int size) throws Exception {
+		File f = new File(Files.createTempDirectory("quality").toFile(), name);
+		Files.write(f.toPath(), new byte[size]);
+		files.add(f);
+		files.add(f.getParentFile());
+		return f;
+	}
+
+	@Test
+	public void key() {
+		assertTrue(new VideoQuality.Key(1, 0, 0).compareTo(new VideoQuality.Key(0, 1920 * 1080, 1000)) > 0);
+		assertTrue(new VideoQuality.Key(0, 1920 * 1080, 0).compareTo(new VideoQuality.Key(0, 1280 * 720, 1000)) > 0);
+		assertTrue(new VideoQuality.Key(0, 0, 1000).compareTo(new VideoQuality.Key(0, 0, 10)) > 0);
+		assertEquals(0, new VideoQuality.Key(1, 2, 3).compareTo(new VideoQuality.Key(1, 2, 3)));
+	}
+
+	@Test
+	public void sortDescending() throws Exception {
+		File small = write("Firefly.S01E01.srt", 10);
+		File large = write("Firefly.S01E01.srt", 100);
+		File repack = write("Firefly.S01E01.REPACK.srt", 1);
+
+		assertEquals(asList(repack, large, small), VideoQuality.sortDescending(asList(small, large, repack)));
+		assertTrue(VideoQuality.isBetter(large, small));
+	}
+
+	@Test
+	public void prefetch() throws Exception {
+		File f = write("Firefly.S01E01.srt", 10);
+
+		VideoQuality quality = new VideoQuality();
+		quality.prefetch(asList(f, f));
+		assertEquals(10, quality.getKey(f).getSize());
+
+		// prefetched keys are used until removed
+		Files.write(f.toPath(), new byte[20]);
+		assertEquals(10, quality.getKey(f).getSize());
+
+		quality.remove(f);
+		assertEquals(20, quality.getKey(f).getSize());
+	}
+
+}
@@ -0,0 +1,294 @@
+package net.filebot.mediainfo;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.filebot.format.MediaBindingBean;
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+import net.filebot.web.Episode;
+
+public class MediaHeaderTest {
+
+	List<File> files = new ArrayList<File>();
+
+	@After
+	public void delete() {
+		files.forEach(File::delete);
+	}
+
+	File write(String extension, byte[] header) throws Exception {
+		File file = Files.createTempFile("header", extension).toFile();
+		files.add(file);
+
+		// MediaInfo requires files to be at least 64 KB
+		byte[] bytes = new byte[Math.max(header.length, 128 * 1024)];
+		System.arraycopy(header, 0, bytes, 0, header.length);
+		Files.write(file.toPath(), bytes);
+		return file;
+	}
+
+	@Test
+	public void matroska() throws Exception {
+		MediaHeader header = MediaHeader.read(write(".mkv", matroska("matroska", 1000000, 2732000.4, 0)));
+
+		// values as reported by MediaInfo
+		assertEquals("Matroska", header.get(StreamKind.General, 0, "Format"));
+		assertEquals("2732000", header.get(StreamKind.General, 0, "Duration"));
+		assertEquals("1920", header.get(StreamKind.Video, 0, "Width"));
+		assertEquals("1080", header.get(StreamKind.Video, 0, "Height"));
+		assertEquals("AC-3", header.get(StreamKind.Audio, 0, "Format"));
+		assertEquals("", header.get(StreamKind.Audio, 0, "CodecID/Hint"));
+		assertEquals("6", header.get(StreamKind.Audio, 0, "Channel(s)"));
+		assertEquals("", header.get(StreamKind.Audio, 0, "Channel(s)_Original"));
+		assertEquals("DTS", header.get(StreamKind.Audio, 1, "Format"));
+		assertEquals("MPEG Audio", header.get(StreamKind.Audio, 2, "Format"));
+		assertEquals("MP3", header.get(StreamKind.Audio, 2, "CodecID/Hint"));
+		assertEquals("2", header.get(StreamKind.Audio, 2, "Channel(s)"));
+
+		// values that require MediaInfo
+		assertFalse(header.isDefined(StreamKind.Video, 0, "Format"));
+		assertFalse(header.isDefined(StreamKind.Video, 0, "ScanType"));
+		assertFalse(header.isDefined(StreamKind.Audio, 1, "Channel(s)"));
+		assertFalse(header.isDefined(StreamKind.Audio, 3, "Format"));
+		assertFalse(header.isDefined(StreamKind.Text, 0, "Language"));
+	}
+
+	@Test
+	public void webm() throws Exception {
+		MediaHeader header = MediaHeader.read(write(".webm", matroska("webm", 100000, 27320.0f, 0)));
+
+		assertEquals("WebM", header.get(StreamKind.General, 0, "Format"));
+		assertEquals("2732", header.get(StreamKind.General, 0, "Duration"));
+	}
+
+	@Test
+	public void matroskaCropped() throws Exception {
+		MediaHeader header = MediaHeader.read(write(".mkv", matroska("matroska", 1000000, 2732000, 140)));
+
+		assertFalse(header.isDefined(StreamKind.Video, 0, "Width"));
+		assertFalse(header.isDefined(StreamKind.Video, 0, "Height"));
+	}
+
+	@Test
+	public void mp4() throws Exception {
+		MediaHeader header = MediaHeader.read(write(".mp4", mp4(90000, 90000L * 60 * 42 + 4500)));
+
+		assertEquals("2520050", header.get(StreamKind.General, 0, "Duration"));
+		assertEquals("1280", header.get(StreamKind.Video, 0, "Width"));
+		assertEquals("720", header.get(StreamKind.Video, 0, "Height"));
+		assertEquals(1, header.snapshot().get(StreamKind.Audio).size());
+		assertFalse(header.isDefined(StreamKind.Audio, 0, "Format"));
+	}
+
+	@Test
+	public void unsupported() throws Exception {
+		assertNull(MediaHeader.read(write(".avi", "RIFF....AVI LIST".getBytes(US_ASCII))));
+
+		// truncated header
+		byte[] mkv = matroska("matroska", 1000000, 2732000, 0);
+		File file = Files.createTempFile("header", ".mkv").toFile();
+		files.add(file);
+		Files.write(file.toPath(), Arrays.copyOf(mkv, 100));
+		assertNull(MediaHeader.read(file));
+	}
+
+	@Test
+	public void bindings() throws Exception {
+		System.setProperty("net.filebot.mediainfo.MediaHeader.probe", "true");
+		try {
+			MediaBindingBean bindings = new MediaBindingBean(new Episode("Firefly", 1, 1, "Serenity"), write(".mkv", matroska("matroska", 1000000, 2732000, 0)));
+
+			// bindings are evaluated without MediaInfo
+			assertEquals("1080p", bindings.getVideoFormat());
+			assertEquals("1920x1080", bindings.getVideoResolution());
+			assertEquals(45, bindings.getMinutes());
+			assertEquals("AC3", bindings.getAudioCodec());
+			assertEquals("6ch", bindings.getAudioChannels());
+		} finally {
+			System.clearProperty("net.filebot.mediainfo.MediaHeader.probe");
+		}
+	}
+
+	/**
+	 * Header fixtures and the values that MediaInfo is expected to report for them (derived from MediaInfo field conventions and not yet recorded from libmediainfo output, so the probe is disabled by default until parityMediaInfo has passed)
+	 */
+	static Map<String, byte[]> getFixtures() {
+		Map<String, byte[]> fixtures = new LinkedHashMap<String, byte[]>();
+		fixtures.put("mkv", matroska("matroska", 1000000, 2732000.4, 0));
+		fixtures.put("webm", matroska("webm", 100000, 27320.0f, 0));
+		fixtures.put("mp4", mp4(90000, 90000L * 60 * 42 + 4500));
+		return fixtures;
+	}
+
+	static MediaInfoSnapshot getExpectedMediaInfo(String fixture) {
+		String[][] audio = { { "Audio", "Format", "AC-3", "CodecID/Hint", "", "Channel(s)", "6", "Channel(s)_Original", "" }, { "Audio", "Format", "DTS", "CodecID/Hint", "" }, { "Audio", "Format", "MPEG Audio", "CodecID/Hint", "MP3", "Channel(s)", "2", "Channel(s)_Original", "" } };
+
+		switch (fixture) {
+		case "mkv":
+			return MediaInfoSnapshot.decode(concat(new String[][] { { "General", "Format", "Matroska", "Duration", "2732000" }, { "Video", "Width", "1920", "Height", "1080" } }, audio));
+		case "webm":
+			return MediaInfoSnapshot.decode(concat(new String[][] { { "General", "Format", "WebM", "Duration", "2732" }, { "Video", "Width", "1920", "Height", "1080" } }, audio));
+		case "mp4":
+			return MediaInfoSnapshot.decode(new String[][] { { "General", "Format", "MPEG-4", "Duration", "2520050" }, { "Video", "Width", "1280", "Height", "720" }, { "Audio" } });
+		default:
+			throw new IllegalArgumentException(fixture);
+		}
+	}
+
+	@Test
+	public void parity() throws Exception {
+		for (Entry<String, byte[]> it : getFixtures().entrySet()) {
+			File f = write("." + it.getKey(), it.getValue());
+			assertParity(it.getKey(), MediaHeader.read(f), getExpectedMediaInfo(it.getKey()));
+		}
+	}
+
+	@Test
+	public void parityMediaInfo() throws Exception {
+		// make sure that the expected values match the values reported by the native MediaInfo library
+		assumeTrue(isMediaInfoAvailable());
+
+		for (Entry<String, byte[]> it : getFixtures().entrySet()) {
+			File f = write("." + it.getKey(), it.getValue());
+			MediaInfoSnapshot expected = getExpectedMediaInfo(it.getKey());
+
+			try (MediaInfo mi = new MediaInfo().open(f)) {
+				expected.snapshot().forEach((kind, streams) -> {
+					assertEquals(it.getKey() + " " + kind, mi.streamCount(kind), streams.size());
+
+					for (int i = 0; i < streams.size(); i++) {
+						for (Entry<String, String> value : streams.get(i).entrySet()) {
+							assertEquals(it.getKey() + " " + kind + "[" + i + "][" + value.getKey() + "]", mi.get(kind, i, value.getKey()), value.getValue());
+						}
+					}
+				});
+			}
+		}
+	}
+
+	@Test
+	public void paritySamples() throws Exception {
+		// e.g. -Dnet.filebot.mediainfo.MediaHeaderTest.samples=/path/to/samples
+		String samples = System.getProperty("net.filebot.mediainfo.MediaHeaderTest.samples");
+		assumeNotNull(samples);
+
+		for (File f : new File(samples).listFiles()) {
+			MediaHeader header = MediaHeader.read(f);
+			if (header == null) {
+				continue;
+			}
+
+			try (MediaInfo mi = new MediaInfo().open(f)) {
+				assertParity(f.getName(), header, new MediaInfoSnapshot(mi.snapshot()));
+			}
+		}
+	}
+
+	void assertParity(String name, MediaHeader header, MediaInfoSnapshot mi) {
+		// all values defined by the container header must be the same as the values reported by MediaInfo
+		header.snapshot().forEach((kind, streams) -> {
+			assertEquals(name + " " + kind, mi.streamCount(kind), streams.size());
+
+			for (int i = 0; i < streams.size(); i++) {
+				for (Entry<String, String> it : streams.get(i).entrySet()) {
+					assertEquals(name + " " + kind + "[" + i + "][" + it.getKey() + "]", mi.get(kind, i, it.getKey()), it.getValue());
+				}
+			}
+		});
+	}
+
+	static boolean isMediaInfoAvailable() {
+		try {
+			new MediaInfo().close();
+			return true;
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	static String[][] concat(String[][] a, String[][] b) {
+		String[][] rows = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, rows, a.length, b.length);
+		return rows;
+	}
+
+	static byte[] matroska(String docType, long timecodeScale, double duration, int crop) {
+		byte[] video = concat(element(0xB0, uint(1920)), element(0xBA, uint(1080)), crop > 0 ? element(0x54AA, uint(crop)) : new byte[0]);
+
+		byte[] tracks = concat(track(1, "V_MPEG4/ISO/AVC", element(0xE0, video)), track(2, "A_AC3", element(0xE1, element(0x9F, uint(6)))), track(2, "A_DTS", element(0xE1, element(0x9F, uint(6)))), track(2, "A_MPEG/L3", element(0xE1, element(0x9F, uint(2)))), track(17, "S_TEXT/UTF8", new byte[0]));
+		byte[] info = concat(element(0x2AD7B1, uint(timecodeScale)), element(0x4489, duration == (float) duration ? ByteBuffer.allocate(4).putFloat((float) duration).array() : ByteBuffer.allocate(8).putDouble(duration).array()));
+
+		byte[] ebml = element(0x1A45DFA3, element(0x4282, docType.getBytes(US_ASCII)));
+		byte[] segment = concat(element(0x114D9B74, new byte[32]), element(0xEC, new byte[16]), element(0x1549A966, info), element(0x1654AE6B, tracks), element(0x1F43B675, new byte[64]));
+
+		// segment of unknown size
+		return concat(ebml, id(0x18538067), new byte[] { 0x01, -1, -1, -1, -1, -1, -1, -1 }, segment);
+	}
+
+	static byte[] track(int type, String codec, byte[] properties) {
+		return element(0xAE, concat(element(0xD7, uint(1)), element(0x83, uint(type)), element(0x86, codec.getBytes(US_ASCII)), properties));
+	}
+
+	static byte[] element(int id, byte[] body) {
+		// 8-byte element size
+		ByteBuffer size = ByteBuffer.allocate(8).putLong(body.length);
+		size.put(0, (byte) 0x01);
+		return concat(id(id), size.array(), body);
+	}
+
+	static byte[] id(int id) {
+		byte[] bytes = ByteBuffer.allocate(4).putInt(id).array();
+		int offset = 0;
+		while (bytes[offset] == 0) {
+			offset++;
+		}
+		return Arrays.copyOfRange(bytes, offset, 4);
+	}
+
+	static byte[] uint(long value) {
+		return ByteBuffer.allocate(8).putLong(value).array();
+	}
+
+	static byte[] mp4(int timescale, long duration) {
+		byte[] mvhd = box("mvhd", concat(new byte[4], new byte[8], ByteBuffer.allocate(8).putInt(timescale).putInt((int) duration).array(), new byte[80]));
+
+		byte[] avc1 = box("avc1", concat(new byte[8], new byte[16], ByteBuffer.allocate(4).putShort((short) 1280).putShort((short) 720).array(), new byte[50]));
+		byte[] video = box("trak", concat(box("tkhd", new byte[84]), box("mdia", concat(box("mdhd", new byte[24]), handler("vide"), box("minf", box("stbl", box("stsd", concat(new byte[] { 0, 0, 0, 0, 0, 0, 0, 1 }, avc1))))))));
+		byte[] audio = box("trak", concat(box("tkhd", new byte[84]), box("mdia", concat(box("mdhd", new byte[24]), handler("soun")))));
+
+		// moov at the end of the file
+		return concat(box("ftyp", "isom\0\0\0\0isomavc1".getBytes(US_ASCII)), box("free", new byte[8]), box("mdat", new byte[4096]), box("moov", concat(mvhd, video, audio)));
+	}
+
+	static byte[] handler(String type) {
+		return box("hdlr", concat(new byte[8], type.getBytes(US_ASCII), new byte[13]));
+	}
+
+	static byte[] box(String type, byte[] body) {
+		return concat(ByteBuffer.allocate(4).putInt(8 + body.length).array(), type.getBytes(US_ASCII), body);
+	}
+
+	static byte[] concat(byte[]... values) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (byte[] it : values) {
+			bytes.write(it, 0, it.length);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,78 @@
+package net.filebot.mediainfo;
+
+import static java.util.stream.Collectors.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import net.filebot.mediainfo.MediaInfoPool.ScanResult;
+
+public class MediaInfoPoolTest {
+
+	@Test
+	public void scan() throws Exception {
+		List<File> files = IntStream.range(0, 20).mapToObj(i -> new File("Missing File " + i + ".mkv")).collect(toList());
+
+		try (MediaInfoPool pool = new MediaInfoPool(4)) {
+			List<ScanResult> results = pool.scan(files);
+
+			assertEquals(files, results.stream().map(ScanResult::getFile).collect(toList()));
+			for (ScanResult it : results) {
+				assertNotNull(it.getError());
+				assertFalse(it.getLatency().isNegative());
+			}
+			assertEquals(0, pool.getActiveCount());
+		}
+	}
+
+	@Test
+	public void scanWithPoolHandles() throws Exception {
+		List<File> files = new ArrayList<File>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				File f = Files.createTempFile("scan", ".mkv").toFile();
+				Files.write(f.toPath(), new byte[] { (byte) i });
+				files.add(f);
+			}
+
+			// count handles that are borrowed from this pool (MediaInfo may or may not be available)
+			AtomicInteger acquired = new AtomicInteger(0);
+			try (MediaInfoPool pool = new MediaInfoPool(4) {
+
+				@Override
+				public MediaInfo acquire() throws InterruptedException {
+					acquired.incrementAndGet();
+					return super.acquire();
+				}
+			}) {
+				pool.scan(files);
+
+				assertEquals(files.size(), acquired.get());
+				assertEquals(0, pool.getActiveCount());
+				assertEquals(0, MediaInfoPool.getDefaultPool().getActiveCount());
+			}
+		} finally {
+			files.forEach(File::delete);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void illegalPoolSize() {
+		new MediaInfoPool(0);
+	}
+
+	@Test
+	public void nativeMemoryUsage() {
+		if (new File("/proc/self/statm").exists()) {
+			assertTrue(MediaInfoPool.getNativeMemoryUsage() >= 0);
+		}
+	}
+
+}
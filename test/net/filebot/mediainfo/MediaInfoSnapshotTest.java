@@ -0,0 +1,103 @@
+package net.filebot.mediainfo;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import net.filebot.Cache;
+import net.filebot.CacheType;
+import net.filebot.mediainfo.MediaInfo.StreamKind;
+
+public class MediaInfoSnapshotTest {
+
+	MediaInfoSnapshot createSnapshot() {
+		Map<String, String> general = new LinkedHashMap<String, String>();
+		general.put("Format", "Matroska");
+		general.put("Duration", "2732000");
+
+		Map<String, String> video = new LinkedHashMap<String, String>();
+		video.put("Format", "AVC");
+		video.put("Width", "1920");
+		video.put("Height", "1080");
+
+		Map<String, String> english = new LinkedHashMap<String, String>();
+		english.put("Language", "en");
+
+		Map<String, String> japanese = new LinkedHashMap<String, String>();
+		japanese.put("Language", "ja");
+
+		Map<StreamKind, List<Map<String, String>>> streams = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
+		streams.put(StreamKind.General, asList(general));
+		streams.put(StreamKind.Video, asList(video));
+		streams.put(StreamKind.Audio, asList(english, japanese));
+		return new MediaInfoSnapshot(streams);
+	}
+
+	@Test
+	public void get() {
+		MediaInfoSnapshot mi = createSnapshot();
+
+		assertEquals("AVC", mi.get(StreamKind.Video, 0, "Format"));
+		assertEquals("ja", mi.get(StreamKind.Audio, 1, "Language"));
+		assertEquals(2, mi.streamCount(StreamKind.Audio));
+		assertEquals(0, mi.streamCount(StreamKind.Text));
+
+		// undefined values are the same as with MediaInfo
+		assertEquals("", mi.get(StreamKind.Video, 0, "ScanType"));
+		assertEquals("", mi.get(StreamKind.Audio, 2, "Language"));
+		assertEquals("", mi.get(StreamKind.Text, 0, "Language"));
+	}
+
+	@Test
+	public void encodeDecode() {
+		MediaInfoSnapshot mi = createSnapshot();
+		String[][] rows = MediaInfoSnapshot.encode(mi);
+
+		assertEquals(4, rows.length);
+		assertArrayEquals(new String[] { "Video", "Format", "AVC", "Width", "1920", "Height", "1080" }, rows[1]);
+		assertEquals(mi.snapshot(), MediaInfoSnapshot.decode(rows).snapshot());
+	}
+
+	@Test
+	public void cacheKey() throws Exception {
+		File file = Files.createTempFile("mediainfo", ".mkv").toFile();
+		try {
+			String key = MediaInfoSnapshot.getCacheKey(file);
+			assertEquals(key, MediaInfoSnapshot.getCacheKey(file));
+
+			file.setLastModified(file.lastModified() - 60_000);
+			assertNotEquals(key, MediaInfoSnapshot.getCacheKey(file));
+
+			key = MediaInfoSnapshot.getCacheKey(file);
+			Files.write(file.toPath(), new byte[1]);
+			file.setLastModified(file.lastModified() - 60_000);
+			assertNotEquals(key, MediaInfoSnapshot.getCacheKey(file));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void readThrough() throws Exception {
+		File file = Files.createTempFile("mediainfo", ".mkv").toFile();
+		try {
+			// use memory-only cache so that the persistent media info cache is not modified
+			Cache cache = Cache.getCache("mediainfo_test", CacheType.Ephemeral);
+
+			// MediaInfo is not called if the snapshot is already in the cache
+			cache.put(MediaInfoSnapshot.getCacheKey(file), MediaInfoSnapshot.encode(createSnapshot()));
+			assertEquals(createSnapshot().snapshot(), MediaInfoSnapshot.of(file, MediaInfoPool.getDefaultPool(), cache).snapshot());
+		} finally {
+			file.delete();
+		}
+	}
+
+}
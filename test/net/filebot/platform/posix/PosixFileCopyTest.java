@@ -0,0 +1,105 @@
+package net.filebot.platform.posix;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PosixFileCopyTest {
+
+	File folder;
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(PosixFileCopy.isSupported());
+		folder = Files.createTempDirectory("copy").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (folder != null) {
+			FileUtils.deleteDirectory(folder);
+		}
+	}
+
+	@Test
+	public void copyFileRange() throws Exception {
+		File source = new File(folder, "source.bin");
+		File destination = new File(folder, "destination.bin");
+
+		byte[] data = new byte[3 * 1024 * 1024 + 17];
+		Arrays.fill(data, (byte) 42);
+		Files.write(source.toPath(), data);
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("rwxr-x---"));
+
+		// existing hardlink must be replaced rather than written through
+		File link = new File(folder, "link.bin");
+		Files.write(destination.toPath(), new byte[] { 1, 2, 3 });
+		Files.createLink(link.toPath(), destination.toPath());
+
+		assumeTrue(PosixFileCopy.copyFileRange(source, destination, n -> {
+		}));
+
+		assertArrayEquals(data, Files.readAllBytes(destination.toPath()));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(link.toPath()));
+		assertTrue(Files.getPosixFilePermissions(destination.toPath()).containsAll(PosixFilePermissions.fromString("rwx------")));
+		assertTrue(Files.getPosixFilePermissions(source.toPath()).containsAll(Files.getPosixFilePermissions(destination.toPath())));
+		assertEquals(3, folder.list().length);
+	}
+
+	@Test
+	public void pseudoFile() throws Exception {
+		// sysfs files report a size but copy_file_range returns 0 bytes
+		File source = new File("/sys/kernel/mm/transparent_hugepage/enabled");
+		assumeTrue(source.isFile() && source.length() > 0);
+
+		File destination = new File(folder, "destination.bin");
+		Files.write(destination.toPath(), new byte[] { 1, 2, 3 });
+
+		if (!PosixFileCopy.copyFileRange(source, destination, n -> {
+		})) {
+			// fall back to another strategy and keep the existing destination
+			assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(destination.toPath()));
+		} else {
+			assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(destination.toPath()));
+		}
+		assertEquals(1, folder.list().length);
+	}
+
+	@Test
+	public void reflinkKeepsDestination() throws Exception {
+		File source = new File(folder, "source.bin");
+		File destination = new File(folder, "destination.bin");
+		Files.write(source.toPath(), new byte[] { 4, 5, 6 });
+		Files.write(destination.toPath(), new byte[] { 1, 2, 3 });
+
+		if (PosixFileCopy.reflink(source, destination)) {
+			assertArrayEquals(new byte[] { 4, 5, 6 }, Files.readAllBytes(destination.toPath()));
+		} else {
+			// failed clone must not wipe the existing file
+			assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(destination.toPath()));
+		}
+		assertEquals(2, folder.list().length);
+	}
+
+	@Test
+	public void openFailure() throws Exception {
+		File source = new File(folder, "source.bin");
+		File destination = new File(folder, "destination.bin");
+
+		// fall back to another strategy if the native open fails (e.g. EOVERFLOW for large files on 32-bit platforms)
+		assertFalse(PosixFileCopy.reflink(source, destination));
+		assertFalse(PosixFileCopy.copyFileRange(source, destination, n -> {
+		}));
+		assertEquals(0, folder.list().length);
+	}
+
+}
@@ -0,0 +1,244 @@
+package net.filebot.torrent;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TorrentVerifierTest {
+
+	static final int PIECE_LENGTH = 16;
+
+	// a.bin [0, 20) | empty.txt [20, 20) | sub/b.bin [20, 50) | c.bin [50, 60)
+	static final String[] PATHS = { "a.bin", "empty.txt", "sub/b.bin", "c.bin" };
+	static final int[] LENGTHS = { 20, 0, 30, 10 };
+
+	File folder;
+	File payload;
+	Torrent torrent;
+
+	@Before
+	public void setUp() throws Exception {
+		folder = Files.createTempDirectory("torrent").toFile();
+		payload = new File(folder, "Payload");
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		for (int i = 0; i < PATHS.length; i++) {
+			byte[] bytes = new byte[LENGTHS[i]];
+			for (int j = 0; j < bytes.length; j++) {
+				bytes[j] = (byte) (data.size() + j);
+			}
+			data.write(bytes);
+
+			File file = new File(payload, PATHS[i]);
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), bytes);
+		}
+
+		File file = new File(folder, "Payload.torrent");
+		Files.write(file.toPath(), encode(createTorrent(data.toByteArray())));
+		torrent = new Torrent(file);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(folder);
+	}
+
+	Map<String, Object> createTorrent(byte[] data) throws Exception {
+		ByteArrayOutputStream pieces = new ByteArrayOutputStream();
+		for (int i = 0; i < data.length; i += PIECE_LENGTH) {
+			pieces.write(MessageDigest.getInstance("SHA-1").digest(copyOfRange(data, i, Math.min(i + PIECE_LENGTH, data.length))));
+		}
+
+		List<Object> files = new ArrayList<Object>();
+		for (int i = 0; i < PATHS.length; i++) {
+			Map<String, Object> entry = new TreeMap<String, Object>();
+			entry.put("length", (long) LENGTHS[i]);
+			entry.put("path", asList((Object[]) PATHS[i].split("/")));
+			entry.put("md5sum", "unknown keys are skipped");
+			files.add(entry);
+		}
+
+		Map<String, Object> info = new TreeMap<String, Object>();
+		info.put("files", files);
+		info.put("name", "Payload");
+		info.put("piece length", (long) PIECE_LENGTH);
+		info.put("pieces", pieces.toByteArray());
+
+		Map<String, Object> root = new TreeMap<String, Object>();
+		root.put("announce", "http://tracker.example.com/announce");
+		root.put("announce-list", asList(asList("http://tracker.example.com/announce"), asList("udp://tracker.example.com:80")));
+		root.put("creation date", 1234567890L);
+		root.put("info", info);
+		return root;
+	}
+
+	static byte[] encode(Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encode(value, out);
+		return out.toByteArray();
+	}
+
+	static void encode(Object value, ByteArrayOutputStream out) throws IOException {
+		if (value instanceof Map) {
+			out.write('d');
+			for (Entry<?, ?> it : ((Map<?, ?>) value).entrySet()) {
+				encode(it.getKey(), out);
+				encode(it.getValue(), out);
+			}
+			out.write('e');
+		} else if (value instanceof List) {
+			out.write('l');
+			for (Object it : (List<?>) value) {
+				encode(it, out);
+			}
+			out.write('e');
+		} else if (value instanceof Long) {
+			out.write(("i" + value + "e").getBytes(US_ASCII));
+		} else {
+			byte[] bytes = value instanceof byte[] ? (byte[]) value : value.toString().getBytes(UTF_8);
+			out.write((bytes.length + ":").getBytes(US_ASCII));
+			out.write(bytes);
+		}
+	}
+
+	File getFile(String path) {
+		return new File(payload, path);
+	}
+
+	Map<File, Integer> getCorruptedFiles(Object... values) {
+		Map<File, Integer> files = new LinkedHashMap<File, Integer>();
+		for (int i = 0; i < values.length; i += 2) {
+			files.put(getFile((String) values[i]), (Integer) values[i + 1]);
+		}
+		return files;
+	}
+
+	@Test
+	public void decode() throws Exception {
+		assertEquals("Payload", torrent.getName());
+		assertEquals("http://tracker.example.com/announce", torrent.getAnnounce());
+		assertFalse(torrent.isSingleFileTorrent());
+		assertEquals(PIECE_LENGTH, torrent.getPieceLength().intValue());
+		assertEquals(4, torrent.getPieceCount());
+		assertEquals(60, torrent.getLength());
+
+		assertEquals(PATHS.length, torrent.getFiles().size());
+		for (int i = 0; i < PATHS.length; i++) {
+			assertEquals(PATHS[i], torrent.getFiles().get(i).getPath());
+			assertEquals(LENGTHS[i], torrent.getFiles().get(i).getLength());
+		}
+	}
+
+	@Test
+	public void decodeMap() throws Exception {
+		byte[] bytes = Files.readAllBytes(new File(folder, "Payload.torrent").toPath());
+		Torrent map = new Torrent(BDecoder.decode(new ByteArrayInputStream(bytes)));
+
+		assertEquals(torrent.getName(), map.getName());
+		assertEquals(torrent.getPieceCount(), map.getPieceCount());
+		for (int i = 0; i < PATHS.length; i++) {
+			assertEquals(torrent.getFiles().get(i).getPath(), map.getFiles().get(i).getPath());
+			assertEquals(torrent.getFiles().get(i).getLength(), map.getFiles().get(i).getLength());
+		}
+		assertArrayEquals(torrent.getPieceHash(3), map.getPieceHash(3));
+	}
+
+	@Test(expected = EOFException.class)
+	public void decodeTruncated() throws Exception {
+		BDecoder.decode(new ByteArrayInputStream("d4:name7:Payload".getBytes(US_ASCII)));
+	}
+
+	@Test(expected = IOException.class)
+	public void decodeStringTooLarge() throws Exception {
+		new BDecoder(new ByteArrayInputStream("99999999999:".getBytes(US_ASCII))).nextBytes();
+	}
+
+	@Test
+	public void verify() throws Exception {
+		TorrentVerifier verifier = new TorrentVerifier(torrent, folder);
+
+		assertEquals(getFile("sub/b.bin"), verifier.getFiles()[2]);
+		assertTrue(verifier.verify(2).isEmpty());
+	}
+
+	@Test
+	public void verifyEmptyFile() throws Exception {
+		// empty files are not part of any piece but missing empty files are still reported
+		getFile("empty.txt").delete();
+
+		TorrentVerifier verifier = new TorrentVerifier(torrent, folder);
+		BitSet failed = verifier.verify(2);
+
+		assertTrue(failed.isEmpty());
+		assertEquals(getCorruptedFiles("empty.txt", 0), verifier.getCorruptedFiles(failed));
+	}
+
+	@Test(expected = IOException.class)
+	public void verifyMissingPieces() throws Exception {
+		// piece hashes only cover the first 48 of 60 bytes
+		File file = new File(folder, "Truncated.torrent");
+		Files.write(file.toPath(), encode(createTorrent(new byte[48])));
+
+		new TorrentVerifier(new Torrent(file), folder).verify(2);
+	}
+
+	@Test
+	public void verifyCorruptedByte() throws Exception {
+		// piece 1 spans a.bin [16, 20) and sub/b.bin [0, 12)
+		try (RandomAccessFile file = new RandomAccessFile(getFile("sub/b.bin"), "rw")) {
+			file.seek(5);
+			file.write(0xFF);
+		}
+
+		TorrentVerifier verifier = new TorrentVerifier(torrent, folder);
+		BitSet failed = verifier.verify(2);
+
+		assertEquals("{1}", failed.toString());
+		assertEquals(getCorruptedFiles("a.bin", 1, "sub/b.bin", 1), verifier.getCorruptedFiles(failed));
+	}
+
+	@Test
+	public void verifyMissingFile() throws Exception {
+		// piece 3 spans sub/b.bin [28, 30) and c.bin [0, 10)
+		getFile("c.bin").delete();
+
+		TorrentVerifier verifier = new TorrentVerifier(torrent, folder);
+		BitSet failed = verifier.verify(1);
+
+		assertEquals("{3}", failed.toString());
+		assertEquals(getCorruptedFiles("sub/b.bin", 1, "c.bin", 1), verifier.getCorruptedFiles(failed));
+	}
+
+	@Test
+	public void verifyTruncatedFile() throws Exception {
+		// pieces 0 and 1 contain data from a.bin
+		try (RandomAccessFile file = new RandomAccessFile(getFile("a.bin"), "rw")) {
+			file.setLength(10);
+		}
+
+		assertEquals("{0, 1}", new TorrentVerifier(torrent, folder).verify(4).toString());
+	}
+
+}
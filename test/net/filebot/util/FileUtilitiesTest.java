@@ -4,7 +4,10 @@ package net.filebot.util;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 public class FileUtilitiesTest {
@@ -58,4 +61,28 @@ public class FileUtilitiesTest {
 		assertEquals("/server/share/data/file.txt", FileUtilities.normalizePathSeparators("//server/share/data/file.txt"));
 	}
 
+	@Test
+	public void copyFile() throws Exception {
+		File folder = Files.createTempDirectory("copy").toFile();
+		try {
+			File source = new File(folder, "source.txt");
+			File destination = new File(folder, "destination.txt");
+			File link = new File(folder, "link.txt");
+
+			Files.write(source.toPath(), "source".getBytes());
+			Files.write(destination.toPath(), "destination".getBytes());
+			Files.createLink(link.toPath(), destination.toPath());
+			Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("rwx------"));
+
+			FileUtilities.copyFile(source, destination, new Throughput("Test"));
+
+			// replace existing hardlink and keep permissions just like Files.copy()
+			assertEquals("source", new String(Files.readAllBytes(destination.toPath())));
+			assertEquals("destination", new String(Files.readAllBytes(link.toPath())));
+			assertEquals(Files.getPosixFilePermissions(source.toPath()), Files.getPosixFilePermissions(destination.toPath()));
+		} finally {
+			FileUtils.deleteDirectory(folder);
+		}
+	}
+
 }
@@ -0,0 +1,42 @@
+package net.filebot.util;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class StorageTypeTest {
+
+	@Test
+	public void blockDevices() throws Exception {
+		File[] devices = new File("/sys/class/block").listFiles();
+		assumeTrue(devices != null && devices.length > 0);
+
+		for (File it : devices) {
+			// e.g. /sys/class/block/sda1 -> /sys/devices/.../block/sda/sda1
+			Path device = it.toPath().toRealPath();
+			Path queue = device.resolve("queue/rotational");
+
+			// partitions are classified by their parent device
+			if (Files.exists(device.resolve("partition"))) {
+				queue = device.getParent().resolve("queue/rotational");
+				assertTrue(it.getName(), Files.exists(queue));
+			}
+
+			if (Files.exists(queue)) {
+				StorageType expected = new String(Files.readAllBytes(queue)).trim().equals("1") ? StorageType.ROTATIONAL : StorageType.SOLID_STATE;
+				assertEquals(it.getName(), expected, StorageType.forBlockDevice(it.getName()));
+			}
+		}
+	}
+
+	@Test
+	public void unknownDevice() {
+		assertEquals(StorageType.UNKNOWN, StorageType.forBlockDevice("no-such-device"));
+	}
+
+}